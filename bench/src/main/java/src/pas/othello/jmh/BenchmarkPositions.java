@@ -0,0 +1,123 @@
+package src.pas.othello.jmh;
+
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.board.BitBoard;
+
+
+// The stored benchmark positions (positions.txt on the classpath), one phase at a time.
+// Each position is kept as bitboards; GameViews are built on demand for the benchmarks
+// that go through the framework types.
+public class BenchmarkPositions
+    extends Object
+{
+
+    private static final String RESOURCE = "/positions.txt";
+
+    private final long[] black;
+    private final long[] white;
+    private final boolean[] blackToMove;
+
+    private BenchmarkPositions(List<long[]> rows)
+    {
+        int n = rows.size();
+        this.black = new long[n];
+        this.white = new long[n];
+        this.blackToMove = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            long[] row = rows.get(i);
+            this.black[i] = row[0];
+            this.white[i] = row[1];
+            this.blackToMove[i] = row[2] != 0L;
+        }
+    }
+
+    // phase is "opening", "midgame" or "endgame"
+    public static BenchmarkPositions load(String phase)
+    {
+        List<long[]> rows = new ArrayList<>();
+        try (InputStream in = BenchmarkPositions.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("missing " + RESOURCE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields[0].equals(phase)) {
+                    rows.add(new long[] {
+                            Long.parseUnsignedLong(fields[1], 16),
+                            Long.parseUnsignedLong(fields[2], 16),
+                            fields[3].equals("B") ? 1L : 0L
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("no positions for phase " + phase);
+        }
+        return new BenchmarkPositions(rows);
+    }
+
+    public int size()
+    {
+        return this.black.length;
+    }
+
+    public long getBlack(int i)
+    {
+        return this.black[i];
+    }
+
+    public long getWhite(int i)
+    {
+        return this.white[i];
+    }
+
+    public boolean isBlackToMove(int i)
+    {
+        return this.blackToMove[i];
+    }
+
+    // discs of the side to move / the other side
+    public long getOwn(int i)
+    {
+        return this.blackToMove[i] ? this.black[i] : this.white[i];
+    }
+
+    public long getOpp(int i)
+    {
+        return this.blackToMove[i] ? this.white[i] : this.black[i];
+    }
+
+    public PlayerType getPlayerToMove(int i)
+    {
+        return this.blackToMove[i] ? PlayerType.BLACK : PlayerType.WHITE;
+    }
+
+    public GameView toGameView(int i)
+    {
+        return BitBoard.toGameView(this.black[i], this.white[i], getPlayerToMove(i));
+    }
+
+}
@@ -0,0 +1,124 @@
+package src.pas.othello.jmh;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.traversal.Node;
+
+import src.pas.othello.agents.OthelloAgent.OthelloNode;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.heuristics.PatternEvaluator;
+
+
+// Static evaluation, through the framework Node and straight from bitboards, and the
+// pattern evaluator (run from bench/, it reads the weights from the project's data/),
+// both from the bitboards and from the incrementally kept pattern indices the search
+// hands it.
+// One op = one evaluation (each invocation walks all positions of the phase).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark
+    extends Object
+{
+
+    // must match the number of positions per phase in positions.txt
+    static final int POSITIONS = 8;
+    private static final String PATTERN_FILE = "../data/pattern.weights";
+
+    @Param({ "opening", "midgame", "endgame" })
+    public String phase;
+
+    private Node[] nodes;
+    private long[] maxDiscs;
+    private long[] minDiscs;
+    private PatternEvaluator pattern;
+    private int[][] patternState;
+    private long[] moves;
+    private boolean[] maxIsBlack;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        this.pattern = PatternEvaluator.load(PATTERN_FILE);
+        BenchmarkPositions positions = BenchmarkPositions.load(this.phase);
+        this.nodes = new Node[POSITIONS];
+        this.maxDiscs = new long[POSITIONS];
+        this.minDiscs = new long[POSITIONS];
+        this.patternState = new int[POSITIONS][this.pattern.stateSize()];
+        this.moves = new long[POSITIONS];
+        this.maxIsBlack = new boolean[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            // MAX is the side to move
+            this.nodes[i] = new OthelloNode(positions.getPlayerToMove(i), positions.toGameView(i), 0);
+            this.maxDiscs[i] = positions.getOwn(i);
+            this.minDiscs[i] = positions.getOpp(i);
+            this.moves[i] = BitBoard.legalMoves(this.maxDiscs[i], this.minDiscs[i]);
+            this.maxIsBlack[i] = positions.getPlayerToMove(i) == PlayerType.BLACK;
+            long black = this.maxIsBlack[i] ? this.maxDiscs[i] : this.minDiscs[i];
+            long white = this.maxIsBlack[i] ? this.minDiscs[i] : this.maxDiscs[i];
+            this.pattern.initState(black, white, this.patternState[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void heuristicNode(Blackhole bh)
+    {
+        for (Node node : this.nodes) {
+            bh.consume(Heuristics.calculateHeuristicValue(node));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void heuristicBitboard(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(Heuristics.calculateHeuristicValue(this.maxDiscs[i], this.minDiscs[i], true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void patternBitboard(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(this.pattern.evaluate(this.maxDiscs[i], this.minDiscs[i], true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void patternIncremental(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(this.pattern.evaluate(this.patternState[i], this.maxDiscs[i], this.minDiscs[i],
+                    this.moves[i], true, this.maxIsBlack[i]));
+        }
+    }
+
+}
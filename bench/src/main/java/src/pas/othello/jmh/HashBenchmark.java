@@ -0,0 +1,88 @@
+package src.pas.othello.jmh;
+
+
+// SYSTEM IMPORTS
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Zobrist;
+
+
+// Position hashing. The old String-building getBoardHash is gone; what the search does
+// now is a full Zobrist hash at the root and an incremental update per move.
+// One op = one position (hashFull) or one child key (hashMove).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark
+    extends Object
+{
+
+    private static final int POSITIONS = EvalBenchmark.POSITIONS;
+
+    @Param({ "opening", "midgame", "endgame" })
+    public String phase;
+
+    private long[] own;
+    private long[] opp;
+    private long[] keys;
+    // the first legal move of every position and what it flips
+    private int[] move;
+    private long[] flipped;
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkPositions positions = BenchmarkPositions.load(this.phase);
+        this.own = new long[POSITIONS];
+        this.opp = new long[POSITIONS];
+        this.keys = new long[POSITIONS];
+        this.move = new int[POSITIONS];
+        this.flipped = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            this.own[i] = positions.getOwn(i);
+            this.opp[i] = positions.getOpp(i);
+            this.keys[i] = Zobrist.hash(this.own[i], this.opp[i], positions.isBlackToMove(i));
+            this.move[i] = Long.numberOfTrailingZeros(BitBoard.legalMoves(this.own[i], this.opp[i]));
+            this.flipped[i] = BitBoard.flips(this.own[i], this.opp[i], this.move[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void hashFull(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(Zobrist.hash(this.own[i], this.opp[i], true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void hashMove(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(Zobrist.move(this.keys[i], this.move[i], this.flipped[i], true));
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package src.pas.othello.jmh;
+
+
+// SYSTEM IMPORTS
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.traversal.Node;
+
+import src.pas.othello.agents.OthelloAgent.OthelloNode;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.ordering.MoveOrderer;
+
+
+// Expanding a position: the framework path (getChildren, orderChildren) next to the
+// bitboard path the search uses (legal moves + flips for every child, then ordering).
+// One op = one position.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenBenchmark
+    extends Object
+{
+
+    private static final int POSITIONS = EvalBenchmark.POSITIONS;
+
+    @Param({ "opening", "midgame", "endgame" })
+    public String phase;
+
+    private Node[] nodes;
+    private List<Node>[] children;
+    private long[] own;
+    private long[] opp;
+    private final int[] moves = new int[BitBoard.NUM_SQUARES];
+    private final double[] keys = new double[BitBoard.NUM_SQUARES];
+
+    @Setup
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setup()
+    {
+        BenchmarkPositions positions = BenchmarkPositions.load(this.phase);
+        this.nodes = new Node[POSITIONS];
+        this.children = new List[POSITIONS];
+        this.own = new long[POSITIONS];
+        this.opp = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            this.nodes[i] = new OthelloNode(positions.getPlayerToMove(i), positions.toGameView(i), 0);
+            this.children[i] = this.nodes[i].getChildren();
+            this.own[i] = positions.getOwn(i);
+            this.opp[i] = positions.getOpp(i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void getChildren(Blackhole bh)
+    {
+        for (Node node : this.nodes) {
+            bh.consume(node.getChildren());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void orderChildren(Blackhole bh)
+    {
+        for (List<Node> list : this.children) {
+            bh.consume(MoveOrderer.orderChildren(list));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void bitboardChildren(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            long own = this.own[i];
+            long opp = this.opp[i];
+            for (long m = BitBoard.legalMoves(own, opp); m != 0L; m &= m - 1) {
+                bh.consume(BitBoard.flips(own, opp, Long.numberOfTrailingZeros(m)));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void bitboardOrderMoves(Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            int n = 0;
+            for (long m = BitBoard.legalMoves(this.own[i], this.opp[i]); m != 0L; m &= m - 1) {
+                this.moves[n++] = Long.numberOfTrailingZeros(m);
+            }
+            bh.consume(MoveOrderer.orderMoves(this.own[i], this.opp[i], true, this.moves, this.keys, n));
+        }
+    }
+
+}
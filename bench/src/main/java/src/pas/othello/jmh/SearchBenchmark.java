@@ -0,0 +1,139 @@
+package src.pas.othello.jmh;
+
+
+// SYSTEM IMPORTS
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.traversal.Node;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.search.SearchConfig;
+
+
+// Full treeSearch at a fixed depth, one op = one position searched from scratch
+// (the transposition table is cleared before every invocation, the history table
+// carries over the way it does between moves of a game).
+// Both modes are reported: the throughput run turns the "nodes" counter into nodes per
+// second, the average time run gives seconds per position.
+// The endgame solver is off so the endgame positions measure the same search.
+// "search" compares plain alpha-beta with principal variation search, with and
+// without aspiration windows at the root, and with ProbCut on top.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+    extends Object
+{
+
+    private static final int POSITIONS = EvalBenchmark.POSITIONS;
+    private static final int TT_SIZE_MB = 16;
+    // root window for the "aspiration" mode
+    private static final double ASPIRATION_WINDOW = 0.05;
+    // the benchmarks run from bench/; the ProbCut fits go with their evaluator
+    private static final String WEIGHTS_FILE = "../data/pattern.weights";
+    private static final String PROBCUT_FILE = "../data/probcut.txt";
+    private static final String HEURISTIC_PROBCUT_FILE = "../data/probcut-heuristic.txt";
+
+    @Param({ "opening", "midgame", "endgame" })
+    public String phase;
+
+    @Param({ "4", "6", "8" })
+    public int depth;
+
+    @Param({ "alphabeta", "pvs", "aspiration", "probcut" })
+    public String search;
+
+    @Param({ "pattern", "heuristic" })
+    public String eval;
+
+    private OthelloAgent[] agents;
+    private Node[] roots;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+        extends Object
+    {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            this.nodes = 0L;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        BenchmarkPositions positions = BenchmarkPositions.load(this.phase);
+        this.agents = new OthelloAgent[POSITIONS];
+        this.roots = new Node[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            SearchConfig config = new SearchConfig()
+                    .setFixedDepth(this.depth)
+                    .setTTSizeMB(TT_SIZE_MB)
+                    .setEndgameEmpties(0)
+                    .setPvsEnabled(!"alphabeta".equals(this.search))
+                    .setAspirationWindow("aspiration".equals(this.search) ? ASPIRATION_WINDOW : 0.0)
+                    .setProbCutEnabled("probcut".equals(this.search))
+                    .setProbCutFile("heuristic".equals(this.eval) ? HEURISTIC_PROBCUT_FILE : PROBCUT_FILE)
+                    .setEvaluator(this.eval)
+                    .setEvalWeightsFile(WEIGHTS_FILE)
+                    .setLogEnabled(false);
+            // the search is always from the agent's point of view, so the agent plays
+            // the side to move
+            this.agents[i] = new OthelloAgent(positions.getPlayerToMove(i), Long.MAX_VALUE, config);
+            this.roots[i] = this.agents[i].makeRootNode(positions.toGameView(i));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTables()
+    {
+        for (OthelloAgent agent : this.agents) {
+            agent.getTranspositionTable().clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (OthelloAgent agent : this.agents) {
+            agent.shutdownHelpers();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public void treeSearch(Counters counters, Blackhole bh)
+    {
+        for (int i = 0; i < POSITIONS; i++) {
+            bh.consume(this.agents[i].treeSearch(this.roots[i]));
+            counters.nodes += this.agents[i].getNodesSearched();
+        }
+    }
+
+}
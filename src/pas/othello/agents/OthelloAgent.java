@@ -1,9 +1,19 @@
 package src.pas.othello.agents;
 
 // SYSTEM IMPORTS
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 // JAVA PROJECT IMPORTS
 import edu.bu.pas.othello.agents.TimedTreeSearchAgent;
@@ -13,17 +23,27 @@ import edu.bu.pas.othello.game.PlayerType;
 import edu.bu.pas.othello.traversal.Node;
 import edu.bu.pas.othello.utils.Coordinate;
 
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.book.OpeningBook;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.corpus.PositionCorpus;
+import src.pas.othello.corpus.PositionWriter;
+import src.pas.othello.heuristics.Evaluator;
+import src.pas.othello.heuristics.HeuristicEvaluator;
+import src.pas.othello.heuristics.HeuristicWeights;
+import src.pas.othello.heuristics.PatternEvaluator;
+import src.pas.othello.search.EndgameSolver;
+import src.pas.othello.search.PositionStore;
+import src.pas.othello.search.ProbCut;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.SearchStats;
+import src.pas.othello.search.TimeManager;
+import src.pas.othello.search.Searcher;
+import src.pas.othello.search.TranspositionTable;
+
 public class OthelloAgent
         extends TimedTreeSearchAgent {
 
-    // Transposition table for memoization
-    // It allows me to check if there is already computed version
-    // The reason of using the concurrent hashmap is to make it thread safe
-    // Allow the multiple threads to access without making any issues.
-    // I just implemented this becaue just in case if I have to access the table
-    // multiple times concurrently.
-    private final java.util.Map<String, Double> transpositionTable = new java.util.concurrent.ConcurrentHashMap<>();
-
     public static class OthelloNode
             extends Node {
         public OthelloNode(final PlayerType maxPlayerType, // who is MAX (me)
@@ -82,82 +102,244 @@ public class OthelloAgent
             }
         }
 
+        // Same win/loss/tie utility, but for the search bitboards
+        public static double getTerminalUtility(long maxDiscs, long minDiscs) {
+            int maxScore = BitBoard.popCount(maxDiscs);
+            int minScore = BitBoard.popCount(minDiscs);
+            if (maxScore > minScore) {
+                return 1.0;
+            } else if (maxScore < minScore) {
+                return -1.0;
+            } else {
+                return 0.0;
+            }
+        }
+
         @Override
         // Generate child nodes based on legal moves
         // If no legal moves, generate a pass node
         public List<Node> getChildren() {
             List<Node> children = new ArrayList<>();
 
-            Game.GameView view = this.getGameView();
-            PlayerType curPlayer = view.getCurrentPlayerType();
-            PlayerType oPlayer = view.getOtherPlayerType();
-
             // Legal moves from the current player.
-            java.util.Set<Coordinate> frontier = view.getFrontier(curPlayer);
+            java.util.Set<Coordinate> frontier = this.getGameView().getFrontier(this.getCurrentPlayerType());
 
             // Current player has the legal moves.
             if (!frontier.isEmpty()) {
                 // for the every move the frontier can make...
                 for (Coordinate move : frontier) {
-                    // Build a temporary mutable Game from this view
-                    Game g = new Game(view);
-                    // Play that move on the Game
-                    g.applyMove(move);
-                    // turn change
-                    g.setCurrentPlayerType(oPlayer);
-                    // recompute the frontiers for the other player
-                    g.calculateFrontiers();
-                    // Get snapshot for the child node
-                    Game.GameView childView = g.getView();
-                    // Create the child node
-                    OthelloNode childNode = new OthelloNode(
-                            this.getMaxPlayerType(),
-                            childView,
-                            // Increment the depth.
-                            this.getDepth() + 1);
-                    // Record what move led us here
-                    childNode.setLastMove(move);
-                    // Add to the list of children
-                    children.add(childNode);
+                    children.add(this.getChild(move));
                 }
+            } else {
+                // Always create a pass node when current player has no moves
+                children.add(this.getChild(null));
+            }
+            return children;
+        }
+
+        // The one child reached by this move (null for the pass), without building its
+        // siblings. Each child is a full copy of the game, about 60 KB, so the search
+        // only makes the one it plays.
+        public OthelloNode getChild(Coordinate move) {
+            Game.GameView view = this.getGameView();
+            PlayerType oPlayer = view.getOtherPlayerType();
+
+            // Build a temporary mutable Game from this view
+            Game g = new Game(view);
+            if (move != null) {
+                // Play that move on the Game
+                g.applyMove(move);
             } else {
                 // Skippping my turn and passing to the enemy.
-                // the case where the current player has NO legal moves. Pass
-                Game g = new Game(view);
                 // Increment turn number for the pass move
                 g.setTurnNumber(g.getTurnNumber() + 1);
-                // Do not apply the move and give turn to the another person.
-                g.setCurrentPlayerType(oPlayer);
-                // Recompute what that other player will be allowed to do.
-                g.calculateFrontiers();
-                // put the updated one as a child
-                Game.GameView passView = g.getView();
-                // Always create a pass node when current player has no moves
-                OthelloNode passNode = new OthelloNode(
-                        this.getMaxPlayerType(),
-                        passView,
-                        this.getDepth() + 1);
-                // No coordinate was placed because this was a pass
-                passNode.setLastMove(null);
-                children.add(passNode);
             }
-            return children;
+            // turn change
+            g.setCurrentPlayerType(oPlayer);
+            // recompute the frontiers for the other player
+            g.calculateFrontiers();
+            // Create the child node from the snapshot, one level deeper
+            OthelloNode childNode = new OthelloNode(
+                    this.getMaxPlayerType(),
+                    g.getView(),
+                    this.getDepth() + 1);
+            // Record what move led us here (null if this was a pass)
+            childNode.setLastMove(move);
+            return childNode;
         }
     }
 
     private final Random random;
+    private final SearchConfig config;
+
+    // Transposition table for memoization.
+    // It allows me to check if there is already computed version.
+    // It is allocated once with a fixed size and kept across moves, so whatever we
+    // learned on the previous turn is still there on the next one.
+    // All search threads share it (that is the whole point of Lazy SMP).
+    private final TranspositionTable transpositionTable;
+
+    // searchers[0] runs on the calling thread and decides the move,
+    // the rest are helpers that only fill the shared table
+    private final Searcher[] searchers;
+    // started on the first search that needs it, stopped when the game ends
+    private ExecutorService helperPool;
+
+    // Pondering (-Dothello.ponder=true): after our move, search on while the opponent
+    // thinks, from the position after the reply our principal variation expects.
+    // ponderResult is that search (null when none is running) and ponderOwn/ponderOpp
+    // the position it searches, with us to move.
+    private ExecutorService ponderPool;
+    private Future<Integer> ponderResult;
+    private long ponderOwn;
+    private long ponderOpp;
+
+    // exact solver for the last few empties (null when turned off)
+    private final EndgameSolver endgameSolver;
+    // solved positions on disk, shared with other games and processes (null = none)
+    private final PositionStore positionStore;
+    // plans the time of each move over the game (null when turned off)
+    private final TimeManager timeManager;
+
+    // book moves for the first few plies (null when there is no book)
+    private final OpeningBook openingBook;
+
+    // counters of the last move, merged over all search threads
+    private final SearchStats lastStats = new SearchStats();
+    // JSON lines stats log, opened on the first move that writes to it
+    private PrintWriter statsLog;
+    // the stats log couldn't be opened: this agent stops trying (the config may be
+    // shared with other agents, so it stays as it is)
+    private boolean statsLogFailed;
+    // position corpus the played positions go to, made on the first move that uses it
+    private PositionWriter corpusWriter;
+    // recording failed: this agent stops recording, the (maybe shared) config stays
+    private boolean corpusFailed;
 
     public OthelloAgent(final PlayerType myPlayerType,
             final long maxMoveThinkingTimeInMS) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, SearchConfig.fromSystemProperties());
+    }
+
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS,
+            final SearchConfig config) {
         super(myPlayerType,
                 maxMoveThinkingTimeInMS);
         this.random = new Random();
+        this.config = config;
+        this.transpositionTable = new TranspositionTable(config.getTTSizeMB());
+
+        ProbCut probCut = config.isProbCutEnabled() ? loadProbCut(config.getProbCutFile()) : null;
+        Evaluator evaluator = createEvaluator(config);
+        int numThreads = Math.max(1, config.getNumThreads());
+        this.searchers = new Searcher[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            this.searchers[i] = new Searcher(this.transpositionTable, config,
+                    myPlayerType == PlayerType.BLACK, i, probCut, evaluator);
+        }
+        this.endgameSolver = config.getEndgameEmpties() > 0
+                ? new EndgameSolver(config.getEndgameTTSizeMB(), config.isStabilityEnabled())
+                : null;
+        this.positionStore = this.endgameSolver != null ? openStore(config) : null;
+        if (this.positionStore != null) {
+            this.endgameSolver.setPositionStore(this.positionStore);
+        }
+        this.timeManager = config.isTimeManaged()
+                ? new TimeManager(config.getTimeTarget(), config.getEndgameEmpties())
+                : null;
+        this.searchers[0].setTimeManager(this.timeManager);
+        this.openingBook = openBook(config.getBookFile());
+    }
+
+    private static OpeningBook openBook(String path) {
+        if (path == null || path.isEmpty() || !new File(path).isFile()) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(path);
+        } catch (IOException | IllegalArgumentException e) {
+            // a broken book only costs us the book moves
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static PositionStore openStore(SearchConfig config) {
+        String path = config.getStoreFile();
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        try {
+            return new PositionStore(path, config.getStoreSizeMB(), config.getStoreEmpties());
+        } catch (IOException | IllegalArgumentException e) {
+            // without the store every position is solved from scratch
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static ProbCut loadProbCut(String path) {
+        if (path == null || path.isEmpty() || !new File(path).isFile()) {
+            return null;
+        }
+        try {
+            return ProbCut.load(path);
+        } catch (IOException | IllegalArgumentException e) {
+            // without the fits we just search everything
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // The evaluator named in the config. Pattern weights that are missing (an agent
+    // started from another directory) or can't be read leave us with the hand-weighted
+    // heuristic.
+    public static Evaluator createEvaluator(SearchConfig config) {
+        String name = config.getEvaluator();
+        String heuristicPath = config.getHeuristicWeightsFile();
+        // the default file is the one Heuristics already loaded
+        HeuristicEvaluator heuristic = HeuristicWeights.DEFAULT_PATH.equals(heuristicPath)
+                ? HeuristicEvaluator.withStability(config.getEvalStabilityWeight())
+                : HeuristicEvaluator.withWeights(HeuristicWeights.loadOrDefaults(heuristicPath),
+                        config.getEvalStabilityWeight());
+        if ("heuristic".equals(name)) {
+            return heuristic;
+        } else if (!"pattern".equals(name)) {
+            throw new IllegalArgumentException("unknown evaluator: " + name);
+        }
+        String path = config.getEvalWeightsFile();
+        if (path == null || path.isEmpty() || !new File(path).isFile()) {
+            return heuristic;
+        }
+        try {
+            return PatternEvaluator.load(path);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return heuristic;
+        }
     }
 
     public final Random getRandom() {
         return this.random;
     }
 
+    public final SearchConfig getConfig() {
+        return this.config;
+    }
+
+    public final TranspositionTable getTranspositionTable() {
+        return this.transpositionTable;
+    }
+
+    public final OpeningBook getOpeningBook() {
+        return this.openingBook;
+    }
+
+    public final PositionStore getPositionStore() {
+        return this.positionStore;
+    }
+
     @Override
     public OthelloNode makeRootNode(final GameView game) {
         // Starting with the depth of 0
@@ -166,154 +348,403 @@ public class OthelloAgent
 
     @Override
     public Node treeSearch(Node n) {
-        // This is for the memoization table
-        transpositionTable.clear();
-        // Using minimax with alpha-beta pruning
-        // This is the maxDepth
-        int maxDepth = calculateSearchDepth(n);
-        // Kick off the minimax search
-        MinimaxResult result = minimax(n, maxDepth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true);
-        return result.bestNode;
-    }
+        long startNanos = System.nanoTime();
+
+        // The whole search runs on two bitboards: the side to move and the other side.
+        GameView view = n.getGameView();
+        long own = BitBoard.fromView(view, view.getCurrentPlayerType());
+        long opp = BitBoard.fromView(view, view.getOtherPlayerType());
+        long key = Zobrist.hash(own, opp, view.getCurrentPlayerType() == PlayerType.BLACK);
+
+        // A fixed depth (for benchmarks) turns the clock off.
+        // Otherwise keep some of the budget back for the framework and for building the
+        // child Node once we are done.
+        boolean timed = this.config.getFixedDepth() <= 0;
+        int maxDepth = timed ? Searcher.MAX_PLY - 1 : Math.min(Searcher.MAX_PLY - 1, this.config.getFixedDepth());
+        long budgetNanos = timed
+                ? Math.max(1L, this.getMaxThinkingTimeInMS() - this.config.getMoveOverheadMS()) * 1000000L
+                : Long.MAX_VALUE / 4;
+        boolean managed = timed && this.timeManager != null;
+        int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp);
+
+        // A forced move (the only legal one, or a pass) needs no search; its whole plan
+        // goes to the bank.
+        long legalMoves = BitBoard.legalMoves(own, opp);
+        if (managed && Long.bitCount(legalMoves) <= 1) {
+            stopPonder();
+            int forcedMove = legalMoves != 0L ? Long.numberOfTrailingZeros(legalMoves) : -1;
+            this.timeManager.startMove(budgetNanos, false);
+            this.lastStats.reset();
+            this.lastStats.setPlannedNanos(this.timeManager.getPlannedNanos());
+            this.lastStats.setTimeNanos(System.nanoTime() - startNanos);
+            this.timeManager.endMove(System.nanoTime() - startNanos);
+            recordPosition(view, forcedMove, 0, 0.0, 0);
+            if (this.config.isLogEnabled()) {
+                System.out.println("[INFO] OthelloAgent.treeSearch: player=" + this.getMyPlayerType()
+                        + " move=" + (forcedMove >= 0 ? BitBoard.toCoordinate(forcedMove) : "pass")
+                        + " forced"
+                        + " bankMS=" + this.timeManager.getBankNanos() / 1000000L);
+            }
+            return ((OthelloNode) n).getChild(forcedMove >= 0 ? BitBoard.toCoordinate(forcedMove) : null);
+        }
 
-    // Calculating how deep we weant to go depends on the game phase.
-    private int calculateSearchDepth(Node node) {
-        GameView view = node.getGameView();
-        PlayerType[][] cells = view.getCells();
+        // If we guessed the opponent's reply, the search of this position has been running
+        // since our last move and just carries on against our clock. Otherwise drop it
+        // and start a new move in the table.
+        boolean pondered = this.ponderResult != null && own == this.ponderOwn && opp == this.ponderOpp;
+        if (!pondered) {
+            stopPonder();
+            startTableMove();
+        }
 
-        // Count total pieces on board
-        int pieceCount = 0;
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                if (cells[i][j] != null) {
-                    pieceCount++;
-                }
+        // Close to the end just solve the game. The solver gets half the budget, or with
+        // the time manager what it planned (more once time is banked); if it can't
+        // finish in time the normal search gets what is left.
+        int bestMove = EndgameSolver.NOT_SOLVED;
+        boolean solverMove = !pondered && this.endgameSolver != null && empties <= this.config.getEndgameEmpties();
+        if (managed) {
+            this.timeManager.startMove(budgetNanos, solverMove);
+        }
+        if (solverMove) {
+            long solverNanos = managed ? this.timeManager.getSolverNanos() : budgetNanos / 2;
+            long deadlineNanos = timed ? startNanos + solverNanos : Long.MAX_VALUE;
+            bestMove = this.endgameSolver.solve(own, opp,
+                    view.getCurrentPlayerType() == PlayerType.BLACK, deadlineNanos);
+            if (this.config.isLogEnabled() && bestMove >= 0) {
+                System.out.println("[INFO] OthelloAgent.treeSearch: player=" + this.getMyPlayerType()
+                        + " move=" + BitBoard.toCoordinate(bestMove)
+                        + " solved empties=" + empties
+                        + " discDiff=" + this.endgameSolver.getBestScore()
+                        + " nodes=" + this.endgameSolver.getNodesSearched()
+                        + timeLog(startNanos));
             }
         }
 
-        // Adaptive depth based on game phase
-        if (pieceCount <= 10) {
-            // During the early game, we search shallower but wider
-            return 3;
-        } else if (pieceCount <= 40) {
-            // During the middle of the game, we search more in depth
-            return 4;
+        double score = 0.0;
+        boolean solved = bestMove != EndgameSolver.NOT_SOLVED;
+        if (solved) {
+            score = this.endgameSolver.getBestScore();
+            this.lastStats.recordSolve(this.endgameSolver.getNodesSearched());
+        }
+
+        // Kick off the minimax search
+        if (!solved) {
+            if (pondered) {
+                bestMove = finishPonder(startNanos, budgetNanos);
+            } else {
+                long remainingNanos = timed ? Math.max(1L, budgetNanos - (System.nanoTime() - startNanos)) : budgetNanos;
+                bestMove = runSearch(own, opp, key, maxDepth, System.nanoTime(), remainingNanos, timed, false);
+            }
+            score = this.searchers[0].getBestScore();
+            this.lastStats.copyFrom(this.searchers[0].getStats());
+            for (int i = 1; i < this.searchers.length; i++) {
+                this.lastStats.add(this.searchers[i].getStats());
+            }
+            this.lastStats.setPondered(pondered);
+
+            if (this.config.isLogEnabled() && bestMove >= 0) {
+                System.out.println("[INFO] OthelloAgent.treeSearch: player=" + this.getMyPlayerType()
+                        + " move=" + BitBoard.toCoordinate(bestMove)
+                        + " depth=" + this.lastStats.getCompletedDepth()
+                        + " score=" + score
+                        + " nodes=" + this.lastStats.getNodes()
+                        + " evals=" + this.lastStats.getHeuristicCalls()
+                        + " threads=" + this.searchers.length
+                        + (pondered ? " pondered" : "")
+                        + timeLog(startNanos));
+            }
+        }
+        this.lastStats.setTimeNanos(System.nanoTime() - startNanos);
+        if (managed) {
+            this.lastStats.setPlannedNanos(this.timeManager.getPlannedNanos());
+            this.timeManager.endMove(System.nanoTime() - startNanos);
+        }
+        if (this.config.isStatsEnabled()) {
+            if (this.config.isLogEnabled()) {
+                System.out.println("[INFO] OthelloAgent.treeSearch: stats " + this.lastStats.toLogString());
+            }
+            if (this.config.getStatsFile() != null && !this.statsLogFailed) {
+                writeStatsLine(view, empties, bestMove, score);
+            }
+        }
+        if (solved) {
+            recordPosition(view, bestMove, empties, score, PositionCorpus.HAS_SCORE | PositionCorpus.SOLVED);
         } else {
-            // At last, find the one that can demolish the opponent.
-            return 6;
+            recordPosition(view, bestMove, this.lastStats.getCompletedDepth(), score, PositionCorpus.HAS_SCORE);
         }
-    }
 
-    // Helper class to return both utility and best node from minimax
-    private static class MinimaxResult {
-        public final double utility;
-        public final Node bestNode;
+        if (this.config.isPonderEnabled() && !solved && bestMove >= 0) {
+            startPonder(own, opp, bestMove, maxDepth, timed);
+        }
+
+        // Only now go back to the framework types and hand back the child of that move
+        return ((OthelloNode) n).getChild(bestMove >= 0 ? BitBoard.toCoordinate(bestMove) : null);
+    }
 
-        public MinimaxResult(double utility, Node bestNode) {
-            this.utility = utility;
-            this.bestNode = bestNode;
+    // the end of the per-move log line: time used so far, and what was planned
+    private String timeLog(long startNanos) {
+        String used = " timeMS=" + (System.nanoTime() - startNanos) / 1000000L;
+        if (this.timeManager == null || this.config.getFixedDepth() > 0) {
+            return used;
         }
+        return used + " planMS=" + this.timeManager.getPlannedNanos() / 1000000L
+                + " bankMS=" + this.timeManager.getBankNanos() / 1000000L;
     }
 
-    // generating the memoization key using the Stringbuilder
-    // Saving keys in form of "boardState|depth|maximizingPlayer"
-    private String getBoardHash(GameView view) {
-        PlayerType[][] cells = view.getCells();
-        // much more efficient way to build the string
-        StringBuilder sb = new StringBuilder();
-        sb.append(view.getCurrentPlayerType().toString()).append("|");
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                // if the cell is empty,
-                if (cells[i][j] == null) {
-                    sb.append("_");
-                } else {
-                    sb.append(cells[i][j] == PlayerType.BLACK ? "B" : "W");
-                }
+    // Lazy SMP: the helpers search the same root at the same time and share what they
+    // find through the table, which makes the main searcher's tree cheaper.
+    // Only the main searcher's answer is used, and with one thread nothing else runs.
+    // With ponder set the main searcher ponders instead, see startPonder().
+    private int runSearch(long own, long opp, long key, int maxDepth, long startNanos, long budgetNanos, boolean timed,
+            boolean ponder) {
+        if (this.searchers.length > 1 && this.helperPool == null) {
+            // daemon threads so a finished game never keeps the JVM alive
+            this.helperPool = Executors.newFixedThreadPool(this.searchers.length - 1, r -> {
+                Thread t = new Thread(r, "othello-search-helper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < this.searchers.length; i++) {
+            final Searcher helper = this.searchers[i];
+            helper.clearStopRequest();
+            helpers.add(this.helperPool.submit(() -> helper.search(own, opp, key,
+                    Searcher.MAX_PLY - 1, startNanos, budgetNanos, false)));
+        }
+
+        int bestMove = ponder
+                ? this.searchers[0].ponder(own, opp, key, maxDepth, timed)
+                : this.searchers[0].search(own, opp, key, maxDepth, startNanos, budgetNanos, timed);
+
+        // stop the helpers and wait, their buffers get reused on the next move
+        for (int i = 1; i < this.searchers.length; i++) {
+            this.searchers[i].requestStop();
+        }
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
             }
         }
-        return sb.toString();
+        return bestMove;
     }
 
-    // Minimax with alpha-beta pruning and memoization
-    private MinimaxResult minimax(Node node, int depth, double alpha, double beta, boolean maximizingPlayer) {
-        // Generate memoization key
-        String boardHash = getBoardHash(node.getGameView());
-        String memoKey = boardHash + "|" + depth + "|" + maximizingPlayer;
-        // Check transposition table first if it contains the value or not
-        if (transpositionTable.containsKey(memoKey)) {
-            double cachedValue = transpositionTable.get(memoKey);
-            // if there is a key, return the cached value.
-            return new MinimaxResult(cachedValue, node);
+    // Every move (or ponder) starts a new generation in the table, so entries of earlier
+    // moves give way to its own. With -Dothello.tt.keep=false the table starts empty.
+    private void startTableMove() {
+        if (!this.config.isTTKeep()) {
+            this.transpositionTable.clear();
+        } else if (this.config.isTTAgeing()) {
+            this.transpositionTable.newGeneration();
         }
+    }
 
-        // Base case: terminal node or maximum depth reached
-        if (node.isTerminal() || depth == 0) {
-            double utility;
-            if (node.isTerminal()) {
-                utility = node.getTerminalUtility();
-            } else {
-                // Use heuristic evaluation
-                utility = src.pas.othello.heuristics.Heuristics.calculateHeuristicValue(node);
+    // Search on from the position after our move and the reply our principal variation
+    // expects, on a background thread while the opponent thinks. treeSearch() either
+    // carries on with it or drops it once the real position comes in. Nothing is
+    // pondered when we would have to pass there, or when that position is for the
+    // endgame solver, which starts from scratch every move anyway.
+    private void startPonder(long own, long opp, int move, int maxDepth, boolean timed) {
+        long flipped = BitBoard.flips(own, opp, move);
+        long mine = own | flipped | (1L << move);
+        long theirs = opp & ~flipped;
+        long replies = BitBoard.legalMoves(theirs, mine);
+        // if the opponent has to pass we are to move right here
+        if (replies != 0L) {
+            int reply = this.searchers[0].getPvMove(1);
+            if (reply < 0 || (replies & (1L << reply)) == 0L) {
+                return;
             }
-            // Store the key value pair in transposition table
-            transpositionTable.put(memoKey, utility);
-            return new MinimaxResult(utility, node);
-        }
-
-        // Recursive case: explore children
-        List<Node> children = node.getChildren();
-
-        // If no children ( just in case juuuuust in case)
-        if (children.isEmpty()) {
-            double utility = node.isTerminal() ? node.getTerminalUtility()
-                    : src.pas.othello.heuristics.Heuristics.calculateHeuristicValue(node);
-            return new MinimaxResult(utility, node);
-        }
-        // Order children for better alpha-beta pruning
-        children = src.pas.othello.ordering.MoveOrderer.orderChildren(children);
-        Node bestChild = children.get(0);
-        // if we are maximizing the player,
-        if (maximizingPlayer) {
-            double maxEval = Double.NEGATIVE_INFINITY;
-            // for the every child node ...
-            for (Node child : children) {
-                MinimaxResult eval = minimax(child, depth - 1, alpha, beta, false);
-                // evaluate the utility and choose the best one.
-                if (eval.utility > maxEval) {
-                    maxEval = eval.utility;
-                    bestChild = child;
-                }
-                // alpha is the best value
-                alpha = Math.max(alpha, eval.utility);
-                if (beta <= alpha) {
-                    break; // Beta is getting pruned
-                }
+            flipped = BitBoard.flips(theirs, mine, reply);
+            theirs |= flipped | (1L << reply);
+            mine &= ~flipped;
+        }
+        int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(mine | theirs);
+        if (BitBoard.legalMoves(mine, theirs) == 0L
+                || (this.endgameSolver != null && empties <= this.config.getEndgameEmpties())) {
+            return;
+        }
+
+        if (this.ponderPool == null) {
+            this.ponderPool = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "othello-ponder");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        startTableMove();
+        final long ponderOwn = mine;
+        final long ponderOpp = theirs;
+        final long key = Zobrist.hash(ponderOwn, ponderOpp, this.getMyPlayerType() == PlayerType.BLACK);
+        this.ponderOwn = ponderOwn;
+        this.ponderOpp = ponderOpp;
+        this.searchers[0].preparePonder();
+        this.ponderResult = this.ponderPool.submit(() -> runSearch(ponderOwn, ponderOpp, key, maxDepth,
+                System.nanoTime(), Long.MAX_VALUE / 4, timed, true));
+    }
+
+    // The position we pondered came up: our clock starts now, the search keeps what it
+    // has done so far and we wait for its move.
+    private int finishPonder(long startNanos, long budgetNanos) {
+        this.searchers[0].ponderHit(startNanos, budgetNanos);
+        return awaitPonder();
+    }
+
+    // Drop the ponder search, if there is one, and wait until it lets go of the searchers.
+    private void stopPonder() {
+        if (this.ponderResult != null) {
+            this.searchers[0].requestStop();
+            awaitPonder();
+            this.searchers[0].clearStopRequest();
+        }
+    }
+
+    private int awaitPonder() {
+        try {
+            return this.ponderResult.get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return TranspositionTable.NO_MOVE;
+        } finally {
+            this.ponderResult = null;
+        }
+    }
+
+    // One JSON object per line: who moved, where, and the stats of that move.
+    // Both agents of a game can share a file, the "player" field tells them apart.
+    private void writeStatsLine(GameView view, int empties, int bestMove, double score) {
+        if (this.statsLog == null) {
+            try {
+                this.statsLog = new PrintWriter(new OutputStreamWriter(
+                        new FileOutputStream(this.config.getStatsFile(), true), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace();
+                // don't try again on every move
+                this.statsLogFailed = true;
+                return;
             }
-            // Caching result in transposition table
-            transpositionTable.put(memoKey, maxEval);
-            return new MinimaxResult(maxEval, bestChild);
+        }
+        StringBuilder line = new StringBuilder();
+        line.append("{\"player\":\"").append(this.getMyPlayerType()).append('"')
+                .append(",\"turn\":").append(view.getTurnNumber())
+                .append(",\"empties\":").append(empties)
+                .append(",\"move\":");
+        if (bestMove >= 0) {
+            line.append('[').append(bestMove & 7).append(',').append(bestMove >>> 3).append(']');
         } else {
-            // minimizing the player to be in the POSITIVE_INFINITY
-            double minEval = Double.POSITIVE_INFINITY;
-            // Look out for the every child.
-            for (Node child : children) {
-                MinimaxResult eval = minimax(child, depth - 1, alpha, beta, true);
-                if (eval.utility < minEval) {
-                    minEval = eval.utility;
-                    bestChild = child;
-                }
+            line.append("null");
+        }
+        line.append(",\"score\":").append(Double.isFinite(score) ? Double.toString(score) : "null")
+                .append(',').append(this.lastStats.toJson())
+                .append('}');
+        this.statsLog.println(line);
+        // one flush per move, so a crashed game still leaves a readable log
+        this.statsLog.flush();
+    }
 
-                beta = Math.min(beta, eval.utility);
-                if (beta <= alpha) {
-                    break; // Alpha cutoff
-                }
+    // Adds the position we are to move in, with the move we play and its score, to the
+    // corpus (-Dothello.corpus). The game's result is filled in at the end of the game.
+    private void recordPosition(GameView view, int move, int depth, double score, int flags) {
+        String path = this.config.getCorpusFile();
+        if (path == null || path.isEmpty() || this.corpusFailed) {
+            return;
+        }
+        try {
+            if (this.corpusWriter == null) {
+                this.corpusWriter = new PositionWriter(path, true);
             }
+            if (!this.corpusWriter.isGameOpen()) {
+                this.corpusWriter.beginGame();
+            }
+            this.corpusWriter.add(PositionCorpus.black(view), PositionCorpus.white(view),
+                    PositionCorpus.isBlackToMove(view), move, depth, score, flags);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            // don't try again on every move
+            this.corpusFailed = true;
+            this.corpusWriter = null;
+        }
+    }
+
+    // the game is over: its positions go to the corpus with the result
+    private void closeCorpusGame(GameView game) {
+        if (this.corpusWriter == null) {
+            return;
+        }
+        try {
+            int blackMinusWhite = BitBoard.popCount(PositionCorpus.black(game))
+                    - BitBoard.popCount(PositionCorpus.white(game));
+            this.corpusWriter.endGame(blackMinusWhite);
+            this.corpusWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeStatsLog() {
+        if (this.statsLog != null) {
+            this.statsLog.close();
+            this.statsLog = null;
+        }
+    }
+
+    // stop the helper threads (a later search starts them again)
+    public void shutdownHelpers() {
+        if (this.helperPool != null) {
+            this.helperPool.shutdown();
+            this.helperPool = null;
+        }
+    }
+
+    // number of positions visited by the last search, over all threads
+    public long getNodesSearched() {
+        long nodes = 0L;
+        for (Searcher searcher : this.searchers) {
+            nodes += searcher.getNodesSearched();
+        }
+        return nodes;
+    }
 
-            // Store result in transposition table
-            transpositionTable.put(memoKey, minEval);
-            return new MinimaxResult(minEval, bestChild);
+    // number of static evaluations made by the last search, over all threads
+    public long getHeuristicCalls() {
+        long calls = 0L;
+        for (Searcher searcher : this.searchers) {
+            calls += searcher.getHeuristicCalls();
         }
+        return calls;
+    }
+
+    // beta cutoffs in the last search, over all threads
+    public long getCutoffs() {
+        long cutoffs = 0L;
+        for (Searcher searcher : this.searchers) {
+            cutoffs += searcher.getCutoffs();
+        }
+        return cutoffs;
+    }
+
+    // how many of those cutoffs came from the first move tried
+    public long getFirstMoveCutoffs() {
+        long cutoffs = 0L;
+        for (Searcher searcher : this.searchers) {
+            cutoffs += searcher.getFirstMoveCutoffs();
+        }
+        return cutoffs;
+    }
+
+    // deepest iteration the main searcher finished on the last move
+    public int getCompletedDepth() {
+        return this.searchers[0].getCompletedDepth();
+    }
+
+    // Everything counted on the last move, merged over the search threads (or just the
+    // solver's node count if the move was solved). Reused, so copy it to keep it.
+    // The detailed counters are only filled in with -Dothello.stats=true.
+    public SearchStats getLastSearchStats() {
+        return this.lastStats;
     }
 
     @Override
@@ -322,6 +753,24 @@ public class OthelloAgent
         // you may want to use this method to add to data structures and whatnot
         // that your algorithm finds useful
 
+        // play from the book while we are in it, no search needed
+        if (this.openingBook != null) {
+            int bookMove = this.openingBook.getMove(BitBoard.fromView(game, PlayerType.BLACK),
+                    BitBoard.fromView(game, PlayerType.WHITE),
+                    game.getCurrentPlayerType() == PlayerType.BLACK);
+            if (bookMove != OpeningBook.NO_MOVE) {
+                // nothing was searched for this move
+                stopPonder();
+                this.lastStats.reset();
+                if (this.config.isLogEnabled()) {
+                    System.out.println("[INFO] OthelloAgent.chooseCoordinateToPlaceTile: player=" + this.getMyPlayerType()
+                            + " move=" + BitBoard.toCoordinate(bookMove) + " book");
+                }
+                recordPosition(game, bookMove, 0, 0.0, 0);
+                return BitBoard.toCoordinate(bookMove);
+            }
+        }
+
         // make the root node
         Node node = this.makeRootNode(game);
         // call tree search
@@ -332,5 +781,35 @@ public class OthelloAgent
 
     @Override
     public void afterGameEnds(final GameView game) {
+        this.stopPonder();
+        if (this.timeManager != null) {
+            this.timeManager.reset();
+        }
+        if (this.ponderPool != null) {
+            this.ponderPool.shutdown();
+            this.ponderPool = null;
+        }
+        this.shutdownHelpers();
+        this.closeStatsLog();
+        this.closeCorpusGame(game);
+        this.flushStore();
+    }
+
+    // what the solver solved this game goes to the store file
+    private void flushStore() {
+        if (this.positionStore == null) {
+            return;
+        }
+        try {
+            int queued = this.positionStore.getPendingCount();
+            int added = this.positionStore.flush();
+            if (this.config.isLogEnabled() && queued > 0) {
+                System.out.println("[INFO] OthelloAgent.afterGameEnds: store=" + this.config.getStoreFile()
+                        + " queued=" + queued + " added=" + added
+                        + " entries=" + this.positionStore.getEntryCount());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,78 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.search.SearchConfig;
+
+
+// Memory cost of one treeSearch call: bytes allocated by the searching thread and
+// peak heap use, on midgame positions at a fixed depth (one thread, so every byte
+// is allocated on the calling thread).
+// Usage: java -cp "lib/*:." src.pas.othello.bench.AllocationBench [depth] [positions]
+public class AllocationBench
+    extends Object
+{
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<GameView> positions = BenchPositions.generate(count, 30, 12345L);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // one agent per color for every search, so tables and buffers are allocated
+        // once up front like in a game; the first pass only warms the JIT up
+        SearchConfig config = new SearchConfig()
+                .setFixedDepth(depth)
+                .setLogEnabled(false);
+        OthelloAgent black = new OthelloAgent(PlayerType.BLACK, Long.MAX_VALUE, config);
+        OthelloAgent white = new OthelloAgent(PlayerType.WHITE, Long.MAX_VALUE, config);
+        runAll(black, white, positions);
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long nodes = runAll(black, white, positions);
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        System.out.println("depth,positions,nodes,bytesPerSearch,bytesPerKNode,peakHeapMB");
+        System.out.printf("%d,%d,%d,%d,%.1f,%.1f%n", depth, positions.size(), nodes, bytes / positions.size(),
+                bytes / (nodes / 1000.0), peak / (1024.0 * 1024.0));
+    }
+
+    // total nodes for searching every position once
+    private static long runAll(OthelloAgent black, OthelloAgent white, List<GameView> positions)
+    {
+        long nodes = 0L;
+        for (GameView view : positions) {
+            OthelloAgent agent = view.getCurrentPlayerType() == PlayerType.BLACK ? black : white;
+            // every pass searches the same positions, so start each from an empty table
+            agent.getTranspositionTable().clear();
+            agent.treeSearch(agent.makeRootNode(view));
+            nodes += agent.getNodesSearched();
+        }
+        return nodes;
+    }
+
+}
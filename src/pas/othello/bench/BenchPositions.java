@@ -0,0 +1,65 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.board.BitBoard;
+
+
+// Reproducible positions for the benchmarks: seeded random playouts from the start
+// position, stopped once they reach a given number of discs.
+public class BenchPositions
+    extends Object
+{
+
+    // black and white start the game on these squares
+    public static final long START_BLACK = (1L << BitBoard.toSquare(3, 4)) | (1L << BitBoard.toSquare(4, 3));
+    public static final long START_WHITE = (1L << BitBoard.toSquare(3, 3)) | (1L << BitBoard.toSquare(4, 4));
+
+    // count positions with "discs" discs on the board, black or white to move.
+    // Positions where the side to move has to pass are skipped.
+    public static List<GameView> generate(int count, int discs, long seed)
+    {
+        List<GameView> positions = new ArrayList<>();
+        Random rng = new Random(seed);
+        while (positions.size() < count) {
+            long black = START_BLACK;
+            long white = START_WHITE;
+            boolean blackToMove = true;
+            while (BitBoard.popCount(black | white) < discs) {
+                long own = blackToMove ? black : white;
+                long opp = blackToMove ? white : black;
+                long moves = BitBoard.legalMoves(own, opp);
+                if (moves == 0L) {
+                    if (BitBoard.legalMoves(opp, own) == 0L) {
+                        break; // game over before we got there
+                    }
+                    blackToMove = !blackToMove;
+                    continue;
+                }
+                int sq = BitBoard.randomMove(moves, rng);
+                long flipped = BitBoard.flips(own, opp, sq);
+                own |= flipped | (1L << sq);
+                opp &= ~flipped;
+                black = blackToMove ? own : opp;
+                white = blackToMove ? opp : own;
+                blackToMove = !blackToMove;
+            }
+            long own = blackToMove ? black : white;
+            long opp = blackToMove ? white : black;
+            if (BitBoard.popCount(black | white) == discs && BitBoard.legalMoves(own, opp) != 0L) {
+                positions.add(BitBoard.toGameView(black, white, blackToMove ? PlayerType.BLACK : PlayerType.WHITE));
+            }
+        }
+        return positions;
+    }
+
+}
@@ -0,0 +1,98 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.List;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.search.EndgameSolver;
+import src.pas.othello.search.PositionStore;
+import src.pas.othello.search.SearchConfig;
+
+
+// Solve time and nodes of the exact endgame solver on a fixed set of endgame positions.
+// -Dothello.stability=false turns the solver's stability cutoff off, to compare.
+// -Dothello.store=<file> gives the solver a PositionStore and writes what it solved
+// there at the end, so a second run shows what a warm store saves.
+// Usage: java -cp "lib/*:." src.pas.othello.bench.EndgameBench [positions] [empties...]
+public class EndgameBench
+    extends Object
+{
+
+    private static final long SEED = 2024L;
+    private static final int TT_SIZE_MB = 8;
+
+    private static boolean useStability;
+    // null = no store
+    private static PositionStore store;
+
+    public static void main(String[] args) throws IOException
+    {
+        SearchConfig config = SearchConfig.fromSystemProperties();
+        useStability = config.isStabilityEnabled();
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int[] emptiesList = { 10, 12, 14, 16, 18 };
+        if (args.length > 1) {
+            emptiesList = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                emptiesList[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // warm the JIT up
+        solveAll(BenchPositions.generate(count, 64 - 12, SEED), false);
+        // after the warm-up, so that doesn't fill the store
+        if (config.getStoreFile() != null && !config.getStoreFile().isEmpty()) {
+            store = new PositionStore(config.getStoreFile(), config.getStoreSizeMB(), config.getStoreEmpties());
+            System.out.println("# store=" + config.getStoreFile() + " entries=" + store.getEntryCount());
+        }
+
+        System.out.println("empties,position,move,discDiff,nodes,timeMS");
+        for (int empties : emptiesList) {
+            long[] total = solveAll(BenchPositions.generate(count, 64 - empties, SEED + empties), true);
+            double ms = total[1] / 1e6;
+            System.out.printf("# empties=%d positions=%d nodes=%d timeMS=%.1f avgMS=%.1f nodesPerSec=%.0f%n",
+                    empties, count, total[0], ms, ms / count, total[0] / (ms / 1000.0));
+        }
+        if (store != null) {
+            int queued = store.getPendingCount();
+            int added = store.flush();
+            System.out.println("# store queued=" + queued + " added=" + added + " entries=" + store.getEntryCount());
+        }
+    }
+
+    // {total nodes, total nanos}; every position gets a fresh table so they don't help
+    // each other
+    private static long[] solveAll(List<GameView> positions, boolean print)
+    {
+        long nodes = 0L;
+        long nanos = 0L;
+        for (int i = 0; i < positions.size(); i++) {
+            GameView view = positions.get(i);
+            long own = BitBoard.fromView(view, view.getCurrentPlayerType());
+            long opp = BitBoard.fromView(view, view.getOtherPlayerType());
+            EndgameSolver solver = new EndgameSolver(TT_SIZE_MB, useStability);
+            solver.setPositionStore(store);
+
+            long start = System.nanoTime();
+            int move = solver.solve(own, opp, view.getCurrentPlayerType() == PlayerType.BLACK, Long.MAX_VALUE);
+            long elapsed = System.nanoTime() - start;
+
+            nodes += solver.getNodesSearched();
+            nanos += elapsed;
+            if (print) {
+                int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp);
+                System.out.printf("%d,%d,%s,%d,%d,%.1f%n", empties, i, BitBoard.toCoordinate(move),
+                        solver.getBestScore(), solver.getNodesSearched(), elapsed / 1e6);
+            }
+        }
+        return new long[] { nodes, nanos };
+    }
+
+}
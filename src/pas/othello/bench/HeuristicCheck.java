@@ -0,0 +1,101 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.heuristics.HeuristicWeights;
+import src.pas.othello.heuristics.Heuristics;
+
+
+// Regression check for Heuristics: the scores must stay bit for bit what they were.
+// data/heuristic-check.txt holds positions with the raw bits of the score the original
+// GameView evaluator gave them, from each side as MAX. For every line:
+//   - the bitboard entry point with the hand-picked weights (HeuristicWeights.defaults())
+//     must give exactly the recorded bits,
+//   - the Node entry point must give exactly what the bitboard entry point gives with
+//     the weights Heuristics loaded (data/heuristic.weights, when it is there).
+// Prints the mismatches and exits with status 1 on any.
+// Usage: java -cp "lib/*:." src.pas.othello.bench.HeuristicCheck [file]
+public class HeuristicCheck
+    extends Object
+{
+
+    public static final String DEFAULT_PATH = "data/heuristic-check.txt";
+
+    // mismatches printed before going quiet
+    private static final int MAX_PRINTED = 20;
+
+    public static void main(String[] args) throws IOException
+    {
+        String path = args.length > 0 ? args[0] : DEFAULT_PATH;
+        HeuristicWeights defaults = HeuristicWeights.defaults();
+        int checked = 0;
+        int recordedMismatches = 0;
+        int nodeMismatches = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException("bad line in " + path + ": " + line);
+                }
+                long black = Long.parseUnsignedLong(fields[0], 16);
+                long white = Long.parseUnsignedLong(fields[1], 16);
+                boolean blackToMove = "B".equals(fields[2]);
+                boolean maxIsBlack = "B".equals(fields[3]);
+                long expected = Long.parseUnsignedLong(fields[4], 16);
+                long maxDiscs = maxIsBlack ? black : white;
+                long minDiscs = maxIsBlack ? white : black;
+                boolean maxToMove = blackToMove == maxIsBlack;
+
+                long bits = Double.doubleToRawLongBits(
+                        Heuristics.calculateHeuristicValue(maxDiscs, minDiscs, maxToMove, defaults, 0.0));
+                if (bits != expected) {
+                    if (recordedMismatches + nodeMismatches < MAX_PRINTED) {
+                        System.out.println("recorded " + line + " got " + Long.toHexString(bits)
+                                + " (" + Double.longBitsToDouble(bits) + " vs "
+                                + Double.longBitsToDouble(expected) + ")");
+                    }
+                    recordedMismatches++;
+                }
+
+                GameView view = BitBoard.toGameView(black, white, blackToMove ? PlayerType.BLACK : PlayerType.WHITE);
+                PlayerType max = maxIsBlack ? PlayerType.BLACK : PlayerType.WHITE;
+                double node = Heuristics.calculateHeuristicValue(new OthelloAgent.OthelloNode(max, view, 0));
+                double board = Heuristics.calculateHeuristicValue(maxDiscs, minDiscs, maxToMove);
+                if (Double.doubleToRawLongBits(node) != Double.doubleToRawLongBits(board)) {
+                    if (recordedMismatches + nodeMismatches < MAX_PRINTED) {
+                        System.out.println("node " + line + " node=" + node + " bitboard=" + board);
+                    }
+                    nodeMismatches++;
+                }
+                checked++;
+            }
+        }
+
+        System.out.println("# " + path + " checked=" + checked + " recordedMismatches=" + recordedMismatches
+                + " nodeMismatches=" + nodeMismatches);
+        if (checked == 0 || recordedMismatches > 0 || nodeMismatches > 0) {
+            System.out.println("# FAIL");
+            System.exit(1);
+        }
+        System.out.println("# OK");
+    }
+
+}
@@ -0,0 +1,128 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game;
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.utils.Coordinate;
+
+import src.pas.othello.board.BitBoard;
+
+
+// Regression check for the bitboard move generator against the framework's rules.
+// Plays seeded random games through the framework Game. In every position:
+//   - BitBoard.legalMoves must give exactly the squares of Game.getFrontier, for the
+//     side to move and for the other side,
+//   - after Game.applyMove, the board must be what BitBoard.flips said it would be.
+// Passes are played the way OthelloNode plays them. Prints the first differences and
+// exits with status 1 on any.
+// Usage: java -cp "lib/*:." src.pas.othello.bench.MoveGenCheck [games] [seed]
+public class MoveGenCheck
+    extends Object
+{
+
+    private static final long SEED = 1001L;
+    // differences printed before going quiet
+    private static final int MAX_PRINTED = 20;
+
+    private static int failures;
+
+    public static void main(String[] args)
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : SEED;
+        Random random = new Random(seed);
+
+        long moves = 0L;
+        long positions = 0L;
+        for (int g = 0; g < games; g++) {
+            Game game = new Game(BitBoard.toGameView(BenchPositions.START_BLACK, BenchPositions.START_WHITE,
+                    PlayerType.BLACK));
+            while (true) {
+                GameView view = game.getView();
+                PlayerType toMove = view.getCurrentPlayerType();
+                PlayerType other = view.getOtherPlayerType();
+                long own = BitBoard.fromView(view, toMove);
+                long opp = BitBoard.fromView(view, other);
+                positions++;
+
+                long legal = BitBoard.legalMoves(own, opp);
+                compare(g, "legal moves of the side to move", squares(game.getFrontier(toMove)), legal);
+                compare(g, "legal moves of the other side", squares(game.getFrontier(other)),
+                        BitBoard.legalMoves(opp, own));
+
+                List<Coordinate> frontier = sorted(game.getFrontier(toMove));
+                if (frontier.isEmpty()) {
+                    if (game.getFrontier(other).isEmpty()) {
+                        break;
+                    }
+                    // pass
+                    game.setTurnNumber(game.getTurnNumber() + 1);
+                    game.setCurrentPlayerType(other);
+                    game.calculateFrontiers();
+                    continue;
+                }
+
+                Coordinate move = frontier.get(random.nextInt(frontier.size()));
+                int sq = BitBoard.toSquare(move);
+                long flipped = BitBoard.flips(own, opp, sq);
+                game.applyMove(move);
+                game.setCurrentPlayerType(other);
+                game.calculateFrontiers();
+                moves++;
+
+                GameView after = game.getView();
+                compare(g, "discs of the mover after " + sq, BitBoard.fromView(after, toMove),
+                        own | flipped | (1L << sq));
+                compare(g, "discs of the other side after " + sq, BitBoard.fromView(after, other), opp & ~flipped);
+            }
+        }
+
+        System.out.println("# games=" + games + " seed=" + seed + " positions=" + positions + " moves=" + moves
+                + " differences=" + failures);
+        if (failures > 0) {
+            System.out.println("# FAIL");
+            System.exit(1);
+        }
+        System.out.println("# OK");
+    }
+
+    private static void compare(int game, String what, long expected, long actual)
+    {
+        if (expected == actual) {
+            return;
+        }
+        if (failures < MAX_PRINTED) {
+            System.out.printf("game %d, %s: framework %016x, bitboard %016x%n", game, what, expected, actual);
+        }
+        failures++;
+    }
+
+    private static long squares(Iterable<Coordinate> coordinates)
+    {
+        long bits = 0L;
+        for (Coordinate c : coordinates) {
+            bits |= 1L << BitBoard.toSquare(c);
+        }
+        return bits;
+    }
+
+    // in square order, so the seed alone decides the games
+    private static List<Coordinate> sorted(Iterable<Coordinate> coordinates)
+    {
+        List<Coordinate> list = new ArrayList<>();
+        for (Coordinate c : coordinates) {
+            list.add(c);
+        }
+        list.sort((a, b) -> Integer.compare(BitBoard.toSquare(a), BitBoard.toSquare(b)));
+        return list;
+    }
+
+}
@@ -0,0 +1,68 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.util.List;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.search.SearchConfig;
+
+
+// Time-to-depth speedup of the Lazy SMP search against the number of threads.
+// Usage: java -cp "lib/*:." src.pas.othello.bench.ParallelSearchBench [depth] [maxThreads]
+public class ParallelSearchBench
+    extends Object
+{
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // midgame positions, where the search spends most of its time
+        List<GameView> positions = BenchPositions.generate(20, 30, 12345L);
+
+        // warm the JIT up on the single threaded search first
+        runAll(positions, depth, 1);
+
+        double baseline = 0.0;
+        System.out.println("threads,depth,positions,nodes,timeMS,nodesPerSec,speedup");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] result = runAll(positions, depth, threads);
+            double ms = result[1] / 1e6;
+            if (threads == 1) {
+                baseline = ms;
+            }
+            System.out.printf("%d,%d,%d,%d,%.1f,%.0f,%.2f%n", threads, depth, positions.size(),
+                    result[0], ms, result[0] / (ms / 1000.0), baseline / ms);
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2; // make sure maxThreads itself gets measured
+            }
+        }
+    }
+
+    // {total nodes, total nanos} for searching every position once at a fixed depth
+    private static long[] runAll(List<GameView> positions, int depth, int threads)
+    {
+        long nodes = 0L;
+        long nanos = 0L;
+        for (GameView view : positions) {
+            SearchConfig config = new SearchConfig()
+                    .setFixedDepth(depth)
+                    .setNumThreads(threads)
+                    .setLogEnabled(false);
+            OthelloAgent agent = new OthelloAgent(view.getCurrentPlayerType(), Long.MAX_VALUE, config);
+            long start = System.nanoTime();
+            agent.treeSearch(agent.makeRootNode(view));
+            nanos += System.nanoTime() - start;
+            nodes += agent.getNodesSearched();
+            agent.shutdownHelpers();
+        }
+        return new long[] { nodes, nanos };
+    }
+
+}
@@ -0,0 +1,86 @@
+package src.pas.othello.bench;
+
+
+// SYSTEM IMPORTS
+import java.util.List;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.Searcher;
+import src.pas.othello.search.TranspositionTable;
+
+
+// Regression check for the transposition table's bounds: every position is searched to
+// a fixed depth with the table and without it (-Dothello.tt.enabled=false as the
+// reference). The table may only save work, so both must find the same best move and
+// score, and the searches with the table must visit fewer nodes in total. Prints one
+// line per position and exits with status 1 on any difference.
+// The positions are fixed: POSITIONS_PER_STAGE random ones (fixed seeds) at each disc
+// count in DISCS. No ProbCut, which depends on the order the search sees things in.
+// Usage: java -cp "lib/*:." src.pas.othello.bench.TTCheck [depth]
+public class TTCheck
+    extends Object
+{
+
+    private static final long SEED = 3003L;
+    private static final int[] DISCS = { 8, 15, 22, 29, 36, 43, 50 };
+    private static final int POSITIONS_PER_STAGE = 4;
+    private static final int TT_SIZE_MB = 16;
+
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        SearchConfig withTT = new SearchConfig().setFixedDepth(depth).setTTSizeMB(TT_SIZE_MB).setTTEnabled(true);
+        SearchConfig withoutTT = new SearchConfig().setFixedDepth(depth).setTTSizeMB(TT_SIZE_MB).setTTEnabled(false);
+
+        long nodesTT = 0L;
+        long nodesRef = 0L;
+        int failures = 0;
+        System.out.println("discs,position,squareTT,squareRef,scoreTT,scoreRef,nodesTT,nodesRef");
+        for (int discs : DISCS) {
+            List<GameView> positions = BenchPositions.generate(POSITIONS_PER_STAGE, discs, SEED + discs);
+            for (int i = 0; i < positions.size(); i++) {
+                GameView view = positions.get(i);
+                boolean blackToMove = view.getCurrentPlayerType() == PlayerType.BLACK;
+                long own = BitBoard.fromView(view, view.getCurrentPlayerType());
+                long opp = BitBoard.fromView(view, view.getOtherPlayerType());
+
+                Searcher tt = new Searcher(new TranspositionTable(TT_SIZE_MB), withTT, blackToMove, 0);
+                int moveTT = search(tt, own, opp, blackToMove, depth);
+                Searcher ref = new Searcher(new TranspositionTable(TT_SIZE_MB), withoutTT, blackToMove, 0);
+                int moveRef = search(ref, own, opp, blackToMove, depth);
+
+                nodesTT += tt.getNodesSearched();
+                nodesRef += ref.getNodesSearched();
+                boolean same = moveTT == moveRef && tt.getBestScore() == ref.getBestScore();
+                failures += same ? 0 : 1;
+                System.out.printf("%d,%d,%d,%d,%.6f,%.6f,%d,%d%s%n", discs, i, moveTT, moveRef,
+                        tt.getBestScore(), ref.getBestScore(), tt.getNodesSearched(), ref.getNodesSearched(),
+                        same ? "" : "   <- differs");
+            }
+        }
+
+        boolean fewerNodes = nodesTT < nodesRef;
+        System.out.println("# depth=" + depth + " positions=" + DISCS.length * POSITIONS_PER_STAGE
+                + " differing=" + failures + " nodesTT=" + nodesTT + " nodesRef=" + nodesRef);
+        if (failures > 0 || !fewerNodes) {
+            System.out.println("# FAIL" + (failures > 0 ? " (best moves or scores differ)" : "")
+                    + (fewerNodes ? "" : " (the table didn't save nodes)"));
+            System.exit(1);
+        }
+        System.out.println("# OK");
+    }
+
+    private static int search(Searcher searcher, long own, long opp, boolean blackToMove, int depth)
+    {
+        return searcher.search(own, opp, Zobrist.hash(own, opp, blackToMove), depth,
+                System.nanoTime(), Long.MAX_VALUE / 4, false);
+    }
+
+}
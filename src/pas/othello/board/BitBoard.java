@@ -0,0 +1,176 @@
+package src.pas.othello.board;
+
+
+// SYSTEM IMPORTS
+import java.util.Random;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game;
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.utils.Coordinate;
+
+
+// Search-internal board made of two 64 bit masks (one per player).
+// Square index is row * 8 + col, where row is the Coordinate's y and col is its x,
+// so bit 0 is the top-left cell and bit 63 is the bottom-right cell.
+// Everything in here is static and works on plain longs so the search never allocates.
+public class BitBoard
+    extends Object
+{
+
+    public static final int NUM_SQUARES = 64;
+
+    // Masks used to stop shifted bits from wrapping around to the other side of the board
+    public static final long NOT_FILE_A = 0xfefefefefefefefeL; // everything except col 0
+    public static final long NOT_FILE_H = 0x7f7f7f7f7f7f7f7fL; // everything except col 7
+
+    // The 8 directions as (shift amount, mask applied after the shift).
+    // Positive shifts move toward bit 63 (<<), negative ones toward bit 0 (>>>).
+    private static final int[] SHIFTS = { 1, -1, 8, -8, 9, -9, 7, -7 };
+    private static final long[] MASKS = {
+            NOT_FILE_A,  // east
+            NOT_FILE_H,  // west
+            -1L,         // south
+            -1L,         // north
+            NOT_FILE_A,  // south-east
+            NOT_FILE_H,  // north-west
+            NOT_FILE_H,  // south-west
+            NOT_FILE_A   // north-east
+    };
+
+    // shift every bit one step in direction d
+    public static long shift(long bits, int d)
+    {
+        int s = SHIFTS[d];
+        return (s > 0 ? bits << s : bits >>> -s) & MASKS[d];
+    }
+
+    // All the empty squares where the "own" player can legally place a disc.
+    // Directions come in pairs (one shift left, one right, same amount). For everything
+    // but the vertical pair, opponent discs on the A and H files are masked out so a
+    // line can never wrap around to the other side of the board.
+    public static long legalMoves(long own, long opp)
+    {
+        long inner = opp & NOT_FILE_A & NOT_FILE_H;
+        long moves = lineEnds(own, inner, 1)   // east / west
+                | lineEnds(own, opp, 8)        // south / north
+                | lineEnds(own, inner, 7)      // south-west / north-east
+                | lineEnds(own, inner, 9);     // south-east / north-west
+        return moves & ~(own | opp);
+    }
+
+    // squares just past a line of "line" discs that starts next to one of ours,
+    // in both directions along shift s
+    private static long lineEnds(long own, long line, int s)
+    {
+        // walk out from our discs over a line of opponent discs (at most 6 long)
+        long up = line & (own << s);
+        up |= line & (up << s);
+        up |= line & (up << s);
+        up |= line & (up << s);
+        up |= line & (up << s);
+        up |= line & (up << s);
+        long down = line & (own >>> s);
+        down |= line & (down >>> s);
+        down |= line & (down >>> s);
+        down |= line & (down >>> s);
+        down |= line & (down >>> s);
+        down |= line & (down >>> s);
+        // one more step past the end of the line
+        return (up << s) | (down >>> s);
+    }
+
+    // The opponent discs that get flipped when "own" plays on square sq.
+    // Returns 0 if the move does not flip anything (i.e. it is not legal).
+    public static long flips(long own, long opp, int sq)
+    {
+        long placed = 1L << sq;
+        long flipped = 0L;
+        for (int d = 0; d < 8; d++) {
+            long line = 0L;
+            long x = shift(placed, d);
+            while ((x & opp) != 0L) {
+                line |= x;
+                x = shift(x, d);
+            }
+            // only flip if the line of opponent discs is closed off by one of ours
+            if ((x & own) != 0L) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    // neither player can move
+    public static boolean isGameOver(long own, long opp)
+    {
+        return legalMoves(own, opp) == 0L && legalMoves(opp, own) == 0L;
+    }
+
+    public static int popCount(long bits)
+    {
+        return Long.bitCount(bits);
+    }
+
+    // A uniformly random square out of a non-empty move mask. Takes exactly one
+    // nextInt, so seeded random games stay the same.
+    public static int randomMove(long moves, Random random)
+    {
+        int k = random.nextInt(popCount(moves));
+        for (int i = 0; i < k; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    // Convert a framework cell to our square index
+    public static int toSquare(Coordinate c)
+    {
+        return c.getYCoordinate() * 8 + c.getXCoordinate();
+    }
+
+    public static int toSquare(int row, int col)
+    {
+        return row * 8 + col;
+    }
+
+    // Convert one of our square indices back into a framework coordinate
+    public static Coordinate toCoordinate(int sq)
+    {
+        return new Coordinate(sq & 7, sq >>> 3);
+    }
+
+    // Pull the discs of one player out of the framework board
+    public static long fromView(GameView view, PlayerType player)
+    {
+        PlayerType[][] cells = view.getCells();
+        long bits = 0L;
+        for (int i = 0; i < cells.length; i++) {
+            for (int j = 0; j < cells[i].length; j++) {
+                if (cells[i][j] == player) {
+                    bits |= 1L << toSquare(i, j);
+                }
+            }
+        }
+        return bits;
+    }
+
+    // The other way around: build a framework game holding this position, with the
+    // frontiers already calculated. Used by tools that need a GameView.
+    public static GameView toGameView(long black, long white, PlayerType currentPlayer)
+    {
+        Game game = new Game(new Random(), Integer.MAX_VALUE);
+        for (int sq = 0; sq < NUM_SQUARES; sq++) {
+            long bit = 1L << sq;
+            PlayerType owner = (black & bit) != 0L ? PlayerType.BLACK
+                    : (white & bit) != 0L ? PlayerType.WHITE : null;
+            game.getBoard().setCell(sq >>> 3, sq & 7, owner);
+        }
+        game.setCurrentPlayerType(currentPlayer);
+        game.calculateFrontiers();
+        return game.getView();
+    }
+
+}
@@ -0,0 +1,116 @@
+package src.pas.othello.board;
+
+
+// SYSTEM IMPORTS
+
+
+// JAVA PROJECT IMPORTS
+
+
+// Stable discs: discs that no sequence of moves can ever flip, found on bitboards.
+// A disc can only be flipped along one of the four lines through it (row, column and
+// the two diagonals), and only by a disc placed on that line. So a disc is stable if,
+// on each of its four lines, one of these holds:
+//   - the line has no empty square left (nothing can be placed on it),
+//   - the disc sits on the board's edge across that line (a wall on one side),
+//   - a neighbour on that line is a stable disc of the same color (any run the disc is
+//     in would have to include that neighbour, and it can't be flipped).
+// Starting from the full lines and the walls, the set grows one step at a time until
+// nothing changes. Corners are stable right away, and from them the runs along the
+// edges, then whatever rests on those.
+// This finds most stable discs, but not all of them (e.g. a disc whose line is full
+// except for squares that can only ever be filled in one color), so it is a lower bound.
+public class Stability
+    extends Object
+{
+
+    // squares with a wall on one side, per line direction
+    private static final long FILES_A_H = 0x8181818181818181L;   // horizontal
+    private static final long RANKS_1_8 = 0xff000000000000ffL;   // vertical
+    private static final long BORDER = 0xff818181818181ffL;      // both diagonals
+
+    // every diagonal (a1-h8 direction) and anti-diagonal of the board, 15 each,
+    // the single-square ones at the corners included
+    private static final long[] DIAGONALS = new long[15];
+    private static final long[] ANTI_DIAGONALS = new long[15];
+
+    static
+    {
+        for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+            int row = sq >>> 3;
+            int col = sq & 7;
+            DIAGONALS[row - col + 7] |= 1L << sq;
+            ANTI_DIAGONALS[row + col] |= 1L << sq;
+        }
+    }
+
+    // Stable discs of "own" (the other side's discs only matter for which lines are full).
+    public static long stableDiscs(long own, long opp)
+    {
+        if (own == 0L) {
+            return 0L;
+        }
+        long occupied = own | opp;
+        long horizontal = fullRows(occupied) | FILES_A_H;
+        long vertical = fullColumns(occupied) | RANKS_1_8;
+        long diagonal = fullLines(occupied, DIAGONALS) | BORDER;
+        long antiDiagonal = fullLines(occupied, ANTI_DIAGONALS) | BORDER;
+
+        long stable = own & horizontal & vertical & diagonal & antiDiagonal;
+        if (stable == 0L) {
+            // without a corner or a fully closed disc nothing can lean on anything
+            return 0L;
+        }
+        // Spread through neighbours. A shift that wraps around the board can only land
+        // on an edge square that already has a wall in that direction, so no masks.
+        long previous;
+        do {
+            previous = stable;
+            stable |= own
+                    & (horizontal | (stable << 1) | (stable >>> 1))
+                    & (vertical | (stable << 8) | (stable >>> 8))
+                    & (diagonal | (stable << 9) | (stable >>> 9))
+                    & (antiDiagonal | (stable << 7) | (stable >>> 7));
+        } while (stable != previous);
+        return stable;
+    }
+
+    public static int countStable(long own, long opp)
+    {
+        return BitBoard.popCount(stableDiscs(own, opp));
+    }
+
+    // every square of the rows that have no empty square
+    private static long fullRows(long occupied)
+    {
+        long full = 0L;
+        for (int shift = 0; shift < BitBoard.NUM_SQUARES; shift += 8) {
+            if (((occupied >>> shift) & 0xffL) == 0xffL) {
+                full |= 0xffL << shift;
+            }
+        }
+        return full;
+    }
+
+    // same for the columns: fold the 8 rows onto each other, then spread the bits of
+    // the full columns back over every row
+    private static long fullColumns(long occupied)
+    {
+        long columns = occupied & (occupied >>> 32);
+        columns &= columns >>> 16;
+        columns &= columns >>> 8;
+        return (columns & 0xffL) * 0x0101010101010101L;
+    }
+
+    private static long fullLines(long occupied, long[] lines)
+    {
+        long full = 0L;
+        for (long line : lines) {
+            if ((occupied & line) == line) {
+                full |= line;
+            }
+        }
+        return full;
+    }
+
+}
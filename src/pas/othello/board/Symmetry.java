@@ -0,0 +1,144 @@
+package src.pas.othello.board;
+
+
+// SYSTEM IMPORTS
+
+
+// JAVA PROJECT IMPORTS
+
+
+// The 8 symmetries of the board (rotations and reflections) on bitboards.
+// A symmetry is a number 0..7 made of three bits, applied in this order:
+//   4 = flip over the a1-h8 diagonal (row and col swap)
+//   1 = mirror left/right (col -> 7 - col)
+//   2 = flip top/bottom (row -> 7 - row)
+// so 0 is the identity, 3 is the 180 degree turn, and so on.
+// Othello's rules don't care about orientation, so a position and its 7 images have
+// the same value and the same best move (mapped through the symmetry).
+public class Symmetry
+    extends Object
+{
+
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    private static final int MIRROR = 1;
+    private static final int FLIP = 2;
+    private static final int DIAGONAL = 4;
+
+    // SQUARES[sym][sq] = where sq ends up under sym
+    private static final int[][] SQUARES = new int[COUNT][BitBoard.NUM_SQUARES];
+    // INVERSE[sym] undoes sym
+    private static final int[] INVERSE = new int[COUNT];
+
+    static
+    {
+        for (int sym = 0; sym < COUNT; sym++) {
+            for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+                SQUARES[sym][sq] = Long.numberOfTrailingZeros(transform(1L << sq, sym));
+            }
+        }
+        for (int sym = 0; sym < COUNT; sym++) {
+            for (int inv = 0; inv < COUNT; inv++) {
+                if (undoes(inv, sym)) {
+                    INVERSE[sym] = inv;
+                }
+            }
+        }
+    }
+
+    private static boolean undoes(int inv, int sym)
+    {
+        for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+            if (SQUARES[inv][SQUARES[sym][sq]] != sq) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // row r -> 7 - r
+    public static long flipVertical(long bits)
+    {
+        return Long.reverseBytes(bits);
+    }
+
+    // col c -> 7 - c
+    public static long mirrorHorizontal(long bits)
+    {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        bits = ((bits >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((bits & 0x0f0f0f0f0f0f0f0fL) << 4);
+        return bits;
+    }
+
+    // (row, col) -> (col, row), by swapping ever smaller blocks across the diagonal
+    public static long flipDiagonal(long bits)
+    {
+        long t = 0x0f0f0f0f00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        bits ^= t ^ (t >>> 7);
+        return bits;
+    }
+
+    public static long transform(long bits, int sym)
+    {
+        if ((sym & DIAGONAL) != 0) {
+            bits = flipDiagonal(bits);
+        }
+        if ((sym & MIRROR) != 0) {
+            bits = mirrorHorizontal(bits);
+        }
+        if ((sym & FLIP) != 0) {
+            bits = flipVertical(bits);
+        }
+        return bits;
+    }
+
+    public static int transformSquare(int sq, int sym)
+    {
+        return SQUARES[sym][sq];
+    }
+
+    public static int inverse(int sym)
+    {
+        return INVERSE[sym];
+    }
+
+    // The symmetry that takes (black, white) to its canonical orientation: the image
+    // with the smallest black mask, then the smallest white mask (unsigned).
+    // Every image of a position picks a symmetry that lands on the same canonical board.
+    public static int canonicalSymmetry(long black, long white)
+    {
+        int best = IDENTITY;
+        long bestBlack = black;
+        long bestWhite = white;
+        for (int sym = 1; sym < COUNT; sym++) {
+            long b = transform(black, sym);
+            int cmp = Long.compareUnsigned(b, bestBlack);
+            if (cmp > 0) {
+                continue;
+            }
+            long w = transform(white, sym);
+            if (cmp < 0 || Long.compareUnsigned(w, bestWhite) < 0) {
+                best = sym;
+                bestBlack = b;
+                bestWhite = w;
+            }
+        }
+        return best;
+    }
+
+    // Zobrist key of the canonical orientation, the same for all 8 images
+    public static long canonicalHash(long black, long white, boolean blackToMove)
+    {
+        int sym = canonicalSymmetry(black, white);
+        long b = transform(black, sym);
+        long w = transform(white, sym);
+        return blackToMove ? Zobrist.hash(b, w, true) : Zobrist.hash(w, b, false);
+    }
+
+}
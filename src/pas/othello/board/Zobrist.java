@@ -0,0 +1,71 @@
+package src.pas.othello.board;
+
+
+// SYSTEM IMPORTS
+import java.util.Random;
+
+
+// JAVA PROJECT IMPORTS
+
+
+// 64 bit Zobrist keys for the bitboards.
+// Keys are by color (not by own/opp) so they can be updated incrementally as the
+// search plays moves: XOR in the placed disc, XOR every flipped disc out of one
+// color and into the other, and toggle the side to move.
+public class Zobrist
+    extends Object
+{
+
+    private static final long SEED = 0x0de110L;
+
+    private static final long[] BLACK = new long[BitBoard.NUM_SQUARES];
+    private static final long[] WHITE = new long[BitBoard.NUM_SQUARES];
+    // BLACK[sq] ^ WHITE[sq], i.e. what a flip on sq does to the key
+    private static final long[] FLIP = new long[BitBoard.NUM_SQUARES];
+    // XORed in when black is the side to move
+    private static final long BLACK_TO_MOVE;
+
+    static
+    {
+        // fixed seed so keys (and anything stored with them) are the same every run
+        Random rng = new Random(SEED);
+        for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+            BLACK[sq] = rng.nextLong();
+            WHITE[sq] = rng.nextLong();
+            FLIP[sq] = BLACK[sq] ^ WHITE[sq];
+        }
+        BLACK_TO_MOVE = rng.nextLong();
+    }
+
+    // Full key from scratch. Only needed at the root, after that use move()/pass().
+    public static long hash(long own, long opp, boolean ownIsBlack)
+    {
+        long black = ownIsBlack ? own : opp;
+        long white = ownIsBlack ? opp : own;
+        long key = ownIsBlack ? BLACK_TO_MOVE : 0L;
+        for (long b = black; b != 0L; b &= b - 1) {
+            key ^= BLACK[Long.numberOfTrailingZeros(b)];
+        }
+        for (long b = white; b != 0L; b &= b - 1) {
+            key ^= WHITE[Long.numberOfTrailingZeros(b)];
+        }
+        return key;
+    }
+
+    // Key of the child after the mover plays sq and flips "flipped"
+    public static long move(long key, int sq, long flipped, boolean moverIsBlack)
+    {
+        key ^= moverIsBlack ? BLACK[sq] : WHITE[sq];
+        for (long b = flipped; b != 0L; b &= b - 1) {
+            key ^= FLIP[Long.numberOfTrailingZeros(b)];
+        }
+        return key ^ BLACK_TO_MOVE;
+    }
+
+    // Key of the child after the side to move passes
+    public static long pass(long key)
+    {
+        return key ^ BLACK_TO_MOVE;
+    }
+
+}
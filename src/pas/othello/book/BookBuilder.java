@@ -0,0 +1,154 @@
+package src.pas.othello.book;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.bench.BenchPositions;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.Searcher;
+import src.pas.othello.search.TranspositionTable;
+
+
+// Builds the opening book offline with fixed-depth searches, self-play style: for
+// each color, walk the first "plies" moves playing the book's own move for that color
+// and every reply for the other one. While the agent is in book it only ever plays
+// book moves, so that covers every position it can meet there, at a fraction of the
+// full tree (which grows about 6x per ply). Positions are deduplicated up to symmetry.
+//     java -cp "lib/*:." src.pas.othello.book.BookBuilder [out] [plies] [depth]
+// Defaults: data/opening.book, 10 plies, depth 12.
+public class BookBuilder
+    extends Object
+{
+
+    public static final String DEFAULT_PATH = "data/opening.book";
+
+    private static final int TT_SIZE_MB = 64;
+
+    private final int depth;
+    // the search scores are from the point of view of the side to move at the root,
+    // so each color gets its own searcher and table
+    private final Searcher blackSearcher;
+    private final Searcher whiteSearcher;
+
+    private long[] keys = new long[1024];
+    private int[] moves = new int[1024];
+    private float[] scores = new float[1024];
+    private int count;
+
+    public BookBuilder(int depth)
+    {
+        this.depth = depth;
+        SearchConfig config = new SearchConfig().setFixedDepth(depth).setTTSizeMB(TT_SIZE_MB);
+        this.blackSearcher = new Searcher(new TranspositionTable(TT_SIZE_MB), config, true, 0);
+        this.whiteSearcher = new Searcher(new TranspositionTable(TT_SIZE_MB), config, false, 0);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String path = args.length > 0 ? args[0] : DEFAULT_PATH;
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+
+        BookBuilder builder = new BookBuilder(depth);
+        builder.expand(true, plies);
+        builder.expand(false, plies);
+        OpeningBook.write(path, builder.keys, builder.moves, builder.scores, builder.count, plies, depth);
+        System.out.println("[INFO] BookBuilder: wrote " + builder.count + " positions to " + path);
+    }
+
+    // Walk the book tree of one color. At that color's turns the position is searched,
+    // stored, and only the chosen move is followed; at the opponent's turns every move
+    // is followed.
+    public void expand(boolean bookIsBlack, int plies)
+    {
+        // one level per ply, every position in its canonical orientation:
+        // {black, white, 1 if black is to move}
+        List<long[]> level = new ArrayList<>();
+        level.add(new long[] { BenchPositions.START_BLACK, BenchPositions.START_WHITE, 1L });
+        Set<Long> seen = new HashSet<>();
+        long startNanos = System.nanoTime();
+        for (int ply = 0; ply < plies; ply++) {
+            List<long[]> next = new ArrayList<>();
+            int searched = 0;
+            for (long[] position : level) {
+                long black = position[0];
+                long white = position[1];
+                boolean blackToMove = position[2] != 0L;
+                long own = blackToMove ? black : white;
+                long opp = blackToMove ? white : black;
+                long legal = BitBoard.legalMoves(own, opp);
+                // no passes this early in a real game
+                if (legal == 0L) {
+                    continue;
+                }
+
+                long follow = legal;
+                if (blackToMove == bookIsBlack) {
+                    int move = search(own, opp, blackToMove);
+                    follow = 1L << move;
+                    searched++;
+                }
+
+                for (long m = follow; m != 0L; m &= m - 1) {
+                    int sq = Long.numberOfTrailingZeros(m);
+                    long flipped = BitBoard.flips(own, opp, sq);
+                    long childOwn = own | flipped | (1L << sq);
+                    long childOpp = opp & ~flipped;
+                    long childBlack = blackToMove ? childOwn : childOpp;
+                    long childWhite = blackToMove ? childOpp : childOwn;
+                    if (seen.add(Symmetry.canonicalHash(childBlack, childWhite, !blackToMove))) {
+                        int sym = Symmetry.canonicalSymmetry(childBlack, childWhite);
+                        next.add(new long[] {
+                                Symmetry.transform(childBlack, sym),
+                                Symmetry.transform(childWhite, sym),
+                                blackToMove ? 0L : 1L
+                        });
+                    }
+                }
+            }
+            System.out.println("[INFO] BookBuilder: book=" + (bookIsBlack ? "BLACK" : "WHITE")
+                    + " ply=" + ply + " positions=" + level.size() + " searched=" + searched
+                    + " total=" + this.count + " timeS=" + (System.nanoTime() - startNanos) / 1000000000L);
+            level = next;
+        }
+    }
+
+    // Search one position (already in its canonical orientation) and add it to the book.
+    // Returns the move that was stored.
+    private int search(long own, long opp, boolean ownIsBlack)
+    {
+        Searcher searcher = ownIsBlack ? this.blackSearcher : this.whiteSearcher;
+        int move = searcher.search(own, opp, Zobrist.hash(own, opp, ownIsBlack), this.depth,
+                System.nanoTime(), Long.MAX_VALUE / 4, false);
+
+        long black = ownIsBlack ? own : opp;
+        long white = ownIsBlack ? opp : own;
+        long key = Symmetry.canonicalHash(black, white, ownIsBlack);
+        // 0 marks an empty slot in the file, such a position just stays out of the book
+        if (key == 0L) {
+            return move;
+        }
+        if (this.count == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.count * 2);
+            this.moves = Arrays.copyOf(this.moves, this.count * 2);
+            this.scores = Arrays.copyOf(this.scores, this.count * 2);
+        }
+        this.keys[this.count] = key;
+        this.moves[this.count] = move;
+        this.scores[this.count] = (float) searcher.getBestScore();
+        this.count++;
+        return move;
+    }
+
+}
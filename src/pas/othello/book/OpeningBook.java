@@ -0,0 +1,159 @@
+package src.pas.othello.book;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+
+
+// Opening book: best moves for early positions, computed offline by BookBuilder.
+//
+// The file is an open-addressing hash table that is used exactly as it lies on disk:
+// it is memory-mapped and probed in place, so opening it costs nothing and a lookup
+// is one or two slot reads. Positions are keyed by Symmetry.canonicalHash, so all 8
+// images of a position share one entry, and moves are stored in the canonical
+// orientation and mapped back on the way out.
+//
+// Layout (big-endian):
+//   header, 32 bytes: magic, capacity (power of two), entries, plies, search depth, 0L
+//   capacity slots of 16 bytes: key (long, 0 = empty), score (float), move (byte),
+//   depth (byte), 2 unused bytes
+public class OpeningBook
+    extends Object
+{
+
+    public static final int NO_MOVE = -1;
+
+    // "OTHBOOK1"
+    private static final long MAGIC = 0x4f5448424f4f4b31L;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+
+    private final ByteBuffer slots;
+    private final int mask;
+    private final int entries;
+    private final int plies;
+    private final int depth;
+
+    private OpeningBook(ByteBuffer buffer)
+    {
+        if (buffer.getLong(0) != MAGIC) {
+            throw new IllegalArgumentException("not an opening book");
+        }
+        int capacity = buffer.getInt(8);
+        if (Integer.bitCount(capacity) != 1 || buffer.capacity() < HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+            throw new IllegalArgumentException("truncated opening book");
+        }
+        this.mask = capacity - 1;
+        this.entries = buffer.getInt(12);
+        this.plies = buffer.getInt(16);
+        this.depth = buffer.getInt(20);
+        buffer.position(HEADER_BYTES);
+        this.slots = buffer.slice();
+    }
+
+    // Map the book file. The mapping stays valid after the channel is closed.
+    public static OpeningBook open(String path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer);
+        }
+    }
+
+    // number of positions in the book
+    public int getEntryCount()
+    {
+        return this.entries;
+    }
+
+    // the book covers positions with fewer than this many moves played
+    public int getPlies()
+    {
+        return this.plies;
+    }
+
+    // depth of the searches the book was built with
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    // Book move for this position (a square, row * 8 + col), or NO_MOVE if the position
+    // is not in the book. A stored move that isn't legal here means two positions share
+    // a key, and counts as not found.
+    public int getMove(long black, long white, boolean blackToMove)
+    {
+        int played = BitBoard.popCount(black | white) - 4;
+        if (played >= this.plies) {
+            return NO_MOVE;
+        }
+        int sym = Symmetry.canonicalSymmetry(black, white);
+        int slot = find(Symmetry.canonicalHash(black, white, blackToMove));
+        if (slot < 0) {
+            return NO_MOVE;
+        }
+        int move = Symmetry.transformSquare(this.slots.get(slot * SLOT_BYTES + 12), Symmetry.inverse(sym));
+        long own = blackToMove ? black : white;
+        long opp = blackToMove ? white : black;
+        return ((BitBoard.legalMoves(own, opp) >>> move) & 1L) != 0L ? move : NO_MOVE;
+    }
+
+    // linear probing; the table is never full, so an empty slot always ends the search
+    private int find(long key)
+    {
+        for (int slot = (int) key & this.mask; ; slot = (slot + 1) & this.mask) {
+            long stored = this.slots.getLong(slot * SLOT_BYTES);
+            if (stored == key) {
+                return slot;
+            } else if (stored == 0L) {
+                return -1;
+            }
+        }
+    }
+
+    // Write a book: keys[i] (canonical hashes, never 0) -> moves[i] (in the canonical
+    // orientation) with the search score. The table is kept at most 3/4 full.
+    public static void write(String path, long[] keys, int[] moves, float[] scores, int count,
+                             int plies, int depth) throws IOException
+    {
+        int capacity = Integer.highestOneBit(Math.max(1, count * 4 / 3)) * 2;
+        int mask = capacity - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + capacity * SLOT_BYTES);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, capacity);
+        buffer.putInt(12, count);
+        buffer.putInt(16, plies);
+        buffer.putInt(20, depth);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) keys[i] & mask;
+            while (buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES) != 0L) {
+                slot = (slot + 1) & mask;
+            }
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            buffer.putLong(offset, keys[i]);
+            buffer.putFloat(offset + 8, scores[i]);
+            buffer.put(offset + 12, (byte) moves[i]);
+            buffer.put(offset + 13, (byte) Math.min(depth, Byte.MAX_VALUE));
+        }
+
+        Path file = Paths.get(path);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package src.pas.othello.corpus;
+
+
+// SYSTEM IMPORTS
+import java.nio.ByteBuffer;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.board.BitBoard;
+
+
+// A position corpus: a flat file of fixed-size position records, for benchmarks,
+// regression tests and tuning. PositionWriter appends to one (the agent can record
+// every position it plays with -Dothello.corpus=<file>), and PositionReader walks one
+// through memory-mapped windows without allocating per record.
+//
+// Layout (big-endian):
+//   header, 16 bytes: magic, record size (int), 0 (int)
+//   records of 24 bytes: black (long), white (long), flags (byte), depth (byte),
+//   move (byte, NO_MOVE = none or a pass), result (byte), score (float)
+// Scores and results are for the side to move. The score is a search score in
+// [-1, 1] at "depth" plies, or with SOLVED the exact final disc difference, with
+// "depth" the number of empties. The result is the disc difference the game ended with.
+public class PositionCorpus
+    extends Object
+{
+
+    // "OTHPOS01"
+    public static final long MAGIC = 0x4f5448504f533031L;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 24;
+
+    // flags
+    public static final int BLACK_TO_MOVE = 1;
+    public static final int HAS_SCORE = 2;
+    public static final int SOLVED = 4;
+    public static final int HAS_RESULT = 8;
+
+    public static final int NO_MOVE = -1;
+
+    // offsets within a record
+    static final int BLACK_OFFSET = 0;
+    static final int WHITE_OFFSET = 8;
+    static final int FLAGS_OFFSET = 16;
+    static final int DEPTH_OFFSET = 17;
+    static final int MOVE_OFFSET = 18;
+    static final int RESULT_OFFSET = 19;
+    static final int SCORE_OFFSET = 20;
+
+    static void writeHeader(ByteBuffer buffer)
+    {
+        buffer.putLong(MAGIC);
+        buffer.putInt(RECORD_BYTES);
+        buffer.putInt(0);
+    }
+
+    static void checkHeader(ByteBuffer buffer)
+    {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+            throw new IllegalArgumentException("not a position corpus");
+        }
+        if (buffer.getInt(8) != RECORD_BYTES) {
+            throw new IllegalArgumentException("unknown record size " + buffer.getInt(8));
+        }
+    }
+
+    // The framework's view of a stored position (built fresh, so not for hot loops).
+    public static GameView toGameView(long black, long white, boolean blackToMove)
+    {
+        return BitBoard.toGameView(black, white, blackToMove ? PlayerType.BLACK : PlayerType.WHITE);
+    }
+
+    public static long black(GameView view)
+    {
+        return BitBoard.fromView(view, PlayerType.BLACK);
+    }
+
+    public static long white(GameView view)
+    {
+        return BitBoard.fromView(view, PlayerType.WHITE);
+    }
+
+    public static boolean isBlackToMove(GameView view)
+    {
+        return view.getCurrentPlayerType() == PlayerType.BLACK;
+    }
+
+}
@@ -0,0 +1,259 @@
+package src.pas.othello.corpus;
+
+
+// SYSTEM IMPORTS
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+
+import src.pas.othello.board.BitBoard;
+
+
+// Reads a corpus file (see PositionCorpus for the format) record by record:
+//
+//     try (PositionReader reader = PositionReader.open(path)) {
+//         while (reader.next()) {
+//             ... reader.getBlack(), reader.getWhite(), reader.getScore(), ...
+//         }
+//     }
+//
+// The file is mapped in windows of WINDOW_RECORDS records (a single mapping can't be
+// over 2 GB), and next() only reads the current record's fields, so walking a file of
+// any size allocates nothing but a window now and then. open(path, from, to) reads
+// just the records [from, to), so several threads can split one file between them.
+public class PositionReader
+    extends Object
+    implements Closeable
+{
+
+    // records per mapped window (768 MB)
+    private static final int WINDOW_RECORDS = 1 << 25;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long to;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    // index of the record next() reads next
+    private long index;
+
+    // the current record
+    private long black;
+    private long white;
+    private int flags;
+    private int depth;
+    private int move;
+    private int result;
+    private float score;
+
+    private PositionReader(FileChannel channel, long from, long to) throws IOException
+    {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(channel.size(), PositionCorpus.HEADER_BYTES));
+        PositionCorpus.checkHeader(header);
+        this.size = (channel.size() - PositionCorpus.HEADER_BYTES) / PositionCorpus.RECORD_BYTES;
+        this.to = Math.min(to, this.size);
+        this.index = Math.max(0L, Math.min(from, this.to));
+    }
+
+    public static PositionReader open(String path) throws IOException
+    {
+        return open(path, 0L, Long.MAX_VALUE);
+    }
+
+    // only the records [from, to)
+    public static PositionReader open(String path, long from, long to) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            return new PositionReader(channel, from, to);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // records in the whole file
+    public long size()
+    {
+        return this.size;
+    }
+
+    // index of the current record (the one the last next() read)
+    public long getIndex()
+    {
+        return this.index - 1;
+    }
+
+    // the next record read is number index
+    public void seek(long index)
+    {
+        this.index = Math.max(0L, Math.min(index, this.to));
+    }
+
+    // Reads the next record; false at the end.
+    public boolean next() throws IOException
+    {
+        if (this.index >= this.to) {
+            return false;
+        }
+        if (this.window == null || this.index < this.windowStart || this.index >= this.windowEnd) {
+            this.windowStart = this.index;
+            this.windowEnd = Math.min(this.to, this.index + WINDOW_RECORDS);
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    PositionCorpus.HEADER_BYTES + this.windowStart * PositionCorpus.RECORD_BYTES,
+                    (this.windowEnd - this.windowStart) * PositionCorpus.RECORD_BYTES);
+        }
+        int offset = (int) (this.index - this.windowStart) * PositionCorpus.RECORD_BYTES;
+        MappedByteBuffer w = this.window;
+        this.black = w.getLong(offset + PositionCorpus.BLACK_OFFSET);
+        this.white = w.getLong(offset + PositionCorpus.WHITE_OFFSET);
+        this.flags = w.get(offset + PositionCorpus.FLAGS_OFFSET);
+        this.depth = w.get(offset + PositionCorpus.DEPTH_OFFSET);
+        this.move = w.get(offset + PositionCorpus.MOVE_OFFSET);
+        this.result = w.get(offset + PositionCorpus.RESULT_OFFSET);
+        this.score = w.getFloat(offset + PositionCorpus.SCORE_OFFSET);
+        this.index++;
+        return true;
+    }
+
+    public long getBlack()
+    {
+        return this.black;
+    }
+
+    public long getWhite()
+    {
+        return this.white;
+    }
+
+    public boolean isBlackToMove()
+    {
+        return (this.flags & PositionCorpus.BLACK_TO_MOVE) != 0;
+    }
+
+    // discs of the side to move and of the other side
+    public long getOwn()
+    {
+        return this.isBlackToMove() ? this.black : this.white;
+    }
+
+    public long getOpp()
+    {
+        return this.isBlackToMove() ? this.white : this.black;
+    }
+
+    public int getFlags()
+    {
+        return this.flags;
+    }
+
+    public boolean hasScore()
+    {
+        return (this.flags & PositionCorpus.HAS_SCORE) != 0;
+    }
+
+    public boolean isSolved()
+    {
+        return (this.flags & PositionCorpus.SOLVED) != 0;
+    }
+
+    public boolean hasResult()
+    {
+        return (this.flags & PositionCorpus.HAS_RESULT) != 0;
+    }
+
+    // search depth, or the empties of a solved position
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    // the move played or found (a square), or PositionCorpus.NO_MOVE
+    public int getMove()
+    {
+        return this.move;
+    }
+
+    // for the side to move, see PositionCorpus
+    public double getScore()
+    {
+        return this.score;
+    }
+
+    public int getResult()
+    {
+        return this.result;
+    }
+
+    public GameView toGameView()
+    {
+        return PositionCorpus.toGameView(this.black, this.white, this.isBlackToMove());
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.window = null;
+        this.channel.close();
+    }
+
+    // Summary of a corpus file, and its first records.
+    // Usage: java -cp "lib/*:." src.pas.othello.corpus.PositionReader <file> [records to print]
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1) {
+            System.err.println("usage: PositionReader <file> [records to print]");
+            System.exit(1);
+        }
+        int print = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long scored = 0L;
+        long solved = 0L;
+        long withResult = 0L;
+        long[] perEmpties = new long[BitBoard.NUM_SQUARES + 1];
+        long startNanos = System.nanoTime();
+        try (PositionReader reader = open(args[0])) {
+            if (print > 0) {
+                System.out.println("index,black,white,toMove,empties,flags,depth,square,score,result");
+            }
+            while (reader.next()) {
+                int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(reader.getBlack() | reader.getWhite());
+                perEmpties[empties]++;
+                scored += reader.hasScore() ? 1 : 0;
+                solved += reader.isSolved() ? 1 : 0;
+                withResult += reader.hasResult() ? 1 : 0;
+                if (reader.getIndex() < print) {
+                    System.out.printf("%d,%016x,%016x,%s,%d,%d,%d,%s,%s,%s%n", reader.getIndex(),
+                            reader.getBlack(), reader.getWhite(), reader.isBlackToMove() ? "B" : "W", empties,
+                            reader.getFlags(), reader.getDepth(),
+                            reader.getMove() >= 0 ? Integer.toString(reader.getMove()) : "-",
+                            reader.hasScore() ? Double.toString(reader.getScore()) : "-",
+                            reader.hasResult() ? Integer.toString(reader.getResult()) : "-");
+                }
+            }
+            long ms = (System.nanoTime() - startNanos) / 1000000L;
+            System.out.println("[INFO] PositionReader: " + args[0] + " records=" + reader.size()
+                    + " scored=" + scored + " solved=" + solved + " withResult=" + withResult
+                    + " timeMS=" + ms);
+        }
+        StringBuilder line = new StringBuilder("[INFO] PositionReader: per empties");
+        for (int e = 0; e <= BitBoard.NUM_SQUARES; e++) {
+            if (perEmpties[e] > 0) {
+                line.append(' ').append(e).append('=').append(perEmpties[e]);
+            }
+        }
+        System.out.println(line);
+    }
+
+}
@@ -0,0 +1,200 @@
+package src.pas.othello.corpus;
+
+
+// SYSTEM IMPORTS
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+
+
+// Appends position records to a corpus file (see PositionCorpus for the format).
+//
+// Records are collected in a buffer and written in batches. Positions of a game that
+// is still going (between beginGame() and endGame()) stay in the buffer until the game
+// ends and its result can be filled in. Every batch is written under a lock on the
+// file, so several writers, in this process or others, can append to one file (each
+// game's records stay together).
+public class PositionWriter
+    extends Object
+    implements Closeable
+{
+
+    // records buffered before a batch is written
+    private static final int BUFFER_RECORDS = 1 << 14;
+
+    // FileLock is per process, writers in one JVM queue up here first
+    private static final Object WRITE_LOCK = new Object();
+
+    private final Path file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * PositionCorpus.RECORD_BYTES);
+    // records in the buffer, and the first one of the open game (-1 = no game open)
+    private int count;
+    private int gameStart = -1;
+    private long written;
+
+    // Appends to path, or with append = false starts it over.
+    public PositionWriter(String path, boolean append) throws IOException
+    {
+        this.file = Paths.get(path);
+        if (!append) {
+            Files.deleteIfExists(this.file);
+        } else if (Files.isRegularFile(this.file) && Files.size(this.file) > 0L) {
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(PositionCorpus.HEADER_BYTES);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                }
+                header.flip();
+                PositionCorpus.checkHeader(header);
+            }
+        }
+    }
+
+    // records written to the file so far by this writer
+    public long getWrittenCount()
+    {
+        return this.written;
+    }
+
+    // between beginGame() and endGame()
+    public boolean isGameOpen()
+    {
+        return this.gameStart >= 0;
+    }
+
+    // The records added from now until endGame() belong to one game.
+    public void beginGame() throws IOException
+    {
+        if (this.gameStart >= 0) {
+            this.endGame();
+        }
+        this.gameStart = this.count;
+    }
+
+    // The game is over with this final disc difference (black minus white).
+    public void endGame(int blackMinusWhite) throws IOException
+    {
+        if (this.gameStart < 0) {
+            return;
+        }
+        for (int i = this.gameStart; i < this.count; i++) {
+            int offset = i * PositionCorpus.RECORD_BYTES;
+            int flags = this.buffer.get(offset + PositionCorpus.FLAGS_OFFSET);
+            int result = (flags & PositionCorpus.BLACK_TO_MOVE) != 0 ? blackMinusWhite : -blackMinusWhite;
+            this.buffer.put(offset + PositionCorpus.FLAGS_OFFSET, (byte) (flags | PositionCorpus.HAS_RESULT));
+            this.buffer.put(offset + PositionCorpus.RESULT_OFFSET, (byte) result);
+        }
+        this.endGame();
+    }
+
+    // a game without a result (it was abandoned): keep its positions as they are
+    private void endGame() throws IOException
+    {
+        this.gameStart = -1;
+        if (this.count >= BUFFER_RECORDS / 2) {
+            this.flush();
+        }
+    }
+
+    // One position. flags are PositionCorpus.HAS_SCORE and SOLVED (BLACK_TO_MOVE is
+    // set from blackToMove); move is a square or NO_MOVE.
+    public void add(long black, long white, boolean blackToMove, int move, int depth, double score, int flags)
+        throws IOException
+    {
+        if (this.count == BUFFER_RECORDS) {
+            this.flush();
+            if (this.count == BUFFER_RECORDS) {
+                // one open game filled the whole buffer: it can't be a real game
+                this.gameStart = -1;
+                this.flush();
+            }
+        }
+        int offset = this.count * PositionCorpus.RECORD_BYTES;
+        flags = (flags & ~(PositionCorpus.BLACK_TO_MOVE | PositionCorpus.HAS_RESULT))
+                | (blackToMove ? PositionCorpus.BLACK_TO_MOVE : 0);
+        this.buffer.putLong(offset + PositionCorpus.BLACK_OFFSET, black);
+        this.buffer.putLong(offset + PositionCorpus.WHITE_OFFSET, white);
+        this.buffer.put(offset + PositionCorpus.FLAGS_OFFSET, (byte) flags);
+        this.buffer.put(offset + PositionCorpus.DEPTH_OFFSET, (byte) Math.min(depth, Byte.MAX_VALUE));
+        this.buffer.put(offset + PositionCorpus.MOVE_OFFSET, (byte) move);
+        this.buffer.put(offset + PositionCorpus.RESULT_OFFSET, (byte) 0);
+        this.buffer.putFloat(offset + PositionCorpus.SCORE_OFFSET, (float) score);
+        this.count++;
+    }
+
+    // a position without a score
+    public void add(long black, long white, boolean blackToMove, int move) throws IOException
+    {
+        this.add(black, white, blackToMove, move, 0, 0.0, 0);
+    }
+
+    public void add(GameView view, int move) throws IOException
+    {
+        this.add(PositionCorpus.black(view), PositionCorpus.white(view), PositionCorpus.isBlackToMove(view), move);
+    }
+
+    // Writes every buffered record that isn't part of the open game.
+    public void flush() throws IOException
+    {
+        int ready = this.gameStart >= 0 ? this.gameStart : this.count;
+        if (ready == 0) {
+            return;
+        }
+        synchronized (WRITE_LOCK) {
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                FileLock lock = channel.lock();
+                try {
+                    if (channel.size() == 0L) {
+                        ByteBuffer header = ByteBuffer.allocate(PositionCorpus.HEADER_BYTES);
+                        PositionCorpus.writeHeader(header);
+                        header.flip();
+                        while (header.hasRemaining()) {
+                            channel.write(header);
+                        }
+                    }
+                    ByteBuffer batch = this.buffer.duplicate();
+                    batch.position(0).limit(ready * PositionCorpus.RECORD_BYTES);
+                    while (batch.hasRemaining()) {
+                        channel.write(batch);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+        this.written += ready;
+
+        // move what is left (the open game) to the front
+        int left = this.count - ready;
+        if (left > 0) {
+            ByteBuffer rest = this.buffer.duplicate();
+            rest.position(ready * PositionCorpus.RECORD_BYTES).limit(this.count * PositionCorpus.RECORD_BYTES);
+            ByteBuffer front = this.buffer.duplicate();
+            front.position(0);
+            front.put(rest);
+        }
+        this.count = left;
+        if (this.gameStart >= 0) {
+            this.gameStart = 0;
+        }
+    }
+
+    // An open game is written without a result.
+    @Override
+    public void close() throws IOException
+    {
+        this.gameStart = -1;
+        this.flush();
+    }
+
+}
@@ -0,0 +1,17 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+// Static evaluation of a position from MAX's point of view, in [-1, 1] like the
+// terminal utility. The search only goes through this, so evaluators can be swapped
+// (-Dothello.eval=heuristic|pattern) and played against each other.
+// Implementations are shared by all search threads, so they must not keep any
+// per-call state.
+public interface Evaluator {
+
+    // maxToMove tells whose turn it is in this position
+    double evaluate(long maxDiscs, long minDiscs, boolean maxToMove);
+
+}
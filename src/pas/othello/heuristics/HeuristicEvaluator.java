@@ -0,0 +1,39 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+// The hand-weighted Heuristics behind the Evaluator interface.
+public class HeuristicEvaluator
+        extends Object
+        implements Evaluator {
+
+    // with the weights Heuristics loaded at startup
+    public static final HeuristicEvaluator INSTANCE = new HeuristicEvaluator(Heuristics.getDefaultWeights(), 0.0);
+
+    private final HeuristicWeights weights;
+    // weight of the stable-disc term, 0 for the plain heuristic
+    private final double stabilityWeight;
+
+    private HeuristicEvaluator(HeuristicWeights weights, double stabilityWeight) {
+        this.weights = weights;
+        this.stabilityWeight = stabilityWeight;
+    }
+
+    // the heuristic with a stable-disc term of this weight (0 = INSTANCE)
+    public static HeuristicEvaluator withStability(double stabilityWeight) {
+        return stabilityWeight == 0.0 ? INSTANCE : new HeuristicEvaluator(Heuristics.getDefaultWeights(), stabilityWeight);
+    }
+
+    // the heuristic with other weights (e.g. another tuned file) and a stable-disc term
+    public static HeuristicEvaluator withWeights(HeuristicWeights weights, double stabilityWeight) {
+        return new HeuristicEvaluator(weights, stabilityWeight);
+    }
+
+    @Override
+    public double evaluate(long maxDiscs, long minDiscs, boolean maxToMove) {
+        return Heuristics.calculateHeuristicValue(maxDiscs, minDiscs, maxToMove, this.weights, this.stabilityWeight);
+    }
+
+}
@@ -0,0 +1,272 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.corpus.PositionReader;
+
+// Fits the HeuristicWeights to game results (Texel's method).
+//
+// Data: a position corpus with game results, from SelfPlay or from agents run with
+// -Dothello.corpus. Every position with at least MIN_EMPTIES empties is used, and its
+// target is the result for the side to move: 1 for a win, 0.5 for a draw, 0 for a loss.
+//
+// Fit: the predicted result is sigmoid(K * eval), with eval the heuristic for the side
+// to move (clamped to [-1, 1], no stability term). K is fitted first with the starting
+// weights and then kept. The weights follow the gradient of the mean squared error, with
+// Adam steps. The features of every position are computed once, so the eval of a
+// position is one dot product, and each pass is split over a ForkJoinPool. The last tenth
+// of the corpus (whole games, a corpus keeps each game's positions together) is held
+// out, and the weights of the iteration that did best on it are written.
+//     java -cp "lib/*:." src.pas.othello.heuristics.HeuristicTuner <corpus> [out] [iterations] [threads]
+// Defaults: data/heuristic.weights, 2000 iterations, all cores.
+public class HeuristicTuner
+        extends Object {
+
+    // the heuristic isn't used with fewer empties than this (the solver takes over)
+    private static final int MIN_EMPTIES = 10;
+    // Adam: step size per iteration in units of a term weight; the positional matrix
+    // values are about 100 times bigger, and so are their steps
+    private static final double LEARNING_RATE = 0.002;
+    private static final double SQUARE_STEP_SCALE = 100.0;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-12;
+    // The edge term counts the squares of classes b1, c1 and d1, so it is a sum of
+    // features that are tuned already; it keeps its starting value.
+    private static final int FIXED = HeuristicWeights.EDGE;
+    // positions per ForkJoin task
+    private static final int SLICE = 1 << 13;
+
+    private final int numWeights = HeuristicWeights.NUM_WEIGHTS;
+    // features of position i at [i * numWeights, (i + 1) * numWeights), and its target
+    private float[] features;
+    private float[] targets;
+    private int count;
+    // positions [0, trainCount) are trained on, the rest are held out
+    private int trainCount;
+    private double k;
+    private ForkJoinPool pool;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: HeuristicTuner <corpus> [out] [iterations] [threads]");
+            System.exit(1);
+        }
+        long startNanos = System.nanoTime();
+        String out = args.length > 1 ? args[1] : HeuristicWeights.DEFAULT_PATH;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        HeuristicTuner tuner = new HeuristicTuner();
+        tuner.pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            tuner.load(args[0]);
+            System.out.println("[INFO] HeuristicTuner: " + tuner.count + " positions (" + tuner.trainCount
+                    + " to train on), threads=" + threads + ", timeS="
+                    + (System.nanoTime() - startNanos) / 1000000000L);
+            // start from the hand-picked weights, not from a file we may be replacing
+            double[] start = HeuristicWeights.defaults().toArray();
+            tuner.k = tuner.fitK(start);
+            double startTrain = tuner.error(start, 0, tuner.trainCount);
+            double startTest = tuner.error(start, tuner.trainCount, tuner.count);
+            System.out.println(String.format(Locale.ROOT,
+                    "[INFO] HeuristicTuner: K=%.4f start trainMSE=%.6f testMSE=%.6f", tuner.k, startTrain, startTest));
+
+            double[] best = tuner.fit(start, iterations);
+            double bestTrain = tuner.error(best, 0, tuner.trainCount);
+            double bestTest = tuner.error(best, tuner.trainCount, tuner.count);
+            HeuristicWeights.of(best).write(out,
+                    "Heuristics weights, written by HeuristicTuner from " + args[0],
+                    String.format(Locale.ROOT, "%d positions, K=%.4f, trainMSE %.6f -> %.6f, testMSE %.6f -> %.6f",
+                            tuner.count, tuner.k, startTrain, bestTrain, startTest, bestTest));
+            System.out.println("[INFO] HeuristicTuner: wrote " + out + ", timeS="
+                    + (System.nanoTime() - startNanos) / 1000000000L);
+        } finally {
+            tuner.pool.shutdown();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Data
+    // ------------------------------------------------------------------
+
+    // Features and targets of every usable position; the held out tenth starts at the
+    // first game boundary (a record with 60 empties) after 90% of the records.
+    private void load(String path) throws IOException {
+        try (PositionReader reader = PositionReader.open(path)) {
+            long testFrom = reader.size() - reader.size() / 10;
+            int capacity = (int) Math.min(reader.size(), Integer.MAX_VALUE / this.numWeights);
+            this.features = new float[capacity * this.numWeights];
+            this.targets = new float[capacity];
+            this.trainCount = -1;
+            double[] f = new double[this.numWeights];
+            while (reader.next() && this.count < capacity) {
+                long own = reader.getOwn();
+                long opp = reader.getOpp();
+                int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp);
+                if (this.trainCount < 0 && reader.getIndex() >= testFrom && empties == BitBoard.NUM_SQUARES - 4) {
+                    this.trainCount = this.count;
+                }
+                if (!reader.hasResult() || empties < MIN_EMPTIES) {
+                    continue;
+                }
+                Heuristics.features(own, opp, true, f);
+                for (int j = 0; j < this.numWeights; j++) {
+                    this.features[this.count * this.numWeights + j] = (float) f[j];
+                }
+                int result = reader.getResult();
+                this.targets[this.count] = result > 0 ? 1.0f : result < 0 ? 0.0f : 0.5f;
+                this.count++;
+            }
+        }
+        if (this.trainCount < 0) {
+            this.trainCount = this.count;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Fit
+    // ------------------------------------------------------------------
+
+    // K by golden section search on the training error
+    private double fitK(double[] weights) {
+        double lo = 0.1;
+        double hi = 50.0;
+        double phi = (Math.sqrt(5.0) - 1.0) / 2.0;
+        for (int i = 0; i < 40; i++) {
+            double a = hi - phi * (hi - lo);
+            double b = lo + phi * (hi - lo);
+            this.k = a;
+            double errorA = error(weights, 0, this.trainCount);
+            this.k = b;
+            double errorB = error(weights, 0, this.trainCount);
+            if (errorA < errorB) {
+                hi = b;
+            } else {
+                lo = a;
+            }
+        }
+        return (lo + hi) / 2.0;
+    }
+
+    private double[] fit(double[] start, int iterations) {
+        double[] weights = start.clone();
+        double[] m = new double[this.numWeights];
+        double[] v = new double[this.numWeights];
+        double[] best = weights.clone();
+        double bestTest = Double.MAX_VALUE;
+        int bestIteration = 0;
+        for (int t = 1; t <= iterations; t++) {
+            double[] sums = this.pool.invoke(new Pass(this, weights, 0, this.trainCount, true));
+            double testError = error(weights, this.trainCount, this.count);
+            // the errors are those of the weights before this iteration's step
+            if (testError < bestTest) {
+                bestTest = testError;
+                best = weights.clone();
+                bestIteration = t - 1;
+            }
+            for (int j = 0; j < this.numWeights; j++) {
+                if (j == FIXED) {
+                    continue;
+                }
+                double g = sums[j + 1] / Math.max(1, this.trainCount);
+                m[j] = BETA1 * m[j] + (1.0 - BETA1) * g;
+                v[j] = BETA2 * v[j] + (1.0 - BETA2) * g * g;
+                double mHat = m[j] / (1.0 - Math.pow(BETA1, t));
+                double vHat = v[j] / (1.0 - Math.pow(BETA2, t));
+                double step = j >= HeuristicWeights.SQUARES ? LEARNING_RATE * SQUARE_STEP_SCALE : LEARNING_RATE;
+                weights[j] -= step * mHat / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (t % 100 == 0) {
+                System.out.println(String.format(Locale.ROOT,
+                        "[INFO] HeuristicTuner: iteration=%d trainMSE=%.6f testMSE=%.6f",
+                        t, sums[0] / Math.max(1, this.trainCount), testError));
+            }
+        }
+        double testError = error(weights, this.trainCount, this.count);
+        if (testError < bestTest) {
+            bestTest = testError;
+            best = weights.clone();
+            bestIteration = iterations;
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "[INFO] HeuristicTuner: keeping iteration %d, testMSE=%.6f", bestIteration, bestTest));
+        return best;
+    }
+
+    // mean squared error over positions [from, to)
+    private double error(double[] weights, int from, int to) {
+        if (to <= from) {
+            return 0.0;
+        }
+        return this.pool.invoke(new Pass(this, weights, from, to, false))[0] / (to - from);
+    }
+
+    // Sum of squared errors over a slice of the positions, and with "gradient" also the
+    // gradient of that sum: {error, d/dw0, d/dw1, ...}.
+    private static final class Pass
+            extends RecursiveTask<double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final HeuristicTuner tuner;
+        private final double[] weights;
+        private final int from;
+        private final int to;
+        private final boolean gradient;
+
+        private Pass(HeuristicTuner tuner, double[] weights, int from, int to, boolean gradient) {
+            this.tuner = tuner;
+            this.weights = weights;
+            this.from = from;
+            this.to = to;
+            this.gradient = gradient;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (this.to - this.from > SLICE) {
+                int middle = (this.from + this.to) >>> 1;
+                Pass left = new Pass(this.tuner, this.weights, this.from, middle, this.gradient);
+                left.fork();
+                double[] right = new Pass(this.tuner, this.weights, middle, this.to, this.gradient).compute();
+                double[] sums = left.join();
+                for (int j = 0; j < sums.length; j++) {
+                    sums[j] += right[j];
+                }
+                return sums;
+            }
+
+            int n = this.tuner.numWeights;
+            float[] features = this.tuner.features;
+            double k = this.tuner.k;
+            double[] sums = new double[n + 1];
+            for (int i = this.from; i < this.to; i++) {
+                int offset = i * n;
+                double eval = 0.0;
+                for (int j = 0; j < n; j++) {
+                    eval += this.weights[j] * features[offset + j];
+                }
+                boolean clamped = eval <= -1.0 || eval >= 1.0;
+                eval = Math.max(-1.0, Math.min(1.0, eval));
+                double prediction = 1.0 / (1.0 + Math.exp(-k * eval));
+                double error = prediction - this.tuner.targets[i];
+                sums[0] += error * error;
+                if (this.gradient && !clamped) {
+                    // d(error^2)/dw_j = 2 * error * sigmoid' * K * feature_j
+                    double scale = 2.0 * error * prediction * (1.0 - prediction) * k;
+                    for (int j = 0; j < n; j++) {
+                        sums[j + 1] += scale * features[offset + j];
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+
+// The constants of the hand-weighted Heuristics: the weight of every term, and the
+// values of the positional matrix. The defaults are the hand-picked ones; HeuristicTuner
+// fits them to game results and writes them to a file, plain text, one per line:
+//     name value
+// with '#' starting a comment. Names that are left out keep their default.
+// The game phase boundaries (piece counts) are part of the terms and not weights.
+public class HeuristicWeights
+        extends Object {
+
+    public static final String DEFAULT_PATH = "data/heuristic.weights";
+
+    public static final int CORNER = 0;
+    public static final int EDGE = 1;
+    // penalty per X-square and per C-square next to an empty corner
+    public static final int X_SQUARE = 2;
+    public static final int C_SQUARE = 3;
+    // mobility ratio up to 30, up to 50, and over 50 discs
+    public static final int MOBILITY_EARLY = 4;
+    public static final int MOBILITY_MID = 5;
+    public static final int MOBILITY_LATE = 6;
+    // disc ratio up to 16, up to 48, and over 48 discs
+    public static final int PIECE_EARLY = 7;
+    public static final int PIECE_MID = 8;
+    public static final int PIECE_LATE = 9;
+    public static final int PARITY = 10;
+    public static final int POTENTIAL_MOBILITY = 11;
+    // then one value per square class of the positional matrix
+    public static final int SQUARES = 12;
+
+    // The positional matrix is symmetric, so it has one value per square class, named
+    // after the class's square in the a1-d4 corner (a1, the corner, is left to the
+    // corner term and stays 0).
+    public static final String[] SQUARE_CLASSES = { "b1", "c1", "d1", "b2", "c2", "d2", "c3", "d3", "d4" };
+    // the squares of each class
+    public static final long[] SQUARE_MASKS = new long[SQUARE_CLASSES.length];
+
+    public static final int NUM_WEIGHTS = SQUARES + SQUARE_CLASSES.length;
+
+    private static final String[] NAMES = new String[NUM_WEIGHTS];
+    private static final double[] DEFAULTS = {
+            0.4, 0.2, 0.15, 0.10,
+            0.20, 0.15, 0.05,
+            -0.05, 0.05, 0.5,
+            0.02, 0.08,
+            -20, 10, 5, -40, -5, -5, 5, 1, 1
+    };
+
+    static {
+        String[] names = { "corner", "edge", "xSquare", "cSquare",
+                "mobility.early", "mobility.mid", "mobility.late",
+                "piece.early", "piece.mid", "piece.late",
+                "parity", "potentialMobility" };
+        System.arraycopy(names, 0, NAMES, 0, SQUARES);
+        for (int k = 0; k < SQUARE_CLASSES.length; k++) {
+            NAMES[SQUARES + k] = "square." + SQUARE_CLASSES[k];
+            int col = SQUARE_CLASSES[k].charAt(0) - 'a';
+            int row = SQUARE_CLASSES[k].charAt(1) - '1';
+            long square = 1L << BitBoard.toSquare(row, col);
+            for (int sym = 0; sym < Symmetry.COUNT; sym++) {
+                SQUARE_MASKS[k] |= Symmetry.transform(square, sym);
+            }
+        }
+    }
+
+    private final double[] values;
+
+    private HeuristicWeights(double[] values) {
+        this.values = values;
+    }
+
+    public static HeuristicWeights defaults() {
+        return new HeuristicWeights(DEFAULTS.clone());
+    }
+
+    public static HeuristicWeights of(double[] values) {
+        if (values.length != NUM_WEIGHTS) {
+            throw new IllegalArgumentException("expected " + NUM_WEIGHTS + " weights, got " + values.length);
+        }
+        return new HeuristicWeights(values.clone());
+    }
+
+    public static String getName(int index) {
+        return NAMES[index];
+    }
+
+    public double get(int index) {
+        return this.values[index];
+    }
+
+    // value of the positional matrix for square class k
+    public double getSquareValue(int k) {
+        return this.values[SQUARES + k];
+    }
+
+    public double[] toArray() {
+        return this.values.clone();
+    }
+
+    // The weights in path, or the defaults when there is no such file (an agent started
+    // from another directory). A file that can't be read also leaves the defaults.
+    public static HeuristicWeights loadOrDefaults(String path) {
+        if (path == null || path.isEmpty() || !new File(path).isFile()) {
+            return defaults();
+        }
+        try {
+            return load(path);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return defaults();
+        }
+    }
+
+    public static HeuristicWeights load(String path) throws IOException {
+        double[] values = DEFAULTS.clone();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                int index = Arrays.asList(NAMES).indexOf(fields[0]);
+                if (fields.length != 2 || index < 0) {
+                    throw new IllegalArgumentException("bad heuristic weight line: " + line);
+                }
+                values[index] = Double.parseDouble(fields[1]);
+            }
+        }
+        return new HeuristicWeights(values);
+    }
+
+    // header lines go in as comments
+    public void write(String path, String... header) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+            for (String line : header) {
+                out.println("# " + line);
+            }
+            for (int i = 0; i < NUM_WEIGHTS; i++) {
+                out.println(String.format(Locale.ROOT, "%-18s %.6f   # default %s", NAMES[i], this.values[i],
+                        Double.toString(DEFAULTS[i])));
+            }
+        }
+    }
+
+}
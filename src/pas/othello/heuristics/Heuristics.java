@@ -2,376 +2,358 @@ package src.pas.othello.heuristics;
 
 // SYSTEM IMPORTS
 import edu.bu.pas.othello.traversal.Node;
+import java.util.Arrays;
 
 // JAVA PROJECT IMPORTS
 
 import edu.bu.pas.othello.game.Game.GameView;
 import edu.bu.pas.othello.game.PlayerType;
-import edu.bu.pas.othello.utils.Coordinate;
-import java.util.Set;
+
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Stability;
 
 public class Heuristics
         extends Object {
-    
+
+    // the weights of the terms: the tuned ones when HeuristicTuner has written a file,
+    // otherwise the hand-picked defaults
+    private static final HeuristicWeights WEIGHTS = HeuristicWeights.loadOrDefaults(HeuristicWeights.DEFAULT_PATH);
+
+    public static HeuristicWeights getDefaultWeights() {
+        return WEIGHTS;
+    }
+
     // This function gives the board a score.
     // It looks at corners, edges, number of moves, piece counts, then
     // combines them into one value.
     // The output is a a number between -1 and 1 (higher is better for the max player).
+    // One pass over the cells turns the board into bitboards, everything after that is
+    // popcounts over masks, no allocation and no frontier sets.
     public static double calculateHeuristicValue(Node node) {
-        // TODO: complete me!
-
         GameView view = node.getGameView();
         PlayerType maxPlayer = node.getMaxPlayerType();
-        PlayerType minPlayer = (maxPlayer == view.getCurrentPlayerType()) ? view.getOtherPlayerType()
-                : view.getCurrentPlayerType();
 
+        PlayerType[][] cells = view.getCells();
+        long maxDiscs = 0L;
+        long minDiscs = 0L;
+        for (int i = 0; i < cells.length; i++) {
+            for (int j = 0; j < cells[i].length; j++) {
+                PlayerType owner = cells[i][j];
+                if (owner == maxPlayer) {
+                    maxDiscs |= 1L << BitBoard.toSquare(i, j);
+                } else if (owner != null) {
+                    minDiscs |= 1L << BitBoard.toSquare(i, j);
+                }
+            }
+        }
+        return calculateHeuristicValue(maxDiscs, minDiscs, view.getCurrentPlayerType() == maxPlayer);
+    }
+
+    // Same evaluation straight from the search bitboards, so the search does not need a
+    // GameView at the leaves.
+    // maxToMove tells us whose turn it is (only the parity term cares).
+    public static double calculateHeuristicValue(long maxDiscs, long minDiscs, boolean maxToMove) {
+        return calculateHeuristicValue(maxDiscs, minDiscs, maxToMove, 0.0);
+    }
+
+    // The same with a stable-disc term of the given weight on top (0 leaves it out and
+    // gives exactly the score above).
+    public static double calculateHeuristicValue(long maxDiscs, long minDiscs, boolean maxToMove,
+            double stabilityWeight) {
+        return calculateHeuristicValue(maxDiscs, minDiscs, maxToMove, WEIGHTS, stabilityWeight);
+    }
+
+    // ... and with a given set of weights
+    public static double calculateHeuristicValue(long maxDiscs, long minDiscs, boolean maxToMove,
+            HeuristicWeights w, double stabilityWeight) {
         // Count total pieces on board
-        int totalPieces = countTotalPieces(view.getCells());
-        
+        int totalPieces = BitBoard.popCount(maxDiscs | minDiscs);
+
         // Taking a corner is very important in Othello
-        double cornerScore = calcCornerScore(view, maxPlayer, minPlayer);
+        double cornerScore = calcCornerScore(maxDiscs, minDiscs, w);
 
         // If you are adjacent to an empty corner, there is a penalty
-        double cornerAdjacentPenalty = calcCornerAdjacentPenalty(view, maxPlayer, minPlayer);
+        double cornerAdjacentPenalty = calcCornerAdjacentPenalty(maxDiscs, minDiscs, w);
 
         // edge pieces are also valuable
-        double edgeScore = calEdgeScore(view, maxPlayer, minPlayer);
+        double edgeScore = calEdgeScore(maxDiscs, minDiscs, w);
 
         // Mobility: number of legal moves available
         // More important in opening/midgame, less in endgame
-        double mobilityScore = calcMobilityScore(view, maxPlayer, minPlayer, totalPieces);
+        double mobilityScore = calcMobilityScore(maxDiscs, minDiscs, totalPieces, w);
 
         // the piece count matters different in different stages of the game.
         // in the beginning, having fewer pieces is better.
         // in the end, having more pieces is better.
-        double pieceScore = calcAdaptivePieceScore(view, maxPlayer, minPlayer, totalPieces);
+        double pieceScore = calcAdaptivePieceScore(maxDiscs, minDiscs, totalPieces, w);
 
         // this is a regular positiaonal score based on a weight matrix,
         // does not include corners and edges.
-        double positionalScore = calcPositionalScore(view, maxPlayer, minPlayer);
+        double positionalScore = calcPositionalScore(maxDiscs, minDiscs, w);
 
         // Trying to make the last move towards the end of the game.
-        double parityScore = calcParityScore(view, maxPlayer, totalPieces);
+        double parityScore = calcParityScore(maxToMove, totalPieces, w);
 
         // the number of empty squares to your pieces
         // checking the future mobility potential.
-        double potentialMobilityScore = calcPotentialMobilityScore(view, maxPlayer, minPlayer, totalPieces);
+        double potentialMobilityScore = calcPotentialMobilityScore(maxDiscs, minDiscs, totalPieces, w);
 
         // We need to weight it differently based on game phase
         // Return the value between -1.0 and 1.0
-        double totalScore = cornerScore + cornerAdjacentPenalty + edgeScore + mobilityScore + 
-                           pieceScore + positionalScore + parityScore + 
+        // (the summation order matters for the exact bits, keep it)
+        double totalScore = cornerScore + cornerAdjacentPenalty + edgeScore + mobilityScore +
+                           pieceScore + positionalScore + parityScore +
                            potentialMobilityScore;
 
+        // discs that can never be flipped again, a stronger version of the corner and
+        // edge counts above
+        if (stabilityWeight != 0.0) {
+            totalScore += stabilityWeight * calcStabilityScore(maxDiscs, minDiscs);
+        }
+
         // Clamp the result to [-1.0, 1.0] to match terminal utility range
         return Math.max(-1.0, Math.min(1.0, totalScore));
     }
 
-    // Helper to count total pieces on board
-    private static int countTotalPieces(PlayerType[][] cells) {
-        int count = 0;
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                if (cells[i][j] != null) {
-                    count++;
-                }
+    // The terms above, before their weights, for HeuristicTuner: out[i] is what weight i
+    // of HeuristicWeights is multiplied with, so the score (before the clamp and without
+    // the stability term) is the sum of weight * feature.
+    static void features(long maxDiscs, long minDiscs, boolean maxToMove, double[] out) {
+        Arrays.fill(out, 0.0);
+        int totalPieces = BitBoard.popCount(maxDiscs | minDiscs);
+        long occupied = maxDiscs | minDiscs;
+
+        out[HeuristicWeights.CORNER] = (BitBoard.popCount(maxDiscs & CORNERS)
+                - BitBoard.popCount(minDiscs & CORNERS)) / 4.0;
+        out[HeuristicWeights.EDGE] = (BitBoard.popCount(maxDiscs & EDGES)
+                - BitBoard.popCount(minDiscs & EDGES)) / (double) (4 * (8 - 2));
+        for (int k = 0; k < 4; k++) {
+            if ((occupied & (1L << CORNER_SQUARES[k])) != 0L) {
+                continue;
             }
+            out[HeuristicWeights.X_SQUARE] -= owner(maxDiscs, minDiscs, X_SQUARES[k]);
+            out[HeuristicWeights.C_SQUARE] -= owner(maxDiscs, minDiscs, C_ROW_SQUARES[k])
+                    + owner(maxDiscs, minDiscs, C_COL_SQUARES[k]);
         }
-        return count;
-    }
 
-    // Adaptive piece score based on game phase
-    private static double calcAdaptivePieceScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer, int totalPieces) {
-        PlayerType[][] cells = view.getCells();
-        int maxCnt = 0;
-        int minCnt = 0;
+        int maxMoves = BitBoard.popCount(BitBoard.legalMoves(maxDiscs, minDiscs));
+        int minMoves = BitBoard.popCount(BitBoard.legalMoves(minDiscs, maxDiscs));
+        if (maxMoves + minMoves > 0) {
+            int phase = totalPieces <= 30 ? HeuristicWeights.MOBILITY_EARLY
+                    : totalPieces <= 50 ? HeuristicWeights.MOBILITY_MID : HeuristicWeights.MOBILITY_LATE;
+            out[phase] = (double) (maxMoves - minMoves) / (maxMoves + minMoves);
+        }
 
-        // Count pieces
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                PlayerType owner = cells[i][j];
-                if (owner == maxPlayer) {
-                    maxCnt++;
-                } else if (owner == minPlayer) {
-                    minCnt++;
-                }
+        int maxCount = BitBoard.popCount(maxDiscs);
+        int minCount = BitBoard.popCount(minDiscs);
+        if (maxCount + minCount > 0) {
+            int phase = totalPieces <= 16 ? HeuristicWeights.PIECE_EARLY
+                    : totalPieces <= 48 ? HeuristicWeights.PIECE_MID : HeuristicWeights.PIECE_LATE;
+            out[phase] = (double) (maxCount - minCount) / (maxCount + minCount);
+        }
+
+        if (totalPieces >= 50) {
+            boolean odd = (64 - totalPieces) % 2 == 1;
+            out[HeuristicWeights.PARITY] = odd == maxToMove ? 1.0 : -1.0;
+        }
+
+        if (totalPieces <= 48) {
+            long empty = ~occupied;
+            int maxPotential = BitBoard.popCount(empty & neighbours(maxDiscs));
+            int minPotential = BitBoard.popCount(empty & neighbours(minDiscs));
+            if (maxPotential + minPotential > 0) {
+                out[HeuristicWeights.POTENTIAL_MOBILITY] =
+                        (double) (maxPotential - minPotential) / (maxPotential + minPotential);
             }
         }
 
+        for (int k = 0; k < HeuristicWeights.SQUARE_MASKS.length; k++) {
+            int difference = BitBoard.popCount(maxDiscs & HeuristicWeights.SQUARE_MASKS[k])
+                    - BitBoard.popCount(minDiscs & HeuristicWeights.SQUARE_MASKS[k]);
+            out[HeuristicWeights.SQUARES + k] = POSITIONAL_WEIGHT * difference / (2.0 * MAX_POSITIONAL_SCORE);
+        }
+    }
+
+    // 1 if max has a disc on sq, -1 if min has, else 0
+    private static int owner(long maxDiscs, long minDiscs, int sq) {
+        return (int) ((maxDiscs >>> sq) & 1L) - (int) ((minDiscs >>> sq) & 1L);
+    }
+
+    // ------------------------------------------------------------------
+    // Feature helpers. Every table is static and final; the floating point operations
+    // happen in the same order as in the original GameView code, so with the default
+    // weights scores come out bit for bit the same.
+    // ------------------------------------------------------------------
+
+    private static final long CORNERS = 0x8100000000000081L;
+    // edge squares without the corners
+    private static final long EDGES = 0x7e8181818181817eL;
+
+    // corner squares in the same order the GameView version visits them:
+    // (0,0), (0,7), (7,0), (7,7), with the X-square and the two C-squares of each
+    private static final int[] CORNER_SQUARES = { 0, 7, 56, 63 };
+    private static final int[] X_SQUARES = { 9, 14, 49, 54 };
+    private static final int[] C_ROW_SQUARES = { 8, 15, 48, 55 };  // (c1r, cc)
+    private static final int[] C_COL_SQUARES = { 1, 6, 57, 62 };   // (cr, c2c)
+
+    // The positional matrix, by default (HeuristicWeights keeps one value per square
+    // class, the corners are left to the corner term):
+    //       0, -20,  10,   5,   5,  10, -20,   0,
+    //     -20, -40,  -5,  -5,  -5,  -5, -40, -20,
+    //      10,  -5,   5,   1,   1,   5,  -5,  10,
+    //       5,  -5,   1,   1,   1,   1,  -5,   5,
+    //     (and the same mirrored)
+    // Its sum is divided by twice this and then weighted with POSITIONAL_WEIGHT; the
+    // square values carry the tuning, so the weight stays fixed.
+    private static final int MAX_POSITIONAL_SCORE = 64 * 40;
+    private static final double POSITIONAL_WEIGHT = 0.08;
+
+    private static double calcAdaptivePieceScore(long maxDiscs, long minDiscs, int totalPieces, HeuristicWeights w) {
+        int maxCnt = BitBoard.popCount(maxDiscs);
+        int minCnt = BitBoard.popCount(minDiscs);
         if (maxCnt + minCnt == 0) {
             return 0.0;
         }
-
         double ratio = (double) (maxCnt - minCnt) / (maxCnt + minCnt);
-        
-        // Weighting based on the current game phase. 
         double weight;
         if (totalPieces <= 16) {
-            // Start with the fewer amount of the pieces.
-            weight = -0.05;
+            weight = w.get(HeuristicWeights.PIECE_EARLY);
         } else if (totalPieces <= 48) {
-            // Piece do not matter
-            weight = 0.05;
+            weight = w.get(HeuristicWeights.PIECE_MID);
         } else {
-            // Piece count is extremely important at the end. 
-            weight = 0.5;
+            weight = w.get(HeuristicWeights.PIECE_LATE);
         }
-        
         return weight * ratio;
     }
 
-    // Penalty for having pieces adjacent to empty corners
-    private static double calcCornerAdjacentPenalty(GameView view, PlayerType maxPlayer, PlayerType minPlayer) {
-        PlayerType[][] cells = view.getCells();
-        int boardSize = cells.length;
+    private static double calcCornerAdjacentPenalty(long maxDiscs, long minDiscs, HeuristicWeights w) {
+        double xPenalty = w.get(HeuristicWeights.X_SQUARE);
+        double cPenalty = w.get(HeuristicWeights.C_SQUARE);
+        long occupied = maxDiscs | minDiscs;
         double maxPenalty = 0.0;
         double minPenalty = 0.0;
-
-        // Check all 4 corners and their adjacent squares
-        int[][] corners = {{0, 0}, {0, boardSize-1}, {boardSize-1, 0}, {boardSize-1, boardSize-1}};
-        
-        for (int[] corner : corners) {
-            int cr = corner[0];
-            int cc = corner[1];
-            
-            // If corner is EMPTY, penalize adjacent squares heavily
-            if (cells[cr][cc] == null) {
-                // Diagonal to the corner. VERY BAD
-                int xr = (cr == 0) ? 1 : boardSize - 2;
-                int xc = (cc == 0) ? 1 : boardSize - 2;
-                if (cells[xr][xc] == maxPlayer) {
-                    maxPenalty += 0.15; // Heavy penalty for X-square next to empty corner
-                } else if (cells[xr][xc] == minPlayer) {
-                    minPenalty += 0.15;
-                }
-                
-                // Orthogonal to the corner. ALSO BAD
-                int c1r = (cr == 0) ? 1 : boardSize - 2;
-                int c2c = (cc == 0) ? 1 : boardSize - 2;
-                if (cells[c1r][cc] == maxPlayer) {
-                    maxPenalty += 0.10;
-                } else if (cells[c1r][cc] == minPlayer) {
-                    minPenalty += 0.10;
-                }
-                if (cells[cr][c2c] == maxPlayer) {
-                    maxPenalty += 0.10;
-                } else if (cells[cr][c2c] == minPlayer) {
-                    minPenalty += 0.10;
-                }
+        for (int k = 0; k < 4; k++) {
+            if ((occupied & (1L << CORNER_SQUARES[k])) != 0L) {
+                continue;
+            }
+            long x = 1L << X_SQUARES[k];
+            if ((maxDiscs & x) != 0L) {
+                maxPenalty += xPenalty;
+            } else if ((minDiscs & x) != 0L) {
+                minPenalty += xPenalty;
+            }
+            long c1 = 1L << C_ROW_SQUARES[k];
+            if ((maxDiscs & c1) != 0L) {
+                maxPenalty += cPenalty;
+            } else if ((minDiscs & c1) != 0L) {
+                minPenalty += cPenalty;
+            }
+            long c2 = 1L << C_COL_SQUARES[k];
+            if ((maxDiscs & c2) != 0L) {
+                maxPenalty += cPenalty;
+            } else if ((minDiscs & c2) != 0L) {
+                minPenalty += cPenalty;
             }
         }
-        
-        // Return negative penalty (BAD SQUARE)
         return -(maxPenalty - minPenalty);
     }
 
-    // Mobility calculation
-    private static double calcMobilityScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer, int totalPieces) {
-        
-        // Get number of legal moves for each player
-        Set<Coordinate> maxMoves = view.getFrontier(maxPlayer);
-        Set<Coordinate> minMoves = view.getFrontier(minPlayer);
-
-        int maxMoveCount = maxMoves.size();
-        int minMoveCount = minMoves.size();
-
+    private static double calcMobilityScore(long maxDiscs, long minDiscs, int totalPieces, HeuristicWeights w) {
+        int maxMoveCount = BitBoard.popCount(BitBoard.legalMoves(maxDiscs, minDiscs));
+        int minMoveCount = BitBoard.popCount(BitBoard.legalMoves(minDiscs, maxDiscs));
         if (maxMoveCount + minMoveCount == 0) {
             return 0.0;
         }
-
         double ratio = (double) (maxMoveCount - minMoveCount) / (maxMoveCount + minMoveCount);
-        
-        // Mobility is MORE important in opening/midgame, LESS important in endgame
         double weight;
         if (totalPieces <= 30) {
-            weight = 0.20; // Very important early
+            weight = w.get(HeuristicWeights.MOBILITY_EARLY);
         } else if (totalPieces <= 50) {
-            weight = 0.15; // Still important mid-game
+            weight = w.get(HeuristicWeights.MOBILITY_MID);
         } else {
-            weight = 0.05; // Less important in endgame
+            weight = w.get(HeuristicWeights.MOBILITY_LATE);
         }
-        
-        // Return weighted mobility score
         return weight * ratio;
     }
 
-    // Trying to make the last move in the end session of the game. 
-    private static double calcParityScore(GameView view, PlayerType maxPlayer, int totalPieces) {
+    private static double calcParityScore(boolean maxPlayerToMove, int totalPieces, HeuristicWeights w) {
         int emptySquares = 64 - totalPieces;
-        
-        // Only matters in late game
         if (totalPieces < 50) {
             return 0.0;
         }
-        
-        // In Othello, having the last move is advantageous in endgame
-        // If ODD number of empty squares remain, the player to move now gets the last move
-        // If EVEN number remain, the opponent gets the last move
-        PlayerType currentPlayer = view.getCurrentPlayerType();
-        boolean maxPlayerToMove = (currentPlayer == maxPlayer);
-        
+        double parity = w.get(HeuristicWeights.PARITY);
         if (emptySquares % 2 == 1) {
-            // Odd squares: current player gets last move
-            return maxPlayerToMove ? 0.02 : -0.02;
+            return maxPlayerToMove ? parity : -parity;
         } else {
-            // Even squares: opponent gets last move
-            return maxPlayerToMove ? -0.02 : 0.02;
+            return maxPlayerToMove ? -parity : parity;
         }
     }
 
-    // Counting the empty spaces adjacent to the enemy's pieces.
-    private static double calcPotentialMobilityScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer, int totalPieces) {
-        // Only relevant in opening/midgame
+    // every square touching at least one disc in "discs" (plus the discs themselves,
+    // which never matters since we only look at empty squares): spread sideways first,
+    // then up and down
+    private static long neighbours(long discs) {
+        long row = discs | ((discs << 1) & BitBoard.NOT_FILE_A) | ((discs >>> 1) & BitBoard.NOT_FILE_H);
+        return row | (row << 8) | (row >>> 8);
+    }
+
+    private static double calcPotentialMobilityScore(long maxDiscs, long minDiscs, int totalPieces, HeuristicWeights w) {
         if (totalPieces > 48) {
             return 0.0;
         }
-        
-        PlayerType[][] cells = view.getCells();
-        int boardSize = cells.length;
-        int maxPotential = 0;
-        int minPotential = 0;
-
-        // Count empty squares adjacent to each player's pieces
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                if (cells[i][j] == null) {
-                    // This square is empty
-                    boolean adjacentToMax = false;
-                    boolean adjacentToMin = false;
-                    
-                    for (int di = -1; di <= 1; di++) {
-                        for (int dj = -1; dj <= 1; dj++) {
-                            if (di == 0 && dj == 0) continue;
-                            int ni = i + di;
-                            int nj = j + dj;
-                            if (ni >= 0 && ni < boardSize && nj >= 0 && nj < boardSize) {
-                                if (cells[ni][nj] == maxPlayer) adjacentToMax = true;
-                                if (cells[ni][nj] == minPlayer) adjacentToMin = true;
-                            }
-                        }
-                    }
-                    
-                    if (adjacentToMax) maxPotential++;
-                    if (adjacentToMin) minPotential++;
-                }
-            }
-        }
-
+        long empty = ~(maxDiscs | minDiscs);
+        int maxPotential = BitBoard.popCount(empty & neighbours(maxDiscs));
+        int minPotential = BitBoard.popCount(empty & neighbours(minDiscs));
         if (maxPotential + minPotential == 0) {
             return 0.0;
         }
-
         double ratio = (double) (maxPotential - minPotential) / (maxPotential + minPotential);
-        return 0.08 * ratio;
+        return w.get(HeuristicWeights.POTENTIAL_MOBILITY) * ratio;
     }
 
-    // Corner score calculation
-    private static double calcCornerScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer) {
-        PlayerType[][] cells = view.getCells();
-        int maxCorners = 0;
-        int minCorners = 0;
-
-        // Check all four corners: (0,0), (0,7), (7,0), (7,7)
-        int[][] corners = { { 0, 0 }, { 0, 7 }, { 7, 0 }, { 7, 7 } };
-
-        for (int[] corner : corners) {
-            int ro = corner[0];
-            int co = corner[1];
-            PlayerType owner = cells[ro][co];
-
-            if (owner == maxPlayer) {
-                maxCorners++;
-            } else if (owner == minPlayer) {
-                minCorners++;
-            }
+    private static double calcStabilityScore(long maxDiscs, long minDiscs) {
+        int maxStable = Stability.countStable(maxDiscs, minDiscs);
+        int minStable = Stability.countStable(minDiscs, maxDiscs);
+        if (maxStable + minStable == 0) {
+            return 0.0;
         }
+        return (double) (maxStable - minStable) / (maxStable + minStable);
+    }
 
-        // Corners are very valuable, weight heavily
+    private static double calcCornerScore(long maxDiscs, long minDiscs, HeuristicWeights w) {
+        int maxCorners = BitBoard.popCount(maxDiscs & CORNERS);
+        int minCorners = BitBoard.popCount(minDiscs & CORNERS);
         if (maxCorners + minCorners == 0) {
             return 0.0;
         }
-
-        double ratio = (double) (maxCorners - minCorners) / 4.0; // 4 total corners
-        return 0.4 * ratio; // High weight for corners
+        double ratio = (double) (maxCorners - minCorners) / 4.0;
+        return w.get(HeuristicWeights.CORNER) * ratio;
     }
 
-    // Edge score calculation
-    private static double calEdgeScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer) {
-        PlayerType[][] cells = view.getCells();
-        int maxEdges = 0;
-        int minEdges = 0;
-        int boardSize = cells.length;
-
-        // Count pieces on edges (but not corners)
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                // Skip corners (already counted in corner score)
-                if ((i == 0 && j == 0) || (i == 0 && j == boardSize - 1) ||
-                        (i == boardSize - 1 && j == 0) || (i == boardSize - 1 && j == boardSize - 1)) {
-                    continue;
-                }
-
-                // Check if on edge
-                if (i == 0 || i == boardSize - 1 || j == 0 || j == boardSize - 1) {
-                    PlayerType owner = cells[i][j];
-                    if (owner == maxPlayer) {
-                        maxEdges++;
-                    } else if (owner == minPlayer) {
-                        minEdges++;
-                    }
-                }
-            }
-        }
-
-        // Edges are valuable, but less than corners
-        int totalEdgeSpots = 4 * (boardSize - 2); // Total edge spots minus corners
+    private static double calEdgeScore(long maxDiscs, long minDiscs, HeuristicWeights w) {
+        int maxEdges = BitBoard.popCount(maxDiscs & EDGES);
+        int minEdges = BitBoard.popCount(minDiscs & EDGES);
+        int totalEdgeSpots = 4 * (8 - 2);
         if (maxEdges + minEdges == 0) {
             return 0.0;
         }
-
         double ratio = (double) (maxEdges - minEdges) / totalEdgeSpots;
-        return 0.2 * ratio;
+        return w.get(HeuristicWeights.EDGE) * ratio;
     }
 
-    // Positional score calculation using weight matrix
-    private static double calcPositionalScore(GameView view, PlayerType maxPlayer, PlayerType minPlayer) {
-        PlayerType[][] cells = view.getCells();
-        int maxPositionalScore = 0;
-        int minPositionalScore = 0;
-
-        // Position weights matrix (higher is better)
-        // Corners are excluded here (counted separately)
-        int[][] weights = {
-                { 0, -20, 10, 5, 5, 10, -20, 0 },      
-                { -20, -40, -5, -5, -5, -5, -40, -20 },
-                { 10, -5, 5, 1, 1, 5, -5, 10 },
-                { 5, -5, 1, 1, 1, 1, -5, 5 },
-                { 5, -5, 1, 1, 1, 1, -5, 5 },
-                { 10, -5, 5, 1, 1, 5, -5, 10 },
-                { -20, -40, -5, -5, -5, -5, -40, -20 },
-                { 0, -20, 10, 5, 5, 10, -20, 0 }
-        };
-
-        // Calculate positional scores
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                PlayerType owner = cells[i][j];
-                if (owner == maxPlayer) {
-                    maxPositionalScore += weights[i][j];
-                } else if (owner == minPlayer) {
-                    minPositionalScore += weights[i][j];
-                }
-            }
+    private static double calcPositionalScore(long maxDiscs, long minDiscs, HeuristicWeights w) {
+        // with the default (whole number) values these sums are exact, as they were in ints
+        double maxPositionalScore = 0.0;
+        double minPositionalScore = 0.0;
+        for (int k = 0; k < HeuristicWeights.SQUARE_MASKS.length; k++) {
+            maxPositionalScore += w.getSquareValue(k) * BitBoard.popCount(maxDiscs & HeuristicWeights.SQUARE_MASKS[k]);
+            minPositionalScore += w.getSquareValue(k) * BitBoard.popCount(minDiscs & HeuristicWeights.SQUARE_MASKS[k]);
         }
-
-        // Normalize the positional score
-        int maxPossibleScore = 64 * 40;
-        if (maxPositionalScore == 0 && minPositionalScore == 0) {
+        if (maxPositionalScore == 0.0 && minPositionalScore == 0.0) {
             return 0.0;
         }
-
-        double ratio = (double) (maxPositionalScore - minPositionalScore) / (2.0 * maxPossibleScore);
-        return 0.08 * ratio; // Slightly reduced weight since corners removed
+        double ratio = (maxPositionalScore - minPositionalScore) / (2.0 * MAX_POSITIONAL_SCORE);
+        return POSITIONAL_WEIGHT * ratio;
     }
 
 }
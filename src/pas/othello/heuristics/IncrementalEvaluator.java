@@ -0,0 +1,28 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+// An Evaluator whose features can be kept up to date move by move instead of being
+// read off the whole board at every leaf. The search keeps one state array per ply:
+// initState() fills it at the root, update() derives a child's from its parent's, and
+// evaluate() at a leaf only reads it. States are in absolute colors (black / white),
+// since the side to move changes every ply. The arrays belong to the caller, so a
+// shared evaluator still keeps no per-call state.
+public interface IncrementalEvaluator
+        extends Evaluator {
+
+    int stateSize();
+
+    void initState(long blackDiscs, long whiteDiscs, int[] state);
+
+    // child = parent after a disc of the given color on square, flipping flipped
+    void update(int[] parent, int[] child, int square, long flipped, boolean blackMoved);
+
+    // the same value as evaluate(maxDiscs, minDiscs, maxToMove), with the state of
+    // this position and the legal moves of the side to move, which the search has
+    // already generated
+    double evaluate(int[] state, long maxDiscs, long minDiscs, long moves, boolean maxToMove, boolean maxIsBlack);
+
+}
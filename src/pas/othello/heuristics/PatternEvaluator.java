@@ -0,0 +1,395 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+
+// Pattern evaluation, Logistello style: the board is cut into lines, diagonals, edges
+// and corner regions, the contents of each (empty / side to move / opponent) read as a
+// base-3 number, and that number indexes a table of trained weights. The score is the
+// sum over all 38 pattern instances, plus a mobility term and a bias, with one set of
+// tables per game stage. PatternTrainer fits the tables from self-play games.
+//
+// Every instance of a family (the 4 edges, the 4 corners, ...) shares one table. To read
+// them all the same way the board is transformed instead of the patterns: the squares of
+// a row, or of a diagonal gathered into a byte, turn into a base-3 index with one lookup
+// per color. That makes an evaluation a few transforms and about 40 table loads.
+//
+// Weights are stored as fixed point shorts (weight * SCALE) and the whole score is
+// summed in ints. Scores are in final disc difference / 64, from the side to move's
+// point of view inside this class.
+//
+// In the search the indices don't have to be read off the board at all: each square
+// adds a fixed power of 3 to the instances it belongs to, so a move only touches the
+// instances of the new disc and of the flipped ones (IncrementalEvaluator). Those
+// indices are kept with black as the first color, and a second copy of the tables with
+// the two colors swapped scores them when white is to move.
+public class PatternEvaluator
+        extends Object
+        implements IncrementalEvaluator {
+
+    public static final String DEFAULT_PATH = "data/pattern.weights";
+
+    // "OTHPAT01"
+    private static final long MAGIC = 0x4f54485041543031L;
+
+    // positions are grouped by disc count, 10 disc counts to a stage
+    public static final int NUM_STAGES = 7;
+    public static final int STAGE_DISCS = 10;
+    public static final int SCALE = 8192;
+
+    // pattern families, all instances of a family share one table
+    public static final int HV2 = 0;       // 2nd row / column
+    public static final int HV3 = 1;
+    public static final int HV4 = 2;
+    public static final int DIAG8 = 3;     // the two long diagonals
+    public static final int DIAG7 = 4;
+    public static final int DIAG6 = 5;
+    public static final int DIAG5 = 6;
+    public static final int DIAG4 = 7;
+    public static final int EDGE2X = 8;    // an edge plus its two X-squares
+    public static final int CORNER9 = 9;   // 3x3 corner block
+    public static final int MOBILITY = 10; // one weight per move of mobility difference
+    public static final int BIAS = 11;
+    public static final int NUM_TABLES = 12;
+
+    private static final int[] TABLE_SIZES = {
+            6561, 6561, 6561, 6561, 2187, 729, 243, 81, 59049, 19683, 1, 1
+    };
+    // where each table starts in a stage's weight array
+    public static final int[] TABLE_OFFSETS = new int[NUM_TABLES];
+    public static final int NUM_WEIGHTS;
+    // pattern instances per position (mobility and bias are not patterns)
+    public static final int NUM_PATTERNS = 38;
+
+    // TERNARY[b]: bit k of b becomes the base-3 digit 3^k
+    private static final int[] TERNARY = new int[256];
+
+    // the a1-h8 diagonal, and the shorter diagonals k columns above (UPPER[k]: squares
+    // (r, r + k)) and below it (LOWER[k]: squares (r + k, r))
+    private static final long MAIN_DIAGONAL = 0x8040201008040201L;
+    private static final long[] UPPER = new long[5];
+    private static final long[] LOWER = new long[5];
+
+    static {
+        int offset = 0;
+        for (int t = 0; t < NUM_TABLES; t++) {
+            TABLE_OFFSETS[t] = offset;
+            offset += TABLE_SIZES[t];
+        }
+        NUM_WEIGHTS = offset;
+
+        for (int b = 0; b < 256; b++) {
+            int value = 0;
+            for (int k = 7; k >= 0; k--) {
+                value = 3 * value + ((b >>> k) & 1);
+            }
+            TERNARY[b] = value;
+        }
+        for (int k = 1; k < UPPER.length; k++) {
+            for (int r = 0; r + k < 8; r++) {
+                UPPER[k] |= 1L << BitBoard.toSquare(r, r + k);
+                LOWER[k] |= 1L << BitBoard.toSquare(r + k, r);
+            }
+        }
+    }
+
+    // SQUARE_PATTERNS[sq]: the instances (positions in a features() array) that square
+    // sq is part of, and SQUARE_DIGITS[sq]: the power of 3 it has in each of them
+    private static final int[][] SQUARE_PATTERNS = new int[BitBoard.NUM_SQUARES][];
+    private static final int[][] SQUARE_DIGITS = new int[BitBoard.NUM_SQUARES][];
+
+    // read off features() itself, so the two can't disagree
+    static {
+        int[] empty = new int[NUM_PATTERNS];
+        int[] single = new int[NUM_PATTERNS];
+        features(0L, 0L, empty);
+        for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+            features(1L << sq, 0L, single);
+            int count = 0;
+            for (int i = 0; i < NUM_PATTERNS; i++) {
+                if (single[i] != empty[i]) {
+                    count++;
+                }
+            }
+            SQUARE_PATTERNS[sq] = new int[count];
+            SQUARE_DIGITS[sq] = new int[count];
+            count = 0;
+            for (int i = 0; i < NUM_PATTERNS; i++) {
+                if (single[i] != empty[i]) {
+                    SQUARE_PATTERNS[sq][count] = i;
+                    SQUARE_DIGITS[sq][count] = single[i] - empty[i];
+                    count++;
+                }
+            }
+        }
+    }
+
+    // [stage][TABLE_OFFSETS[table] + index]
+    private final short[][] weights;
+    // the same with digits 1 and 2 of every index exchanged: swapped[i] scores for the
+    // second color what weights[i] scores for the first
+    private final short[][] swapped;
+
+    public PatternEvaluator(short[][] weights) {
+        if (weights.length != NUM_STAGES || weights[0].length != NUM_WEIGHTS) {
+            throw new IllegalArgumentException("pattern weights of the wrong shape");
+        }
+        this.weights = weights;
+        this.swapped = new short[NUM_STAGES][NUM_WEIGHTS];
+        for (int t = 0; t < NUM_TABLES; t++) {
+            for (int index = 0; index < TABLE_SIZES[t]; index++) {
+                int other = swapColors(index);
+                for (int stage = 0; stage < NUM_STAGES; stage++) {
+                    this.swapped[stage][TABLE_OFFSETS[t] + index] = weights[stage][TABLE_OFFSETS[t] + other];
+                }
+            }
+        }
+    }
+
+    private static int swapColors(int index) {
+        int other = 0;
+        for (int power = 1; index > 0; index /= 3, power *= 3) {
+            int digit = index % 3;
+            other += (digit == 0 ? 0 : 3 - digit) * power;
+        }
+        return other;
+    }
+
+    public static int stage(int discs) {
+        return Math.min(NUM_STAGES - 1, discs / STAGE_DISCS);
+    }
+
+    @Override
+    public double evaluate(long maxDiscs, long minDiscs, boolean maxToMove) {
+        long own = maxToMove ? maxDiscs : minDiscs;
+        long opp = maxToMove ? minDiscs : maxDiscs;
+        return toMax(score(own, opp), maxToMove);
+    }
+
+    private static double toMax(int score, boolean maxToMove) {
+        double value = Math.max(-1.0, Math.min(1.0, (double) score / SCALE));
+        return maxToMove ? value : -value;
+    }
+
+    @Override
+    public int stateSize() {
+        return NUM_PATTERNS;
+    }
+
+    @Override
+    public void initState(long blackDiscs, long whiteDiscs, int[] state) {
+        features(blackDiscs, whiteDiscs, state);
+    }
+
+    // A black disc is digit 1 and a white one digit 2: a new disc adds its digit, a
+    // flip to black takes one off and a flip to white adds one.
+    @Override
+    public void update(int[] parent, int[] child, int square, long flipped, boolean blackMoved) {
+        System.arraycopy(parent, 0, child, 0, NUM_PATTERNS);
+        int[] patterns = SQUARE_PATTERNS[square];
+        int[] digits = SQUARE_DIGITS[square];
+        int placed = blackMoved ? 1 : 2;
+        for (int k = 0; k < patterns.length; k++) {
+            child[patterns[k]] += placed * digits[k];
+        }
+        int flip = blackMoved ? -1 : 1;
+        for (long f = flipped; f != 0L; f &= f - 1) {
+            int sq = Long.numberOfTrailingZeros(f);
+            patterns = SQUARE_PATTERNS[sq];
+            digits = SQUARE_DIGITS[sq];
+            for (int k = 0; k < patterns.length; k++) {
+                child[patterns[k]] += flip * digits[k];
+            }
+        }
+    }
+
+    @Override
+    public double evaluate(int[] state, long maxDiscs, long minDiscs, long moves, boolean maxToMove,
+                           boolean maxIsBlack) {
+        long own = maxToMove ? maxDiscs : minDiscs;
+        long opp = maxToMove ? minDiscs : maxDiscs;
+        short[][] tables = maxToMove == maxIsBlack ? this.weights : this.swapped;
+        short[] w = tables[stage(BitBoard.popCount(own | opp))];
+        int mobility = BitBoard.popCount(moves) - BitBoard.popCount(BitBoard.legalMoves(opp, own));
+        int s = w[TABLE_OFFSETS[MOBILITY]] * mobility + w[TABLE_OFFSETS[BIAS]];
+        for (int i = 0; i < NUM_PATTERNS; i++) {
+            s += w[state[i]];
+        }
+        return toMax(s, maxToMove);
+    }
+
+    // the raw fixed point score for the side to move
+    public int score(long own, long opp) {
+        short[] w = this.weights[stage(BitBoard.popCount(own | opp))];
+
+        // the board seen transposed, mirrored and flipped, so every instance of a
+        // family is read from the same place
+        long dOwn = Symmetry.flipDiagonal(own);
+        long dOpp = Symmetry.flipDiagonal(opp);
+        long mOwn = Symmetry.mirrorHorizontal(own);
+        long mOpp = Symmetry.mirrorHorizontal(opp);
+        long fOwn = Long.reverseBytes(own);
+        long fOpp = Long.reverseBytes(opp);
+        long dfOwn = Long.reverseBytes(dOwn);
+        long dfOpp = Long.reverseBytes(dOpp);
+        long mfOwn = Long.reverseBytes(mOwn);
+        long mfOpp = Long.reverseBytes(mOpp);
+
+        int s = w[TABLE_OFFSETS[MOBILITY]] * mobility(own, opp) + w[TABLE_OFFSETS[BIAS]];
+        // rows of the board and of its transpose are the rows and columns
+        int hv2 = TABLE_OFFSETS[HV2];
+        s += w[hv2 + row(own, opp, 1)] + w[hv2 + row(own, opp, 6)]
+                + w[hv2 + row(dOwn, dOpp, 1)] + w[hv2 + row(dOwn, dOpp, 6)];
+        int hv3 = TABLE_OFFSETS[HV3];
+        s += w[hv3 + row(own, opp, 2)] + w[hv3 + row(own, opp, 5)]
+                + w[hv3 + row(dOwn, dOpp, 2)] + w[hv3 + row(dOwn, dOpp, 5)];
+        int hv4 = TABLE_OFFSETS[HV4];
+        s += w[hv4 + row(own, opp, 3)] + w[hv4 + row(own, opp, 4)]
+                + w[hv4 + row(dOwn, dOpp, 3)] + w[hv4 + row(dOwn, dOpp, 4)];
+        // diagonals of the board and of its mirror image are the diagonals and the
+        // anti-diagonals
+        int diag8 = TABLE_OFFSETS[DIAG8];
+        s += w[diag8 + diagonal(own, opp, MAIN_DIAGONAL, 0)] + w[diag8 + diagonal(mOwn, mOpp, MAIN_DIAGONAL, 0)];
+        for (int k = 1; k <= 4; k++) {
+            int d = TABLE_OFFSETS[DIAG8 + k];
+            s += w[d + diagonal(own, opp, UPPER[k], k)] + w[d + diagonal(own, opp, LOWER[k], 0)]
+                    + w[d + diagonal(mOwn, mOpp, UPPER[k], k)] + w[d + diagonal(mOwn, mOpp, LOWER[k], 0)];
+        }
+        int edge = TABLE_OFFSETS[EDGE2X];
+        s += w[edge + edge(own, opp)] + w[edge + edge(fOwn, fOpp)]
+                + w[edge + edge(dOwn, dOpp)] + w[edge + edge(dfOwn, dfOpp)];
+        int corner = TABLE_OFFSETS[CORNER9];
+        s += w[corner + corner(own, opp)] + w[corner + corner(fOwn, fOpp)]
+                + w[corner + corner(mOwn, mOpp)] + w[corner + corner(mfOwn, mfOpp)];
+        return s;
+    }
+
+    // The same patterns as score(), as indices into a stage's weight array
+    // (TABLE_OFFSETS included), for the trainer. Keep the two in step.
+    public static void features(long own, long opp, int[] out) {
+        long dOwn = Symmetry.flipDiagonal(own);
+        long dOpp = Symmetry.flipDiagonal(opp);
+        long mOwn = Symmetry.mirrorHorizontal(own);
+        long mOpp = Symmetry.mirrorHorizontal(opp);
+        long fOwn = Long.reverseBytes(own);
+        long fOpp = Long.reverseBytes(opp);
+        long dfOwn = Long.reverseBytes(dOwn);
+        long dfOpp = Long.reverseBytes(dOpp);
+        long mfOwn = Long.reverseBytes(mOwn);
+        long mfOpp = Long.reverseBytes(mOpp);
+
+        int i = 0;
+        for (int t = HV2; t <= HV4; t++) {
+            int o = TABLE_OFFSETS[t];
+            int r = t - HV2 + 1;
+            out[i++] = o + row(own, opp, r);
+            out[i++] = o + row(own, opp, 7 - r);
+            out[i++] = o + row(dOwn, dOpp, r);
+            out[i++] = o + row(dOwn, dOpp, 7 - r);
+        }
+        out[i++] = TABLE_OFFSETS[DIAG8] + diagonal(own, opp, MAIN_DIAGONAL, 0);
+        out[i++] = TABLE_OFFSETS[DIAG8] + diagonal(mOwn, mOpp, MAIN_DIAGONAL, 0);
+        for (int k = 1; k <= 4; k++) {
+            int o = TABLE_OFFSETS[DIAG8 + k];
+            out[i++] = o + diagonal(own, opp, UPPER[k], k);
+            out[i++] = o + diagonal(own, opp, LOWER[k], 0);
+            out[i++] = o + diagonal(mOwn, mOpp, UPPER[k], k);
+            out[i++] = o + diagonal(mOwn, mOpp, LOWER[k], 0);
+        }
+        out[i++] = TABLE_OFFSETS[EDGE2X] + edge(own, opp);
+        out[i++] = TABLE_OFFSETS[EDGE2X] + edge(fOwn, fOpp);
+        out[i++] = TABLE_OFFSETS[EDGE2X] + edge(dOwn, dOpp);
+        out[i++] = TABLE_OFFSETS[EDGE2X] + edge(dfOwn, dfOpp);
+        out[i++] = TABLE_OFFSETS[CORNER9] + corner(own, opp);
+        out[i++] = TABLE_OFFSETS[CORNER9] + corner(fOwn, fOpp);
+        out[i++] = TABLE_OFFSETS[CORNER9] + corner(mOwn, mOpp);
+        out[i++] = TABLE_OFFSETS[CORNER9] + corner(mfOwn, mfOpp);
+    }
+
+    // moves of the side to move minus moves of the opponent
+    public static int mobility(long own, long opp) {
+        return BitBoard.popCount(BitBoard.legalMoves(own, opp)) - BitBoard.popCount(BitBoard.legalMoves(opp, own));
+    }
+
+    // base-3 index of up to 8 squares given as the low byte of each color
+    private static int digits(long ownBits, long oppBits) {
+        return TERNARY[(int) ownBits & 0xff] + 2 * TERNARY[(int) oppBits & 0xff];
+    }
+
+    private static int row(long own, long opp, int r) {
+        return digits(own >>> (8 * r), opp >>> (8 * r));
+    }
+
+    // Squares of a mask with at most one square per column, moved into one byte
+    // (bit c = column c). The multiply adds up 8 copies shifted a row apart, and since
+    // the columns differ no two bits ever land on each other.
+    private static long gather(long bits, long mask) {
+        return ((bits & mask) * 0x0101010101010101L) >>> 56;
+    }
+
+    private static int diagonal(long own, long opp, long mask, int firstColumn) {
+        return digits(gather(own, mask) >>> firstColumn, gather(opp, mask) >>> firstColumn);
+    }
+
+    // the first row, then b2 and g2
+    private static int edge(long own, long opp) {
+        int b2 = (int) (own >>> 9) & 1 | ((int) (opp >>> 9) & 1) << 1;
+        int g2 = (int) (own >>> 14) & 1 | ((int) (opp >>> 14) & 1) << 1;
+        return row(own, opp, 0) + 6561 * b2 + 19683 * g2;
+    }
+
+    // a1..c3, row by row
+    private static int corner(long own, long opp) {
+        return digits(own & 7L, opp & 7L)
+                + 27 * digits((own >>> 8) & 7L, (opp >>> 8) & 7L)
+                + 729 * digits((own >>> 16) & 7L, (opp >>> 16) & 7L);
+    }
+
+    public static PatternEvaluator load(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(path))))) {
+            if (in.readLong() != MAGIC) {
+                throw new IllegalArgumentException("not a pattern weights file");
+            }
+            if (in.readInt() != NUM_STAGES || in.readInt() != NUM_WEIGHTS) {
+                throw new IllegalArgumentException("pattern weights for a different set of patterns");
+            }
+            short[][] weights = new short[NUM_STAGES][NUM_WEIGHTS];
+            for (short[] stageWeights : weights) {
+                for (int i = 0; i < NUM_WEIGHTS; i++) {
+                    stageWeights[i] = in.readShort();
+                }
+            }
+            return new PatternEvaluator(weights);
+        }
+    }
+
+    // Binary, gzipped (most of the big tables are never visited and stay 0):
+    // magic, stages, weights per stage, then the weights stage by stage as shorts.
+    public static void write(String path, short[][] weights) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(path))))) {
+            out.writeLong(MAGIC);
+            out.writeInt(NUM_STAGES);
+            out.writeInt(NUM_WEIGHTS);
+            for (short[] stageWeights : weights) {
+                for (short weight : stageWeights) {
+                    out.writeShort(weight);
+                }
+            }
+        }
+    }
+
+}
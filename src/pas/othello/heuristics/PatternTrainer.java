@@ -0,0 +1,209 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+import src.pas.othello.corpus.PositionReader;
+
+// Fits the PatternEvaluator weights offline.
+//
+// Data: a position corpus with game results, from SelfPlay or from agents run with
+// -Dothello.corpus. A SOLVED position (SelfPlay solves from 14 empties on) is labelled
+// with its exact final disc difference, and every other one with the result of its game.
+//
+// Fit: least squares of disc difference / 64 on the pattern weights, by gradient
+// descent where each weight's step is its summed error divided by how often it was
+// seen (Buro's trick, rare patterns don't get thrown around). Every position is used in
+// all 8 orientations. One tenth of the games is held out, and the weights of the epoch
+// that did best on them are the ones written.
+//     java -cp "lib/*:." src.pas.othello.heuristics.PatternTrainer <corpus> [out] [epochs]
+// Defaults: data/pattern.weights, 30 epochs.
+public class PatternTrainer
+        extends Object {
+
+    // weights seen fewer times than this are left at 0
+    private static final int MIN_COUNT = 2;
+    // step size on each weight's average error; about one over the number of
+    // weights that are active in a position
+    private static final double LEARNING_RATE = 1.0 / 20.0;
+
+    // the training set: side to move, opponent, exact or game-result disc difference
+    // for the side to move, and which game it came from
+    private long[] own = new long[1 << 16];
+    private long[] opp = new long[1 << 16];
+    private byte[] label = new byte[1 << 16];
+    private int[] game = new int[1 << 16];
+    private int count;
+    private int games;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PatternTrainer <corpus> [out] [epochs]");
+            System.exit(1);
+        }
+        String path = args.length > 1 ? args[1] : PatternEvaluator.DEFAULT_PATH;
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        PatternTrainer trainer = new PatternTrainer();
+        long startNanos = System.nanoTime();
+        trainer.load(args[0]);
+        System.out.println("[INFO] PatternTrainer: " + trainer.count + " positions from " + trainer.games
+                + " games, timeS=" + (System.nanoTime() - startNanos) / 1000000000L);
+        short[][] weights = trainer.train(epochs);
+        PatternEvaluator.write(path, weights);
+        System.out.println("[INFO] PatternTrainer: wrote " + path + ", timeS="
+                + (System.nanoTime() - startNanos) / 1000000000L);
+    }
+
+    // Every labelled position. A corpus keeps each game's positions together, so a new
+    // game starts wherever the disc count doesn't go up (an agent's corpus only has the
+    // positions it moved in, so its games need not start at 4 discs).
+    private void load(String path) throws IOException {
+        try (PositionReader reader = PositionReader.open(path)) {
+            int lastDiscs = BitBoard.NUM_SQUARES;
+            while (reader.next()) {
+                long own = reader.getOwn();
+                long opp = reader.getOpp();
+                int discs = BitBoard.popCount(own | opp);
+                if (discs <= lastDiscs) {
+                    this.games++;
+                }
+                lastDiscs = discs;
+                if (reader.isSolved()) {
+                    add(own, opp, (int) Math.round(reader.getScore()), this.games - 1);
+                } else if (reader.hasResult()) {
+                    add(own, opp, reader.getResult(), this.games - 1);
+                }
+            }
+        }
+    }
+
+    private void add(long own, long opp, int label, int game) {
+        if (this.count == this.own.length) {
+            this.own = Arrays.copyOf(this.own, this.count * 2);
+            this.opp = Arrays.copyOf(this.opp, this.count * 2);
+            this.label = Arrays.copyOf(this.label, this.count * 2);
+            this.game = Arrays.copyOf(this.game, this.count * 2);
+        }
+        this.own[this.count] = own;
+        this.opp[this.count] = opp;
+        this.label[this.count] = (byte) label;
+        this.game[this.count] = game;
+        this.count++;
+    }
+
+    private short[][] train(int epochs) {
+        int stages = PatternEvaluator.NUM_STAGES;
+        int size = PatternEvaluator.NUM_WEIGHTS;
+        int mobility = PatternEvaluator.TABLE_OFFSETS[PatternEvaluator.MOBILITY];
+        int bias = PatternEvaluator.TABLE_OFFSETS[PatternEvaluator.BIAS];
+        double[][] weights = new double[stages][size];
+        double[][] gradient = new double[stages][size];
+        // how often each weight is used over the training set; the mobility "count" is
+        // the sum of squared mobility, so its step is a plain least squares step too
+        double[][] counts = new double[stages][size];
+        int[] features = new int[PatternEvaluator.NUM_PATTERNS];
+        int testFrom = this.games - this.games / 10;
+        double[][] best = new double[stages][];
+        double bestRMSE = Double.MAX_VALUE;
+        int bestEpoch = 0;
+
+        // one pass to count
+        for (int i = 0; i < this.count; i++) {
+            if (this.game[i] >= testFrom) {
+                continue;
+            }
+            double[] c = counts[PatternEvaluator.stage(BitBoard.popCount(this.own[i] | this.opp[i]))];
+            for (int sym = 0; sym < Symmetry.COUNT; sym++) {
+                long o = Symmetry.transform(this.own[i], sym);
+                long p = Symmetry.transform(this.opp[i], sym);
+                PatternEvaluator.features(o, p, features);
+                for (int f : features) {
+                    c[f]++;
+                }
+                int m = PatternEvaluator.mobility(o, p);
+                c[mobility] += m * m;
+                c[bias]++;
+            }
+        }
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double trainError = 0.0;
+            double testError = 0.0;
+            long trainCount = 0L;
+            long testCount = 0L;
+            for (double[] g : gradient) {
+                Arrays.fill(g, 0.0);
+            }
+            for (int i = 0; i < this.count; i++) {
+                boolean test = this.game[i] >= testFrom;
+                int stage = PatternEvaluator.stage(BitBoard.popCount(this.own[i] | this.opp[i]));
+                double[] w = weights[stage];
+                double[] g = gradient[stage];
+                double target = this.label[i] / (double) BitBoard.NUM_SQUARES;
+                // the held out games are only scored in their own orientation
+                int symmetries = test ? 1 : Symmetry.COUNT;
+                for (int sym = 0; sym < symmetries; sym++) {
+                    long o = Symmetry.transform(this.own[i], sym);
+                    long p = Symmetry.transform(this.opp[i], sym);
+                    PatternEvaluator.features(o, p, features);
+                    int m = PatternEvaluator.mobility(o, p);
+                    double prediction = w[mobility] * m + w[bias];
+                    for (int f : features) {
+                        prediction += w[f];
+                    }
+                    double error = target - prediction;
+                    if (test) {
+                        testError += error * error;
+                        testCount++;
+                        continue;
+                    }
+                    trainError += error * error;
+                    trainCount++;
+                    for (int f : features) {
+                        g[f] += error;
+                    }
+                    g[mobility] += error * m;
+                    g[bias] += error;
+                }
+            }
+            double trainRMSE = BitBoard.NUM_SQUARES * Math.sqrt(trainError / Math.max(1L, trainCount));
+            double testRMSE = BitBoard.NUM_SQUARES * Math.sqrt(testError / Math.max(1L, testCount));
+            // the errors are those of the weights before this epoch's step
+            if (testRMSE < bestRMSE) {
+                bestRMSE = testRMSE;
+                bestEpoch = epoch;
+                for (int stage = 0; stage < stages; stage++) {
+                    best[stage] = weights[stage].clone();
+                }
+            }
+            for (int stage = 0; stage < stages; stage++) {
+                for (int k = 0; k < size; k++) {
+                    if (counts[stage][k] >= MIN_COUNT) {
+                        weights[stage][k] += LEARNING_RATE * gradient[stage][k] / counts[stage][k];
+                    }
+                }
+            }
+            System.out.println(String.format(Locale.ROOT,
+                    "[INFO] PatternTrainer: epoch=%d trainRMSE=%.2f testRMSE=%.2f (discs)",
+                    epoch, trainRMSE, testRMSE));
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "[INFO] PatternTrainer: keeping epoch %d, testRMSE=%.2f (discs)", bestEpoch, bestRMSE));
+
+        short[][] quantized = new short[stages][size];
+        for (int stage = 0; stage < stages; stage++) {
+            for (int k = 0; k < size; k++) {
+                long value = Math.round(best[stage][k] * PatternEvaluator.SCALE);
+                quantized[stage][k] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+        return quantized;
+    }
+
+}
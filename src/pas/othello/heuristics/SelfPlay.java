@@ -0,0 +1,125 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.bench.BenchPositions;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.corpus.PositionCorpus;
+import src.pas.othello.corpus.PositionWriter;
+import src.pas.othello.search.EndgameSolver;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.Searcher;
+import src.pas.othello.search.TranspositionTable;
+
+// Self-play games for the trainers (PatternTrainer, HeuristicTuner), written to a
+// position corpus (see PositionCorpus).
+//
+// Both sides play a shallow fixed-depth search, with random moves for the first
+// RANDOM_PLIES plies and now and then later, so the games spread out. From SOLVE_EMPTIES
+// empties on the endgame solver plays both sides: those positions are SOLVED, with the
+// exact final disc difference as their score. Every position gets the game result.
+//     java -cp "lib/*:." src.pas.othello.heuristics.SelfPlay <corpus> [games] [depth] [eval]
+// Defaults: 20000 games at depth 4, played by the pattern evaluator (the heuristic when
+// there are no pattern weights yet, as for a first PatternTrainer run).
+public class SelfPlay
+        extends Object {
+
+    private static final long SEED = 4242L;
+    private static final int TT_SIZE_MB = 4;
+    private static final int SOLVE_EMPTIES = 14;
+    private static final int RANDOM_PLIES = 8;
+    private static final double RANDOM_MOVE_RATE = 0.05;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: SelfPlay <corpus> [games] [depth] [heuristic|pattern]");
+            System.exit(1);
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        String eval = args.length > 3 ? args[3] : "pattern";
+
+        long startNanos = System.nanoTime();
+        Evaluator evaluator = evaluator(eval);
+        long positions = generate(args[0], games, depth, evaluator);
+        System.out.println("[INFO] SelfPlay: wrote " + positions + " positions from " + games + " games ("
+                + evaluator.getClass().getSimpleName() + ") to " + args[0] + ", timeS="
+                + (System.nanoTime() - startNanos) / 1000000000L);
+    }
+
+    // the stronger evaluator plays, so the results say more about the positions
+    private static Evaluator evaluator(String name) throws IOException {
+        if ("heuristic".equals(name)) {
+            return HeuristicEvaluator.INSTANCE;
+        } else if (!"pattern".equals(name)) {
+            throw new IllegalArgumentException("unknown evaluator: " + name);
+        }
+        return new File(PatternEvaluator.DEFAULT_PATH).isFile()
+                ? PatternEvaluator.load(PatternEvaluator.DEFAULT_PATH) : HeuristicEvaluator.INSTANCE;
+    }
+
+    // Writes the games to a new corpus at path; returns the number of positions.
+    public static long generate(String path, int games, int depth, Evaluator evaluator) throws IOException {
+        Random random = new Random(SEED);
+        SearchConfig config = new SearchConfig().setFixedDepth(depth).setTTSizeMB(TT_SIZE_MB);
+        Searcher black = new Searcher(new TranspositionTable(TT_SIZE_MB), config, true, 0, null, evaluator);
+        Searcher white = new Searcher(new TranspositionTable(TT_SIZE_MB), config, false, 0, null, evaluator);
+        EndgameSolver solver = new EndgameSolver(TT_SIZE_MB);
+
+        try (PositionWriter writer = new PositionWriter(path, false)) {
+            for (int g = 0; g < games; g++) {
+                writer.beginGame();
+                long b = BenchPositions.START_BLACK;
+                long w = BenchPositions.START_WHITE;
+                boolean blackToMove = true;
+                for (int ply = 0; ; ply++) {
+                    long own = blackToMove ? b : w;
+                    long opp = blackToMove ? w : b;
+                    long moves = BitBoard.legalMoves(own, opp);
+                    if (moves == 0L) {
+                        if (BitBoard.legalMoves(opp, own) == 0L) {
+                            break;
+                        }
+                        blackToMove = !blackToMove;
+                        continue;
+                    }
+
+                    int move;
+                    int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp);
+                    if (empties <= SOLVE_EMPTIES) {
+                        move = solver.solve(own, opp, blackToMove, Long.MAX_VALUE);
+                        writer.add(b, w, blackToMove, move, empties, solver.getBestScore(),
+                                PositionCorpus.HAS_SCORE | PositionCorpus.SOLVED);
+                    } else if (ply < RANDOM_PLIES || random.nextDouble() < RANDOM_MOVE_RATE) {
+                        move = BitBoard.randomMove(moves, random);
+                        writer.add(b, w, blackToMove, move);
+                    } else {
+                        Searcher searcher = blackToMove ? black : white;
+                        move = searcher.search(own, opp, Zobrist.hash(own, opp, blackToMove), depth,
+                                System.nanoTime(), Long.MAX_VALUE / 4, false);
+                        writer.add(b, w, blackToMove, move, depth, searcher.getBestScore(), PositionCorpus.HAS_SCORE);
+                    }
+                    long flipped = BitBoard.flips(own, opp, move);
+                    own |= flipped | (1L << move);
+                    opp &= ~flipped;
+                    b = blackToMove ? own : opp;
+                    w = blackToMove ? opp : own;
+                    blackToMove = !blackToMove;
+                }
+                writer.endGame(BitBoard.popCount(b) - BitBoard.popCount(w));
+                if ((g + 1) % 1000 == 0) {
+                    System.out.println("[INFO] SelfPlay: " + (g + 1) + " games");
+                }
+            }
+            // every game is over, so this writes all of them
+            writer.flush();
+            return writer.getWrittenCount();
+        }
+    }
+
+}
@@ -0,0 +1,374 @@
+package src.pas.othello.match;
+
+
+// SYSTEM IMPORTS
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.agents.Agent;
+import edu.bu.pas.othello.agents.RandomAgent;
+import edu.bu.pas.othello.agents.TimedAgent;
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.utils.Coordinate;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.SearchStats;
+
+
+// Headless tournament between two agents: no rendering and no framework Game loop, the
+// board is kept as bitboards and each agent gets a GameView of it when it is to move.
+// Every opening of an Openings file is played twice, once with each agent as black,
+// and several games run at a time on a thread pool. Each finished game appends a CSV
+// row with its result and the running totals (W/L/D for agent A, score, Elo difference
+// with a 95% margin, nodes/sec, time-outs), so a long run can be watched or cut short.
+//     java -cp "lib/*:." src.pas.othello.match.MatchRunner -a agent -b depth:4 -m 100 -j 4
+// Agents:
+//     agent[:key=value,...]     OthelloAgent, configured from the -Dothello.* properties
+//                               with these on top (keys without the "othello." prefix),
+//                               e.g. agent:eval=heuristic,probcut.sigmas=1.5
+//     depth:<d>[:key=value,...] the same at a fixed depth d, ignoring the clock
+//     random                    the framework's RandomAgent
+//     <class name>              any framework Agent with a (PlayerType, long) constructor
+// A move that takes longer than the budget is played anyway and counted as a time-out
+// (the framework would pass instead). A missing or illegal move loses the game.
+public class MatchRunner
+    extends Object
+{
+
+    private static final String CSV_HEADER = "game,opening,colorA,result,discsA,discsB,end,movesA,movesB,"
+            + "timeoutsA,timeoutsB,maxMoveMsA,maxMoveMsB,npsA,npsB,"
+            + "winsA,lossesA,draws,scoreA,elo,eloMargin,avgNpsA,avgNpsB,totalTimeoutsA,totalTimeoutsB";
+
+    private final String specA;
+    private final String specB;
+    private final long moveMS;
+    private final Openings openings;
+    private final PrintWriter csv;
+
+    // running totals, updated as games finish
+    private int games;
+    private int wins;
+    private int losses;
+    private int draws;
+    private final long[] nodes = new long[2];
+    private final long[] searchNanos = new long[2];
+    private final int[] timeouts = new int[2];
+
+    public MatchRunner(String specA, String specB, long moveMS, Openings openings, PrintWriter csv)
+    {
+        this.specA = specA;
+        this.specB = specB;
+        this.moveMS = moveMS;
+        this.openings = openings;
+        this.csv = csv;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        ArgumentParser parser = ArgumentParsers.newFor("MatchRunner").build()
+                .defaultHelp(true)
+                .description("Plays two agents against each other from a file of openings, several games at a time.");
+        parser.addArgument("-a", "--agentA").setDefault("agent").help("agent A (agent[:k=v,...], depth:<d>[:k=v,...], random or a class name)");
+        parser.addArgument("-b", "--agentB").setDefault("random").help("agent B, same forms as agent A");
+        parser.addArgument("-m", "--maxThinkingTimeInMS").type(Long.class).setDefault(100L).help("time budget per move");
+        parser.addArgument("-o", "--openings").setDefault(Openings.DEFAULT_PATH).help("openings file (see Openings)");
+        parser.addArgument("-n", "--numGames").type(Integer.class).setDefault(0).help("games to play (0 = every opening with both colors)");
+        parser.addArgument("-j", "--threads").type(Integer.class).setDefault(Runtime.getRuntime().availableProcessors()).help("games played at the same time");
+        parser.addArgument("-c", "--csv").setDefault("match.csv").help("results file");
+        Namespace ns = parser.parseArgsOrFail(args);
+
+        Openings openings = Openings.load(ns.getString("openings"));
+        int numGames = ns.getInt("numGames") > 0 ? ns.getInt("numGames") : 2 * openings.size();
+        int threads = Math.max(1, ns.getInt("threads"));
+        System.out.println("[INFO] MatchRunner: " + ns.getString("agentA") + " vs " + ns.getString("agentB")
+                + ", " + numGames + " games, " + ns.getLong("maxThinkingTimeInMS") + " ms per move, "
+                + threads + " at a time");
+
+        try (PrintWriter csv = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(ns.getString("csv")), StandardCharsets.UTF_8))) {
+            csv.println(CSV_HEADER);
+            MatchRunner runner = new MatchRunner(ns.getString("agentA"), ns.getString("agentB"),
+                    ns.getLong("maxThinkingTimeInMS"), openings, csv);
+            runner.run(numGames, threads);
+            System.out.println("[INFO] MatchRunner: " + runner.summary());
+        }
+    }
+
+    public void run(int numGames, int threads) throws InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int g = 0; g < numGames; g++) {
+            final int game = g;
+            results.add(pool.submit(() -> {
+                record(play(game));
+                return null;
+            }));
+        }
+        pool.shutdown();
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                // one broken game shouldn't throw away the rest of the run
+                e.getCause().printStackTrace();
+            }
+        }
+    }
+
+    // what one game came to, from agent A's side; [0] = A, [1] = B
+    private static final class GameResult
+        extends Object
+    {
+        int game;
+        int opening;
+        boolean aIsBlack;
+        int[] discs = new int[2];
+        // the side that made a missing or illegal move, or -1
+        int forfeit = -1;
+        int[] moves = new int[2];
+        int[] timeouts = new int[2];
+        long[] maxMoveNanos = new long[2];
+        long[] nodes = new long[2];
+        long[] searchNanos = new long[2];
+
+        // +1 A won, -1 A lost, 0 draw
+        int outcome()
+        {
+            if (this.forfeit >= 0) {
+                return this.forfeit == 0 ? -1 : 1;
+            }
+            return Integer.signum(this.discs[0] - this.discs[1]);
+        }
+    }
+
+    // Game g: opening g / 2, agent A black in even games.
+    private GameResult play(int game)
+    {
+        GameResult result = new GameResult();
+        result.game = game;
+        result.opening = (game / 2) % this.openings.size();
+        result.aIsBlack = game % 2 == 0;
+        // [0] = black, [1] = white
+        Agent[] agents = {
+                createAgent(result.aIsBlack ? this.specA : this.specB, PlayerType.BLACK, this.moveMS),
+                createAgent(result.aIsBlack ? this.specB : this.specA, PlayerType.WHITE, this.moveMS)
+        };
+
+        long black = this.openings.getBlack(result.opening);
+        long white = this.openings.getWhite(result.opening);
+        boolean blackToMove = this.openings.isBlackToMove(result.opening);
+        long budgetNanos = this.moveMS * 1000000L;
+        while (true) {
+            long own = blackToMove ? black : white;
+            long opp = blackToMove ? white : black;
+            long moves = BitBoard.legalMoves(own, opp);
+            if (moves == 0L) {
+                if (BitBoard.legalMoves(opp, own) == 0L) {
+                    break;
+                }
+                blackToMove = !blackToMove;
+                continue;
+            }
+            Agent agent = agents[blackToMove ? 0 : 1];
+            // index into the result arrays: A or B
+            int side = blackToMove == result.aIsBlack ? 0 : 1;
+            GameView view = BitBoard.toGameView(black, white, blackToMove ? PlayerType.BLACK : PlayerType.WHITE);
+            long startNanos = System.nanoTime();
+            Coordinate move = chooseMove(agent, view);
+            long moveNanos = System.nanoTime() - startNanos;
+
+            result.moves[side]++;
+            result.maxMoveNanos[side] = Math.max(result.maxMoveNanos[side], moveNanos);
+            if (moveNanos > budgetNanos) {
+                result.timeouts[side]++;
+            }
+            if (agent instanceof OthelloAgent) {
+                SearchStats stats = ((OthelloAgent) agent).getLastSearchStats();
+                result.nodes[side] += stats.getNodes();
+                result.searchNanos[side] += stats.getTimeNanos();
+            }
+
+            int sq = move != null ? BitBoard.toSquare(move) : -1;
+            if (sq < 0 || sq >= BitBoard.NUM_SQUARES || (moves & (1L << sq)) == 0L) {
+                result.forfeit = side;
+                break;
+            }
+            long flipped = BitBoard.flips(own, opp, sq);
+            own |= flipped | (1L << sq);
+            opp &= ~flipped;
+            black = blackToMove ? own : opp;
+            white = blackToMove ? opp : own;
+            blackToMove = !blackToMove;
+        }
+
+        result.discs[result.aIsBlack ? 0 : 1] = BitBoard.popCount(black);
+        result.discs[result.aIsBlack ? 1 : 0] = BitBoard.popCount(white);
+        GameView last = BitBoard.toGameView(black, white, blackToMove ? PlayerType.BLACK : PlayerType.WHITE);
+        for (Agent agent : agents) {
+            agent.afterGameEnds(last);
+        }
+        return result;
+    }
+
+    // TimedAgent.makeMove() runs every move on a new thread and exits the JVM if the
+    // agent throws; here the game already runs on a pool thread and we time it ourselves
+    private static Coordinate chooseMove(Agent agent, GameView view)
+    {
+        if (agent instanceof TimedAgent) {
+            return ((TimedAgent) agent).chooseCoordinateToPlaceTile(view);
+        }
+        return agent.makeMove(view);
+    }
+
+    // See the class comment for the forms of spec.
+    public static Agent createAgent(String spec, PlayerType color, long moveMS)
+    {
+        String[] parts = spec.split(":", 3);
+        String kind = parts[0];
+        if (kind.equals("random")) {
+            return new RandomAgent(color, moveMS);
+        }
+        if (kind.equals("agent") || kind.equals("depth")) {
+            Properties properties = new Properties();
+            properties.putAll(System.getProperties());
+            // one log line per move of every game is just noise here
+            properties.setProperty(SearchConfig.PREFIX + "log", "false");
+            // the default overhead is for the framework's thread per move, which the
+            // runner doesn't have; it would eat all of a short budget
+            if (properties.getProperty(SearchConfig.PREFIX + "time.overhead.ms") == null) {
+                properties.setProperty(SearchConfig.PREFIX + "time.overhead.ms", Long.toString(moveMS / 10));
+            }
+            String overrides = null;
+            if (kind.equals("depth")) {
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("depth agent without a depth: " + spec);
+                }
+                properties.setProperty(SearchConfig.PREFIX + "depth", parts[1]);
+                overrides = parts.length > 2 ? parts[2] : null;
+            } else if (parts.length > 1) {
+                overrides = spec.substring(kind.length() + 1);
+            }
+            if (overrides != null) {
+                for (String pair : overrides.split(",")) {
+                    int eq = pair.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("expected key=value in " + spec);
+                    }
+                    properties.setProperty(SearchConfig.PREFIX + pair.substring(0, eq).trim(),
+                            pair.substring(eq + 1).trim());
+                }
+            }
+            return new OthelloAgent(color, moveMS, SearchConfig.fromProperties(properties));
+        }
+        try {
+            return (Agent) Class.forName(spec).getConstructor(PlayerType.class, long.class)
+                    .newInstance(color, moveMS);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("unknown agent: " + spec, e);
+        }
+    }
+
+    private synchronized void record(GameResult result)
+    {
+        this.games++;
+        int outcome = result.outcome();
+        if (outcome > 0) {
+            this.wins++;
+        } else if (outcome < 0) {
+            this.losses++;
+        } else {
+            this.draws++;
+        }
+        for (int side = 0; side < 2; side++) {
+            this.nodes[side] += result.nodes[side];
+            this.searchNanos[side] += result.searchNanos[side];
+            this.timeouts[side] += result.timeouts[side];
+        }
+
+        this.csv.println(String.format(Locale.ROOT,
+                "%d,%d,%s,%s,%d,%d,%s,%d,%d,%d,%d,%.1f,%.1f,%.0f,%.0f,%d,%d,%d,%.4f,%.1f,%.1f,%.0f,%.0f,%d,%d",
+                result.game, result.opening, result.aIsBlack ? "B" : "W",
+                outcome > 0 ? "W" : outcome < 0 ? "L" : "D",
+                result.discs[0], result.discs[1],
+                result.forfeit < 0 ? "normal" : result.forfeit == 0 ? "forfeitA" : "forfeitB",
+                result.moves[0], result.moves[1], result.timeouts[0], result.timeouts[1],
+                result.maxMoveNanos[0] / 1e6, result.maxMoveNanos[1] / 1e6,
+                nodesPerSecond(result.nodes[0], result.searchNanos[0]),
+                nodesPerSecond(result.nodes[1], result.searchNanos[1]),
+                this.wins, this.losses, this.draws, score(), elo(score()), eloMargin(),
+                nodesPerSecond(this.nodes[0], this.searchNanos[0]),
+                nodesPerSecond(this.nodes[1], this.searchNanos[1]),
+                this.timeouts[0], this.timeouts[1]));
+        // one row per game as it finishes, so a long run can be followed
+        this.csv.flush();
+        System.out.println("[INFO] MatchRunner: game " + result.game + " " + (outcome > 0 ? "W" : outcome < 0 ? "L" : "D")
+                + " " + result.discs[0] + "-" + result.discs[1] + ", " + summary());
+    }
+
+    public synchronized String summary()
+    {
+        return String.format(Locale.ROOT, "games=%d +%d -%d =%d score=%.1f%% elo=%.1f +-%.1f npsA=%.0f npsB=%.0f timeouts=%d/%d",
+                this.games, this.wins, this.losses, this.draws, 100.0 * score(), elo(score()), eloMargin(),
+                nodesPerSecond(this.nodes[0], this.searchNanos[0]), nodesPerSecond(this.nodes[1], this.searchNanos[1]),
+                this.timeouts[0], this.timeouts[1]);
+    }
+
+    private static double nodesPerSecond(long nodes, long nanos)
+    {
+        return nanos > 0L ? nodes * 1e9 / nanos : 0.0;
+    }
+
+    // A's points per game
+    private double score()
+    {
+        return this.games > 0 ? (this.wins + 0.5 * this.draws) / this.games : 0.5;
+    }
+
+    // Elo difference that makes p the expected score (infinite at 0% and 100%)
+    private static double elo(double p)
+    {
+        if (p <= 0.0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (p >= 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400.0 * Math.log10(1.0 / p - 1.0);
+    }
+
+    // Half the width of the 95% interval: the score's standard error from the spread of
+    // the game results, carried through elo()
+    private double eloMargin()
+    {
+        double p = score();
+        if (this.games < 2 || p <= 0.0 || p >= 1.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double variance = (this.wins * (1.0 - p) * (1.0 - p) + this.losses * p * p
+                + this.draws * (0.5 - p) * (0.5 - p)) / this.games;
+        double error = 1.96 * Math.sqrt(variance / this.games);
+        return (elo(Math.min(1.0, p + error)) - elo(Math.max(0.0, p - error))) / 2.0;
+    }
+
+}
@@ -0,0 +1,209 @@
+package src.pas.othello.match;
+
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.bench.BenchPositions;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Symmetry;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.search.ProbCut;
+import src.pas.othello.search.SearchConfig;
+import src.pas.othello.search.Searcher;
+import src.pas.othello.search.TranspositionTable;
+
+
+// Start positions for matches, one per line: black and white discs (hex bitboards, as
+// in the benchmark positions), B or W to move, and the score a fixed-depth search gave
+// the side to move. MatchRunner plays each one twice with the colors swapped, which
+// cancels out whatever edge the position still has.
+// main() builds a file: random openings of a few plies, one per symmetry class, kept if
+// the search scores them close to even (the score is in evaluation units, disc
+// difference / 64 with the pattern evaluator).
+//     java -cp "lib/*:." src.pas.othello.match.Openings [out] [count] [plies] [depth] [maxScore]
+// Defaults: data/openings.txt, 500 openings, 8 plies, depth 10, 0.0625 (4 discs).
+public class Openings
+    extends Object
+{
+
+    public static final String DEFAULT_PATH = "data/openings.txt";
+
+    private static final long SEED = 8128L;
+    private static final int TT_SIZE_MB = 32;
+
+    private final long[] black;
+    private final long[] white;
+    private final boolean[] blackToMove;
+
+    private Openings(List<long[]> rows)
+    {
+        int n = rows.size();
+        this.black = new long[n];
+        this.white = new long[n];
+        this.blackToMove = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            long[] row = rows.get(i);
+            this.black[i] = row[0];
+            this.white[i] = row[1];
+            this.blackToMove[i] = row[2] != 0L;
+        }
+    }
+
+    public static Openings load(String path) throws IOException
+    {
+        List<long[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length < 3 || !(fields[2].equals("B") || fields[2].equals("W"))) {
+                    throw new IllegalArgumentException("bad opening line: " + line);
+                }
+                long b = Long.parseUnsignedLong(fields[0], 16);
+                long w = Long.parseUnsignedLong(fields[1], 16);
+                if ((b & w) != 0L) {
+                    throw new IllegalArgumentException("overlapping discs: " + line);
+                }
+                rows.add(new long[] { b, w, fields[2].equals("B") ? 1L : 0L });
+            }
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("no openings in " + path);
+        }
+        return new Openings(rows);
+    }
+
+    public int size()
+    {
+        return this.black.length;
+    }
+
+    public long getBlack(int i)
+    {
+        return this.black[i];
+    }
+
+    public long getWhite(int i)
+    {
+        return this.white[i];
+    }
+
+    public boolean isBlackToMove(int i)
+    {
+        return this.blackToMove[i];
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String path = args.length > 0 ? args[0] : DEFAULT_PATH;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        double maxScore = args.length > 4 ? Double.parseDouble(args[4]) : 0.0625;
+
+        SearchConfig config = SearchConfig.fromSystemProperties().setTTSizeMB(TT_SIZE_MB).setLogEnabled(false);
+        ProbCut probCut = config.isProbCutEnabled() ? ProbCut.load(config.getProbCutFile()) : null;
+        TranspositionTable table = new TranspositionTable(TT_SIZE_MB);
+        Searcher[] searchers = {
+                new Searcher(table, config, false, 0, probCut, OthelloAgent.createEvaluator(config)),
+                new Searcher(table, config, true, 0, probCut, OthelloAgent.createEvaluator(config))
+        };
+
+        Random random = new Random(SEED);
+        Set<Long> seen = new HashSet<>();
+        long startNanos = System.nanoTime();
+        int tried = 0;
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            out.println("# Balanced match openings, written by Openings: black, white (hex bitboards,");
+            out.println("# bit 0 = top-left cell, square = row * 8 + col), side to move, and the depth "
+                    + depth + " score for the side to move.");
+            out.println(String.format(Locale.ROOT, "# %d random plies, |score| <= %.4f, one per symmetry class.",
+                    plies, maxScore));
+            int written = 0;
+            while (written < count) {
+                long[] position = randomOpening(plies, random);
+                if (position == null) {
+                    continue;
+                }
+                long b = position[0];
+                long w = position[1];
+                boolean blackToMove = position[2] != 0L;
+                if (!seen.add(Symmetry.canonicalHash(b, w, blackToMove))) {
+                    continue;
+                }
+                tried++;
+                long own = blackToMove ? b : w;
+                long opp = blackToMove ? w : b;
+                Searcher searcher = searchers[blackToMove ? 1 : 0];
+                table.clear();
+                searcher.search(own, opp, Zobrist.hash(own, opp, blackToMove), depth,
+                        System.nanoTime(), Long.MAX_VALUE / 4, false);
+                double score = searcher.getBestScore();
+                if (Math.abs(score) > maxScore) {
+                    continue;
+                }
+                out.println(String.format(Locale.ROOT, "%016x %016x %s %.4f", b, w, blackToMove ? "B" : "W", score));
+                written++;
+                if (written % 50 == 0) {
+                    System.out.println("[INFO] Openings: " + written + " of " + tried + " kept, timeS="
+                            + (System.nanoTime() - startNanos) / 1000000000L);
+                }
+            }
+        }
+        System.out.println("[INFO] Openings: wrote " + count + " openings (" + tried + " searched) to " + path);
+    }
+
+    // {black, white, 1 if black is to move} after "plies" random moves, or null if the
+    // game ended or the side to move has to pass there
+    private static long[] randomOpening(int plies, Random random)
+    {
+        long b = BenchPositions.START_BLACK;
+        long w = BenchPositions.START_WHITE;
+        boolean blackToMove = true;
+        for (int ply = 0; ply < plies; ply++) {
+            long own = blackToMove ? b : w;
+            long opp = blackToMove ? w : b;
+            long moves = BitBoard.legalMoves(own, opp);
+            if (moves == 0L) {
+                return null;
+            }
+            int sq = BitBoard.randomMove(moves, random);
+            long flipped = BitBoard.flips(own, opp, sq);
+            own |= flipped | (1L << sq);
+            opp &= ~flipped;
+            b = blackToMove ? own : opp;
+            w = blackToMove ? opp : own;
+            blackToMove = !blackToMove;
+        }
+        long own = blackToMove ? b : w;
+        long opp = blackToMove ? w : b;
+        if (BitBoard.legalMoves(own, opp) == 0L) {
+            return null;
+        }
+        return new long[] { b, w, blackToMove ? 1L : 0L };
+    }
+
+}
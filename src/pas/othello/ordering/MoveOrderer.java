@@ -8,6 +8,10 @@ import java.util.List;
 
 
 // JAVA PROJECT IMPORTS
+import src.pas.othello.agents.OthelloAgent.OthelloNode;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.heuristics.Evaluator;
+import src.pas.othello.heuristics.HeuristicEvaluator;
 
 
 
@@ -15,36 +19,191 @@ public class MoveOrderer
     extends Object
 {
 
+    // Cheap prior for each square, used wherever we don't want to pay for a static
+    // evaluation of every child: corners first, then edges, squares next to an empty
+    // corner last. Same spirit as the heuristic's position weights.
+    private static final int[] SQUARE_PRIORITY = {
+            100, -20, 10, 5, 5, 10, -20, 100,
+            -20, -40, -5, -5, -5, -5, -40, -20,
+            10, -5, 5, 1, 1, 5, -5, 10,
+            5, -5, 1, 1, 1, 1, -5, 5,
+            5, -5, 1, 1, 1, 1, -5, 5,
+            10, -5, 5, 1, 1, 5, -5, 10,
+            -20, -40, -5, -5, -5, -5, -40, -20,
+            100, -20, 10, 5, 5, 10, -20, 100
+    };
+
+    // key step of the hints in promote(), far above any history credit or evaluation
+    private static final double HINT_KEY = 1e9;
+
     public static List<Node> orderChildren(List<Node> children)
     {
         if (children == null || children.isEmpty()) {
             return children;
         }
-        
-        // Create a copy of the list to avoid modifying the original
-        List<Node> orderedChildren = new java.util.ArrayList<>(children);
-        
-        // Sort the children based on their heuristic values
-        // for MAX levels, sort descending, and for MIN levels, sort ascending
-        orderedChildren.sort((node1, node2) -> {
-            double value1 = getNodeValue(node1);
-            double value2 = getNodeValue(node2);
-            
-            // Determine if we're at a MAX or MIN level
-            boolean isMaxLevel = isMaximizingLevel(node1);
-            
-            if (isMaxLevel) {
-                // MAX level so best moves first
-                return Double.compare(value2, value1);
+
+        // Evaluate every child once up front; the sort then only compares numbers.
+        // The level is the parent's: the children all have the other player to move,
+        // so if the first child has MAX to move the parent was a MIN level.
+        int n = children.size();
+        boolean isMaxLevel = !isMaximizingLevel(children.get(0));
+        double[] keys = new double[n];
+        Node[] nodes = children.toArray(new Node[n]);
+        for (int i = 0; i < n; i++) {
+            double value = getNodeValue(nodes[i]);
+            // for MAX levels best moves first, for MIN levels worst moves first
+            keys[i] = isMaxLevel ? value : -value;
+        }
+        sortByKeys(nodes, keys, n);
+
+        return new java.util.ArrayList<>(java.util.Arrays.asList(nodes));
+    }
+
+    // Bitboard version used by the search.
+    // Orders moves[0..n) in place so the best child for the side to move comes first.
+    // Every child is evaluated exactly once (keys[] holds the scores), then we do an
+    // insertion sort, which is plenty for the ~10 moves we usually have.
+    // Returns how many static evaluations that took.
+    public static int orderMoves(long own, long opp, boolean maximizingPlayer,
+                                 int[] moves, double[] keys, int n)
+    {
+        return orderMoves(HeuristicEvaluator.INSTANCE, own, opp, maximizingPlayer, moves, keys, n);
+    }
+
+    // same, with the search's own evaluator
+    public static int orderMoves(Evaluator evaluator, long own, long opp, boolean maximizingPlayer,
+                                 int[] moves, double[] keys, int n)
+    {
+        int evaluations = 0;
+        for (int i = 0; i < n; i++) {
+            int sq = moves[i];
+            long flipped = BitBoard.flips(own, opp, sq);
+            long childOwn = opp & ~flipped;              // side to move in the child
+            long childOpp = own | flipped | (1L << sq);  // the player who just moved
+            long maxDiscs = maximizingPlayer ? childOpp : childOwn;
+            long minDiscs = maximizingPlayer ? childOwn : childOpp;
+            double value;
+            if (BitBoard.isGameOver(childOwn, childOpp)) {
+                value = OthelloNode.getTerminalUtility(maxDiscs, minDiscs);
             } else {
-                // MIN level so worst moves first
-                return Double.compare(value1, value2);
+                value = evaluator.evaluate(maxDiscs, minDiscs, !maximizingPlayer);
+                evaluations++;
             }
-        });
-        
-        return orderedChildren;
+            // flip the sign at MIN levels so "bigger key" always means "try first"
+            keys[i] = maximizingPlayer ? value : -value;
+        }
+        sortByKeys(moves, keys, n);
+        return evaluations;
     }
-    
+
+    // Keys for pickMove() without any evaluation: just the per-square prior. The search
+    // uses these away from the leaves, where the table move and the principal variation
+    // already pick the first move and a full evaluation of every child isn't worth it.
+    public static void scoreMovesBySquare(int[] moves, double[] keys, int n)
+    {
+        for (int i = 0; i < n; i++) {
+            keys[i] = SQUARE_PRIORITY[moves[i]];
+        }
+    }
+
+    // History keys: squares that caused cutoffs elsewhere in the tree first, the
+    // per-square prior only breaks ties (it is far smaller than any history credit).
+    // history is indexed by square and belongs to the side to move.
+    public static void scoreMovesByHistory(int[] moves, double[] keys, int n, int[] history)
+    {
+        for (int i = 0; i < n; i++) {
+            int sq = moves[i];
+            keys[i] = history[sq] + SQUARE_PRIORITY[sq] / 1000.0;
+        }
+    }
+
+    // Give one move the key of a hint (the PV move, the table move, a killer), which
+    // puts it ahead of every move ordered by history or evaluation; hints with a higher
+    // rank go first. Does nothing if the move isn't there.
+    public static void promote(int[] moves, double[] keys, int n, int move, int rank)
+    {
+        for (int i = 0; i < n; i++) {
+            if (moves[i] == move) {
+                keys[i] = HINT_KEY * rank;
+                return;
+            }
+        }
+    }
+
+    // Lazy ordering: bring the best of moves[i..n) to index i and return it, keeping
+    // the rest in order. Called once per child as the search gets to it, this gives
+    // the same order as sorting up front, but a cutoff after the first move or two
+    // doesn't pay for ordering the rest.
+    public static int pickMove(int[] moves, double[] keys, int i, int n)
+    {
+        int best = i;
+        for (int j = i + 1; j < n; j++) {
+            if (keys[j] > keys[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        double key = keys[best];
+        // shift by hand, for a handful of moves that beats System.arraycopy
+        for (int j = best; j > i; j--) {
+            moves[j] = moves[j - 1];
+            keys[j] = keys[j - 1];
+        }
+        moves[i] = move;
+        keys[i] = key;
+        return move;
+    }
+
+    // insertion sort of moves[0..n) by keys, biggest key first (stable)
+    private static void sortByKeys(int[] moves, double[] keys, int n)
+    {
+        for (int i = 1; i < n; i++) {
+            int move = moves[i];
+            double key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = key;
+        }
+    }
+
+    // same insertion sort for the Node version
+    private static void sortByKeys(Node[] nodes, double[] keys, int n)
+    {
+        for (int i = 1; i < n; i++) {
+            Node node = nodes[i];
+            double key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                nodes[j + 1] = nodes[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            keys[j + 1] = key;
+        }
+    }
+
+    // Pull one move to the front of moves[0..n), keeping the rest in order.
+    // Used for hints like the table's best move; does nothing if the move isn't there.
+    public static void moveToFront(int[] moves, double[] keys, int n, int move)
+    {
+        for (int i = 0; i < n; i++) {
+            if (moves[i] == move) {
+                double key = keys[i];
+                System.arraycopy(moves, 0, moves, 1, i);
+                System.arraycopy(keys, 0, keys, 1, i);
+                moves[0] = move;
+                keys[0] = key;
+                return;
+            }
+        }
+    }
+
     private static double getNodeValue(Node node) {
         if (node.isTerminal()) {
             return node.getTerminalUtility();
@@ -0,0 +1,403 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Stability;
+import src.pas.othello.board.Zobrist;
+
+
+// Exact endgame solver: searches every line to the end of the game and scores it
+// by final disc difference (side to move minus opponent), negamax style.
+//
+// The midgame search goes through Heuristics at the leaves; here nothing is guessed,
+// so all of the speed comes from move ordering and from keeping the last few plies cheap:
+//   - fastest-first: try moves that leave the opponent the fewest replies first
+//   - parity: prefer moves into regions (board quadrants) with an odd number of empties
+//   - the last 3, 2 and 1 empties skip move generation and work on the empty squares
+//     directly
+//   - stability cutoff: discs that can never flip bound the final score, so a node
+//     whose bound is already outside the window returns without searching
+// With a PositionStore it also looks positions up in what earlier games (and other
+// processes) solved, and queues what it solves exactly for the store.
+// Like the rest of the search it never allocates after construction.
+public class EndgameSolver
+    extends Object
+{
+
+    // most empties we will ever be asked to solve (bounds the per-ply buffers)
+    private static final int MAX_EMPTIES = 32;
+    private static final int MAX_PLY = 2 * MAX_EMPTIES;
+
+    // below this many empties don't bother with the table or with fastest-first
+    private static final int TT_MIN_EMPTIES = 7;
+    private static final int FASTEST_FIRST_MIN_EMPTIES = 6;
+    // with fewer empties the stability test costs more than the nodes it saves
+    private static final int STABILITY_MIN_EMPTIES = 7;
+
+    private static final long TIME_CHECK_MASK = 4095L;
+
+    // what solve() returns when the deadline hit first (-1 is a pass)
+    public static final int NOT_SOLVED = -2;
+
+    // the four 4x4 quadrants used for parity
+    private static final long[] QUADRANTS = {
+            0x000000000f0f0f0fL, 0x00000000f0f0f0f0L,
+            0x0f0f0f0f00000000L, 0xf0f0f0f000000000L
+    };
+    private static final long[] QUADRANT_OF = new long[BitBoard.NUM_SQUARES];
+
+    static
+    {
+        for (int sq = 0; sq < BitBoard.NUM_SQUARES; sq++) {
+            for (long quadrant : QUADRANTS) {
+                if ((quadrant & (1L << sq)) != 0L) {
+                    QUADRANT_OF[sq] = quadrant;
+                }
+            }
+        }
+    }
+
+    private static final class SolveTimeout
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        private static final SolveTimeout INSTANCE = new SolveTimeout();
+
+        private SolveTimeout()
+        {
+            super(null, null, false, false);
+        }
+    }
+
+    private final TranspositionTable table;
+    private final TranspositionTable.Entry ttEntry = new TranspositionTable.Entry();
+    private final boolean useStability;
+    // solved positions on disk (null = none)
+    private PositionStore store;
+
+    private final int[][] moveBuffer = new int[MAX_PLY][BitBoard.NUM_SQUARES];
+    private final int[][] keyBuffer = new int[MAX_PLY][BitBoard.NUM_SQUARES];
+
+    private long deadlineNanos;
+    private long nodesSearched;
+    private int bestScore;
+
+    public EndgameSolver(int ttSizeMB)
+    {
+        this(ttSizeMB, true);
+    }
+
+    public EndgameSolver(int ttSizeMB, boolean useStability)
+    {
+        this.table = new TranspositionTable(ttSizeMB);
+        this.useStability = useStability;
+    }
+
+    public void setPositionStore(PositionStore store)
+    {
+        this.store = store;
+    }
+
+    public long getNodesSearched()
+    {
+        return this.nodesSearched;
+    }
+
+    // exact final disc difference for the side to move of the last solve
+    public int getBestScore()
+    {
+        return this.bestScore;
+    }
+
+    // Solve the position for "own" (the side to move). Returns the best square, -1 to
+    // pass, or NOT_SOLVED if the deadline hit first. ownIsBlack is only used for hashing.
+    public int solve(long own, long opp, boolean ownIsBlack, long deadlineNanos)
+    {
+        this.nodesSearched = 0L;
+        this.deadlineNanos = deadlineNanos;
+        long key = Zobrist.hash(own, opp, ownIsBlack);
+
+        long moves = BitBoard.legalMoves(own, opp);
+        if (moves == 0L) {
+            return -1;
+        }
+        int empties = BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp);
+        boolean useStore = this.store != null && empties >= this.store.getMinEmpties();
+        if (useStore && this.store.probe(key, this.ttEntry) && this.ttEntry.bound == TranspositionTable.EXACT
+                && this.ttEntry.bestMove >= 0 && ((moves >>> this.ttEntry.bestMove) & 1L) != 0L) {
+            this.bestScore = (int) this.ttEntry.score;
+            return this.ttEntry.bestMove;
+        }
+        int n = orderMoves(own, opp, moves, TranspositionTable.NO_MOVE, 0);
+        int[] moveList = this.moveBuffer[0];
+
+        int alpha = -BitBoard.NUM_SQUARES - 1;
+        int beta = BitBoard.NUM_SQUARES + 1;
+        int bestMove = moveList[0];
+        try {
+            for (int i = 0; i < n; i++) {
+                int sq = moveList[i];
+                long flipped = BitBoard.flips(own, opp, sq);
+                int score = -negamax(opp & ~flipped, own | flipped | (1L << sq),
+                        Zobrist.move(key, sq, flipped, ownIsBlack), !ownIsBlack, -beta, -alpha, 1);
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = sq;
+                }
+            }
+        } catch (SolveTimeout e) {
+            return NOT_SOLVED;
+        }
+        this.bestScore = alpha;
+        if (useStore) {
+            this.store.add(key, empties, TranspositionTable.EXACT, alpha, bestMove);
+        }
+        return bestMove;
+    }
+
+    private void checkTime()
+    {
+        if ((++this.nodesSearched & TIME_CHECK_MASK) == 0L && System.nanoTime() > this.deadlineNanos) {
+            throw SolveTimeout.INSTANCE;
+        }
+    }
+
+    // final score when nobody can move any more
+    private static int finalScore(long own, long opp)
+    {
+        return BitBoard.popCount(own) - BitBoard.popCount(opp);
+    }
+
+    private int negamax(long own, long opp, long key, boolean ownIsBlack, int alpha, int beta, int ply)
+    {
+        checkTime();
+        long empty = ~(own | opp);
+        int numEmpty = BitBoard.popCount(empty);
+        if (numEmpty == 0) {
+            return finalScore(own, opp);
+        } else if (numEmpty <= 3) {
+            return solveShallow(own, opp, empty, alpha, beta);
+        }
+
+        // Stability cutoff. The opponent keeps its stable discs, so we end with at most
+        // 64 - 2 * stable, and we keep ours, so we end with at least 2 * stable - 64.
+        // Stable discs are a subset of the side's discs, so the disc count says first
+        // whether the bound could reach the window at all.
+        if (this.useStability && numEmpty >= STABILITY_MIN_EMPTIES) {
+            if (BitBoard.NUM_SQUARES - 2 * BitBoard.popCount(opp) <= alpha) {
+                int upper = BitBoard.NUM_SQUARES - 2 * Stability.countStable(opp, own);
+                if (upper <= alpha) {
+                    return upper;
+                }
+            }
+            if (2 * BitBoard.popCount(own) - BitBoard.NUM_SQUARES >= beta) {
+                int lower = 2 * Stability.countStable(own, opp) - BitBoard.NUM_SQUARES;
+                if (lower >= beta) {
+                    return lower;
+                }
+            }
+        }
+
+        long moves = BitBoard.legalMoves(own, opp);
+        if (moves == 0L) {
+            if (BitBoard.legalMoves(opp, own) == 0L) {
+                return finalScore(own, opp);
+            }
+            return -negamax(opp, own, Zobrist.pass(key), !ownIsBlack, -beta, -alpha, ply + 1);
+        }
+
+        int ttMove = TranspositionTable.NO_MOVE;
+        boolean useTable = numEmpty >= TT_MIN_EMPTIES;
+        boolean useStore = useTable && this.store != null && numEmpty >= this.store.getMinEmpties();
+        if (useTable && (this.table.probe(key, this.ttEntry) || (useStore && this.store.probe(key, this.ttEntry)))) {
+            TranspositionTable.Entry entry = this.ttEntry;
+            ttMove = entry.bestMove;
+            int cached = (int) entry.score;
+            if (entry.bound == TranspositionTable.EXACT) {
+                return cached;
+            } else if (entry.bound == TranspositionTable.LOWER) {
+                alpha = Math.max(alpha, cached);
+            } else {
+                beta = Math.min(beta, cached);
+            }
+            if (alpha >= beta) {
+                return cached;
+            }
+        }
+        int windowAlpha = alpha;
+
+        int n = orderMoves(own, opp, moves, ttMove, ply);
+        int[] moveList = this.moveBuffer[ply];
+        int best = -BitBoard.NUM_SQUARES - 1;
+        int bestMove = moveList[0];
+        for (int i = 0; i < n; i++) {
+            int sq = moveList[i];
+            long flipped = BitBoard.flips(own, opp, sq);
+            int score = -negamax(opp & ~flipped, own | flipped | (1L << sq),
+                    Zobrist.move(key, sq, flipped, ownIsBlack), !ownIsBlack, -beta, -alpha, ply + 1);
+            if (score > best) {
+                best = score;
+                bestMove = sq;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (useTable) {
+            int bound = best <= windowAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            // every entry is a full solve, so "depth" is just the number of empties
+            this.table.store(key, numEmpty, bound, best, bestMove);
+            if (useStore && bound == TranspositionTable.EXACT) {
+                this.store.add(key, numEmpty, bound, best, bestMove);
+            }
+        }
+        return best;
+    }
+
+    // 3 or fewer empties: no move generation and no table, just try the empty squares.
+    private int solveShallow(long own, long opp, long empty, int alpha, int beta)
+    {
+        int sq1 = Long.numberOfTrailingZeros(empty);
+        empty &= empty - 1;
+        if (empty == 0L) {
+            return solveLast1(own, opp, sq1);
+        }
+        int sq2 = Long.numberOfTrailingZeros(empty);
+        empty &= empty - 1;
+        if (empty == 0L) {
+            return solveLast2(own, opp, sq1, sq2, alpha, beta, false);
+        }
+        int sq3 = Long.numberOfTrailingZeros(empty);
+
+        // parity: the square sitting alone in its quadrant goes first
+        if (QUADRANT_OF[sq1] == QUADRANT_OF[sq2]) {
+            return solveLast3(own, opp, sq3, sq1, sq2, alpha, beta, false);
+        } else if (QUADRANT_OF[sq1] == QUADRANT_OF[sq3]) {
+            return solveLast3(own, opp, sq2, sq1, sq3, alpha, beta, false);
+        }
+        return solveLast3(own, opp, sq1, sq2, sq3, alpha, beta, false);
+    }
+
+    private int solveLast3(long own, long opp, int sq1, int sq2, int sq3, int alpha, int beta, boolean passed)
+    {
+        this.nodesSearched++;
+        int best = -BitBoard.NUM_SQUARES - 1;
+
+        long flipped = BitBoard.flips(own, opp, sq1);
+        if (flipped != 0L) {
+            best = -solveLast2(opp & ~flipped, own | flipped | (1L << sq1), sq2, sq3, -beta, -alpha, false);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        flipped = BitBoard.flips(own, opp, sq2);
+        if (flipped != 0L) {
+            int score = -solveLast2(opp & ~flipped, own | flipped | (1L << sq2), sq1, sq3, -beta, -alpha, false);
+            if (score >= beta) {
+                return score;
+            }
+            best = Math.max(best, score);
+            alpha = Math.max(alpha, best);
+        }
+        flipped = BitBoard.flips(own, opp, sq3);
+        if (flipped != 0L) {
+            int score = -solveLast2(opp & ~flipped, own | flipped | (1L << sq3), sq1, sq2, -beta, -alpha, false);
+            best = Math.max(best, score);
+        }
+
+        if (best > -BitBoard.NUM_SQUARES - 1) {
+            return best;
+        }
+        // no move for us: the opponent plays on, or the game is over
+        if (passed) {
+            return finalScore(own, opp);
+        }
+        return -solveLast3(opp, own, sq1, sq2, sq3, -beta, -alpha, true);
+    }
+
+    private int solveLast2(long own, long opp, int sq1, int sq2, int alpha, int beta, boolean passed)
+    {
+        this.nodesSearched++;
+        int best = -BitBoard.NUM_SQUARES - 1;
+
+        long flipped = BitBoard.flips(own, opp, sq1);
+        if (flipped != 0L) {
+            best = -solveLast1(opp & ~flipped, own | flipped | (1L << sq1), sq2);
+            if (best >= beta) {
+                return best;
+            }
+        }
+        flipped = BitBoard.flips(own, opp, sq2);
+        if (flipped != 0L) {
+            best = Math.max(best, -solveLast1(opp & ~flipped, own | flipped | (1L << sq2), sq1));
+        }
+
+        if (best > -BitBoard.NUM_SQUARES - 1) {
+            return best;
+        }
+        if (passed) {
+            return finalScore(own, opp);
+        }
+        return -solveLast2(opp, own, sq1, sq2, -beta, -alpha, true);
+    }
+
+    // Last empty square: whoever can play there does, otherwise the game just ends.
+    private int solveLast1(long own, long opp, int sq)
+    {
+        long flipped = BitBoard.flips(own, opp, sq);
+        if (flipped != 0L) {
+            int n = BitBoard.popCount(flipped);
+            return BitBoard.popCount(own) + n + 1 - (BitBoard.popCount(opp) - n);
+        }
+        flipped = BitBoard.flips(opp, own, sq);
+        if (flipped != 0L) {
+            int n = BitBoard.popCount(flipped);
+            return BitBoard.popCount(own) - n - (BitBoard.popCount(opp) + n + 1);
+        }
+        return finalScore(own, opp);
+    }
+
+    // Fills moveBuffer[ply] and returns the count. Table move first, then fastest-first
+    // (fewest opponent replies), with ties going to moves into odd-parity quadrants.
+    private int orderMoves(long own, long opp, long moves, int ttMove, int ply)
+    {
+        int[] moveList = this.moveBuffer[ply];
+        int[] keys = this.keyBuffer[ply];
+        long empty = ~(own | opp);
+        boolean fastestFirst = BitBoard.popCount(empty) >= FASTEST_FIRST_MIN_EMPTIES;
+
+        int n = 0;
+        for (long m = moves; m != 0L; m &= m - 1) {
+            int sq = Long.numberOfTrailingZeros(m);
+            // smaller key = try earlier
+            int key = (BitBoard.popCount(empty & QUADRANT_OF[sq]) & 1) == 1 ? 0 : 1;
+            if (sq == ttMove) {
+                key = Integer.MIN_VALUE;
+            } else if (fastestFirst) {
+                long flipped = BitBoard.flips(own, opp, sq);
+                long replies = BitBoard.legalMoves(opp & ~flipped, own | flipped | (1L << sq));
+                key += BitBoard.popCount(replies) << 1;
+            }
+            int j = n++;
+            while (j > 0 && keys[j - 1] > key) {
+                moveList[j] = moveList[j - 1];
+                keys[j] = keys[j - 1];
+                j--;
+            }
+            moveList[j] = sq;
+            keys[j] = key;
+        }
+        return n;
+    }
+
+}
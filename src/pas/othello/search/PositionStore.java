@@ -0,0 +1,371 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+
+// JAVA PROJECT IMPORTS
+
+
+// Solved positions kept on disk, so they outlive the game and the process that solved
+// them. Whatever the endgame solver solves exactly with enough empties left is queued
+// with add() during the game and written to the file by flush() when the game ends.
+// Every agent maps the file read-only when it starts and the solver probes it like a
+// second transposition table, so a new process starts warm, and any number of agent
+// processes on one host can share one file.
+//
+// Like the opening book the file is an open-addressing hash table used as it lies on
+// disk. Writers take a lock on "<file>.lock" and insert in place, so processes that
+// have the file mapped see new entries right away. The key of a slot is stored XORed
+// with the rest of the slot, as in TranspositionTable, so a slot read while another
+// process writes it fails the key check and reads as a miss. A file that gets more
+// than 3/4 full is rebuilt at least twice the size into "<file>.tmp" and moved over
+// the old one (processes still mapping the old file keep reading it until they remap).
+// At the size cap the rebuild compacts instead: only the entries with the most empties
+// (the most expensive to solve again) are kept, enough to fill half the table.
+//
+// Layout (big-endian):
+//   header, 32 bytes: magic, capacity (power of two), entries, 0, 0L
+//   capacity slots of 16 bytes: key ^ data (long), then the data: score (float),
+//   move (byte), depth (byte, the empties of the position), bound (byte), 1 (byte,
+//   so a used slot never has data 0)
+public class PositionStore
+    extends Object
+{
+
+    // "OTHSTOR1"
+    private static final long MAGIC = 0x4f544853544f5231L;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+
+    // a new file starts with this many slots (256 KB)
+    private static final int INITIAL_CAPACITY = 1 << 14;
+    // a key is looked for in at most this many slots after its own
+    private static final int MAX_PROBES = 16;
+    // most positions queued in one game; later ones are dropped
+    private static final int MAX_PENDING = 1 << 16;
+
+    // FileLock is per process, so writers in one JVM (games run side by side) queue
+    // up here first
+    private static final Object WRITE_LOCK = new Object();
+
+    private final Path file;
+    private final int maxCapacity;
+    private final int minEmpties;
+
+    // the mapped slots (null while there is no file yet)
+    private ByteBuffer slots;
+    private int mask;
+    private int entries;
+
+    // queued by add(), written by flush()
+    private final long[] pendingKeys = new long[MAX_PENDING];
+    private final long[] pendingData = new long[MAX_PENDING];
+    private int pending;
+
+    // Store at path, at most maxMB big, for positions with at least minEmpties empty
+    // squares. A file that doesn't exist yet is created by the first flush().
+    public PositionStore(String path, int maxMB, int minEmpties) throws IOException
+    {
+        this.file = Paths.get(path);
+        long wanted = Math.max(1L, (long) maxMB) * 1024L * 1024L / SLOT_BYTES;
+        this.maxCapacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit((int) Math.min(wanted, 1L << 30)));
+        this.minEmpties = minEmpties;
+        this.map();
+    }
+
+    // positions with fewer empties are neither stored nor looked up
+    public int getMinEmpties()
+    {
+        return this.minEmpties;
+    }
+
+    // positions in the file as last mapped
+    public int getEntryCount()
+    {
+        return this.entries;
+    }
+
+    public int getPendingCount()
+    {
+        return this.pending;
+    }
+
+    // (Re)map the file read-only, to see what other processes wrote since.
+    public void map() throws IOException
+    {
+        if (!Files.isRegularFile(this.file)) {
+            this.slots = null;
+            this.entries = 0;
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int capacity = checkHeader(buffer);
+            this.mask = capacity - 1;
+            this.entries = buffer.getInt(12);
+            buffer.position(HEADER_BYTES);
+            this.slots = buffer.slice();
+        }
+    }
+
+    private static int checkHeader(ByteBuffer buffer)
+    {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+            throw new IllegalArgumentException("not a position store");
+        }
+        int capacity = buffer.getInt(8);
+        if (Integer.bitCount(capacity) != 1 || buffer.capacity() < HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+            throw new IllegalArgumentException("truncated position store");
+        }
+        return capacity;
+    }
+
+    // Look the key (a Zobrist.hash of the position) up and copy the entry into
+    // "entry". The score is the solver's: final disc difference for the side to move.
+    public boolean probe(long key, TranspositionTable.Entry entry)
+    {
+        if (this.slots == null) {
+            return false;
+        }
+        int slot = find(this.slots, this.mask, key);
+        if (slot < 0) {
+            return false;
+        }
+        long data = this.slots.getLong(slot * SLOT_BYTES + 8);
+        entry.score = Float.intBitsToFloat((int) (data >>> 32));
+        entry.bestMove = (byte) (data >>> 24);
+        entry.depth = (int) (data >>> 16) & 0xff;
+        entry.bound = (int) (data >>> 8) & 0xff;
+        return true;
+    }
+
+    // Queue a solved position for the next flush(). Called from the solver thread only.
+    public void add(long key, int depth, int bound, int score, int bestMove)
+    {
+        if (this.pending == MAX_PENDING || depth < this.minEmpties) {
+            return;
+        }
+        this.pendingKeys[this.pending] = key;
+        this.pendingData[this.pending] = ((long) Float.floatToRawIntBits(score) << 32)
+                | ((long) (bestMove & 0xff) << 24) | (depth << 16) | (bound << 8) | 1L;
+        this.pending++;
+    }
+
+    // Write the queued positions to the file (creating it if needed), then remap it.
+    // Returns how many new positions went in.
+    public int flush() throws IOException
+    {
+        if (this.pending == 0) {
+            return 0;
+        }
+        int added;
+        synchronized (WRITE_LOCK) {
+            Path lockFile = Paths.get(this.file + ".lock");
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    added = this.insertOrRebuild();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+        this.pending = 0;
+        this.map();
+        return added;
+    }
+
+    // with the lock held
+    private int insertOrRebuild() throws IOException
+    {
+        if (!Files.isRegularFile(this.file)) {
+            return this.rebuild(null, 0, 0);
+        }
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int capacity = checkHeader(buffer);
+            int count = buffer.getInt(12);
+            buffer.position(HEADER_BYTES);
+            ByteBuffer fileSlots = buffer.slice();
+
+            int added = 0;
+            int i = 0;
+            if ((long) (count + this.pending) * 4 <= (long) capacity * 3) {
+                for (; i < this.pending; i++) {
+                    int result = insert(fileSlots, capacity - 1, this.pendingKeys[i], this.pendingData[i]);
+                    if (result < 0) {
+                        break;
+                    }
+                    added += result;
+                }
+                buffer.putInt(12, count + added);
+                if (i == this.pending) {
+                    return added;
+                }
+            }
+            // too full, or a key found no slot within MAX_PROBES: rebuild with the rest
+            return added + this.rebuild(fileSlots, capacity, i);
+        }
+    }
+
+    // Puts the entry into its slot, or over the same key if this one has more empties.
+    // Returns 1 for a new key, 0 for a known one, -1 when there was no free slot.
+    private static int insert(ByteBuffer slots, int mask, long key, long data)
+    {
+        for (int probe = 0, slot = (int) key & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long storedData = slots.getLong(offset + 8);
+            boolean empty = storedData == 0L;
+            if (!empty && (slots.getLong(offset) ^ storedData) != key) {
+                continue;
+            }
+            if (!empty && depthOf(storedData) >= depthOf(data)) {
+                return 0;
+            }
+            // data first: until the key is written the slot reads as a miss
+            slots.putLong(offset + 8, data);
+            slots.putLong(offset, key ^ data);
+            return empty ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static int find(ByteBuffer slots, int mask, long key)
+    {
+        for (int probe = 0, slot = (int) key & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long data = slots.getLong(offset + 8);
+            if (data == 0L) {
+                return -1;
+            } else if ((slots.getLong(offset) ^ data) == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static int depthOf(long data)
+    {
+        return (int) (data >>> 16) & 0xff;
+    }
+
+    // Writes a new file with the entries of oldSlots (may be null) and the queued
+    // positions from "from" on, and moves it over the old one. Grows the table to keep
+    // it at most half full, and past the size cap keeps only the deepest entries.
+    // Returns how many of the queued positions were new.
+    private int rebuild(ByteBuffer oldSlots, int oldCapacity, int from) throws IOException
+    {
+        int total = 0;
+        long[] keys = new long[oldCapacity + this.pending - from];
+        long[] data = new long[keys.length];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long d = oldSlots.getLong(slot * SLOT_BYTES + 8);
+            if (d != 0L) {
+                keys[total] = oldSlots.getLong(slot * SLOT_BYTES) ^ d;
+                data[total++] = d;
+            }
+        }
+        int old = total;
+        for (int i = from; i < this.pending; i++) {
+            keys[total] = this.pendingKeys[i];
+            data[total++] = this.pendingData[i];
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < this.maxCapacity && (long) total * 2 > capacity) {
+            capacity <<= 1;
+        }
+        // compaction: keep the entries with the most empties, up to half the table
+        int minDepth = 0;
+        int atMinDepth = Integer.MAX_VALUE;
+        if (total > capacity / 2) {
+            int[] perDepth = new int[256];
+            for (int i = 0; i < total; i++) {
+                perDepth[depthOf(data[i])]++;
+            }
+            int keep = capacity / 2;
+            minDepth = 255;
+            while (minDepth > 0 && keep > perDepth[minDepth]) {
+                keep -= perDepth[minDepth--];
+            }
+            atMinDepth = keep;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + capacity * SLOT_BYTES);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, capacity);
+        buffer.position(HEADER_BYTES);
+        ByteBuffer newSlots = buffer.slice();
+        int count = 0;
+        int added = 0;
+        for (int i = 0; i < total; i++) {
+            int depth = depthOf(data[i]);
+            if (depth < minDepth || (depth == minDepth && atMinDepth-- <= 0)) {
+                continue;
+            }
+            int result = insert(newSlots, capacity - 1, keys[i], data[i]);
+            if (result > 0) {
+                count++;
+                if (i >= old) {
+                    added++;
+                }
+            }
+        }
+        buffer.putInt(12, count);
+        buffer.position(0);
+
+        Path tmp = Paths.get(this.file + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return added;
+    }
+
+    // Compact a store file by hand: rebuild it at the given cap and report the counts.
+    // Usage: java -cp "lib/*:." src.pas.othello.search.PositionStore <file> [maxMB]
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1) {
+            System.err.println("usage: PositionStore <file> [maxMB]");
+            System.exit(1);
+        }
+        int maxMB = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        PositionStore store = new PositionStore(args[0], maxMB, 0);
+        int before = store.getEntryCount();
+        synchronized (WRITE_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(Paths.get(args[0] + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    store.map();
+                    if (store.slots != null) {
+                        store.rebuild(store.slots, store.mask + 1, 0);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+        store.map();
+        System.out.println("[INFO] PositionStore: " + args[0] + " entries " + before + " -> "
+                + store.getEntryCount() + " capacity=" + (store.slots != null ? store.mask + 1 : 0));
+    }
+
+}
@@ -0,0 +1,158 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.board.BitBoard;
+
+
+// Multi-ProbCut parameters (Buro): the score of a deep search is predicted from a
+// shallow search of the same position as
+//     deep = slope * shallow + offset, give or take sigma
+// with one fit per game stage (disc count) and per deep depth, all from the side to
+// move's point of view. ProbCutFitter measures them offline with our own evaluation.
+//
+// The file is plain text, one fit per line:
+//     stage depth shallowDepth slope offset sigma
+// and '#' starts a comment. Depths past the deepest fit of a stage reuse that fit.
+public class ProbCut
+    extends Object
+{
+
+    // fits for the pattern evaluator and for the hand-weighted heuristic
+    public static final String DEFAULT_PATH = "data/probcut.txt";
+    public static final String HEURISTIC_PATH = "data/probcut-heuristic.txt";
+
+    // the fits file that goes with an evaluator (see SearchConfig.getEvaluator())
+    public static String defaultPath(String evaluator)
+    {
+        return "heuristic".equals(evaluator) ? HEURISTIC_PATH : DEFAULT_PATH;
+    }
+
+    // shallower deep searches are never cut, there is too little to save
+    public static final int MIN_DEPTH = 3;
+    // positions are grouped by disc count, this many disc counts to a stage
+    public static final int STAGE_DISCS = 8;
+    public static final int NUM_STAGES = BitBoard.NUM_SQUARES / STAGE_DISCS + 1;
+
+    // [stage][depth], slope 0 = no fit
+    private final double[][] slope = new double[NUM_STAGES][Searcher.MAX_PLY];
+    private final double[][] offset = new double[NUM_STAGES][Searcher.MAX_PLY];
+    private final double[][] sigma = new double[NUM_STAGES][Searcher.MAX_PLY];
+
+    // The depth of the shallow search that predicts a search of this depth: about half
+    // as deep, and with the same parity, since the evaluation swings with who moved last.
+    public static int shallowDepth(int depth)
+    {
+        return 2 * (depth / 4) + (depth & 1);
+    }
+
+    public static int stage(int discs)
+    {
+        return discs / STAGE_DISCS;
+    }
+
+    public static ProbCut load(String path) throws IOException
+    {
+        ProbCut probCut = new ProbCut();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 6) {
+                    throw new IllegalArgumentException("bad ProbCut line: " + line);
+                }
+                int stage = Integer.parseInt(fields[0]);
+                int depth = Integer.parseInt(fields[1]);
+                if (Integer.parseInt(fields[2]) != shallowDepth(depth)) {
+                    throw new IllegalArgumentException("ProbCut fit for the wrong shallow depth: " + line);
+                }
+                probCut.set(stage, depth, Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                        Double.parseDouble(fields[5]));
+            }
+        }
+        probCut.extend();
+        return probCut;
+    }
+
+    public void set(int stage, int depth, double slope, double offset, double sigma)
+    {
+        this.slope[stage][depth] = slope;
+        this.offset[stage][depth] = offset;
+        this.sigma[stage][depth] = sigma;
+    }
+
+    // carry the deepest fit of every stage on to all deeper searches
+    private void extend()
+    {
+        for (int stage = 0; stage < NUM_STAGES; stage++) {
+            for (int depth = MIN_DEPTH + 1; depth < Searcher.MAX_PLY; depth++) {
+                if (this.slope[stage][depth] == 0.0 && this.slope[stage][depth - 1] != 0.0) {
+                    set(stage, depth, this.slope[stage][depth - 1], this.offset[stage][depth - 1],
+                            this.sigma[stage][depth - 1]);
+                }
+            }
+        }
+    }
+
+    // a fit that doesn't rise with the shallow score predicts nothing
+    public boolean hasFit(int stage, int depth)
+    {
+        return this.slope[stage][depth] > 0.0;
+    }
+
+    public double getSlope(int stage, int depth)
+    {
+        return this.slope[stage][depth];
+    }
+
+    public double getOffset(int stage, int depth)
+    {
+        return this.offset[stage][depth];
+    }
+
+    public double getSigma(int stage, int depth)
+    {
+        return this.sigma[stage][depth];
+    }
+
+    // Write the fits (only the ones that were set, not the extended rows). samples[stage][depth]
+    // goes into a comment next to each line.
+    public static void write(String path, ProbCut probCut, int[][] samples, int maxDepth) throws IOException
+    {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+            out.println("# Multi-ProbCut fits, written by ProbCutFitter:");
+            out.println("#   deep = slope * shallow + offset (sigma = std. dev. of the error)");
+            out.println("# stage depth shallow slope offset sigma   # positions");
+            for (int stage = 0; stage < NUM_STAGES; stage++) {
+                for (int depth = MIN_DEPTH; depth <= maxDepth; depth++) {
+                    if (!probCut.hasFit(stage, depth)) {
+                        continue;
+                    }
+                    out.println(String.format(Locale.ROOT, "%d %d %d %.5f %.5f %.5f   # %d",
+                            stage, depth, shallowDepth(depth), probCut.getSlope(stage, depth),
+                            probCut.getOffset(stage, depth), probCut.getSigma(stage, depth),
+                            samples[stage][depth]));
+                }
+            }
+        }
+    }
+
+}
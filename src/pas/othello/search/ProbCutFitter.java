@@ -0,0 +1,141 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.util.Locale;
+
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.bench.BenchPositions;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.heuristics.Evaluator;
+
+
+// Fits the ProbCut parameters offline: searches positions of every stage to maxDepth
+// with plain (uncut) search, takes the root score of every iteration, and regresses the
+// score at each depth on the score at its shallow depth (least squares). The fits belong
+// to one evaluator: it uses the one set with -Dothello.eval, see OthelloAgent.createEvaluator.
+//     java -cp "lib/*:." src.pas.othello.search.ProbCutFitter [out] [positions per stage] [maxDepth]
+// Defaults: the evaluator's fits file (data/probcut.txt or data/probcut-heuristic.txt),
+// 200 positions, depth 10.
+public class ProbCutFitter
+    extends Object
+{
+
+    private static final long SEED = 4242L;
+    private static final int TT_SIZE_MB = 32;
+    // the opening book covers the positions before this many discs, and past
+    // MAX_DISCS most searches reach the end of the game
+    private static final int MIN_DISCS = 12;
+    private static final int MAX_DISCS = 60;
+    // fewer positions than this don't make a fit
+    private static final int MIN_SAMPLES = 20;
+
+    public static void main(String[] args) throws IOException
+    {
+        SearchConfig config = SearchConfig.fromSystemProperties().setTTSizeMB(TT_SIZE_MB);
+        String path = args.length > 0 ? args[0] : config.getProbCutFile();
+        int perStage = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Evaluator evaluator = OthelloAgent.createEvaluator(config);
+        ProbCut probCut = new ProbCut();
+        int[][] samples = new int[ProbCut.NUM_STAGES][Searcher.MAX_PLY];
+        long startNanos = System.nanoTime();
+        for (int stage = 0; stage < ProbCut.NUM_STAGES; stage++) {
+            int minDiscs = Math.max(MIN_DISCS, stage * ProbCut.STAGE_DISCS);
+            int maxDiscs = Math.min(MAX_DISCS, stage * ProbCut.STAGE_DISCS + ProbCut.STAGE_DISCS - 1);
+            if (minDiscs > maxDiscs) {
+                continue;
+            }
+            // scores[depth][i] of position i, from the side to move's point of view
+            double[][] scores = new double[maxDepth + 1][perStage];
+            for (int i = 0; i < perStage; i++) {
+                int discs = minDiscs + i % (maxDiscs - minDiscs + 1);
+                GameView view = BenchPositions.generate(1, discs, SEED + stage * 100003L + i).get(0);
+                search(view, config, evaluator, maxDepth, scores, i);
+            }
+            for (int depth = ProbCut.MIN_DEPTH; depth <= maxDepth; depth++) {
+                int n = fit(probCut, stage, depth, scores[ProbCut.shallowDepth(depth)], scores[depth]);
+                if (n == 0) {
+                    continue;
+                }
+                samples[stage][depth] = n;
+                System.out.println(String.format(Locale.ROOT,
+                        "[INFO] ProbCutFitter: stage=%d depth=%d shallow=%d positions=%d slope=%.4f offset=%.4f sigma=%.4f",
+                        stage, depth, ProbCut.shallowDepth(depth), n, probCut.getSlope(stage, depth),
+                        probCut.getOffset(stage, depth), probCut.getSigma(stage, depth)));
+            }
+            System.out.println("[INFO] ProbCutFitter: stage " + stage + " done, timeS="
+                    + (System.nanoTime() - startNanos) / 1000000000L);
+        }
+        ProbCut.write(path, probCut, samples, maxDepth);
+        System.out.println("[INFO] ProbCutFitter: wrote " + path);
+    }
+
+    // One iterative-deepening search with ProbCut off; every finished iteration gives the
+    // exact score at its depth. Positions where the game ends within the horizon stop
+    // early, the depths they didn't reach are NaN.
+    private static void search(GameView view, SearchConfig config, Evaluator evaluator, int maxDepth,
+                               double[][] scores, int position)
+    {
+        boolean blackToMove = view.getCurrentPlayerType() == PlayerType.BLACK;
+        long own = BitBoard.fromView(view, view.getCurrentPlayerType());
+        long opp = BitBoard.fromView(view, view.getOtherPlayerType());
+        Searcher searcher = new Searcher(new TranspositionTable(TT_SIZE_MB), config, blackToMove, 0,
+                null, evaluator);
+        searcher.search(own, opp, Zobrist.hash(own, opp, blackToMove), maxDepth,
+                System.nanoTime(), Long.MAX_VALUE / 4, false);
+        int completed = searcher.getCompletedDepth();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            scores[depth][position] = depth <= completed ? searcher.getIterationScore(depth) : Double.NaN;
+        }
+    }
+
+    // Least squares of deep on shallow over the positions that reached the deep search.
+    // Returns how many that were, 0 if too few to fit.
+    private static int fit(ProbCut probCut, int stage, int depth, double[] shallow, double[] deep)
+    {
+        int n = 0;
+        double meanX = 0.0;
+        double meanY = 0.0;
+        for (int i = 0; i < deep.length; i++) {
+            if (!Double.isNaN(deep[i])) {
+                n++;
+                meanX += shallow[i];
+                meanY += deep[i];
+            }
+        }
+        if (n < MIN_SAMPLES) {
+            return 0;
+        }
+        meanX /= n;
+        meanY /= n;
+        double sxx = 0.0;
+        double sxy = 0.0;
+        for (int i = 0; i < deep.length; i++) {
+            if (!Double.isNaN(deep[i])) {
+                sxx += (shallow[i] - meanX) * (shallow[i] - meanX);
+                sxy += (shallow[i] - meanX) * (deep[i] - meanY);
+            }
+        }
+        double slope = sxx > 0.0 ? sxy / sxx : 1.0;
+        double offset = meanY - slope * meanX;
+        double sse = 0.0;
+        for (int i = 0; i < deep.length; i++) {
+            if (!Double.isNaN(deep[i])) {
+                double error = deep[i] - (slope * shallow[i] + offset);
+                sse += error * error;
+            }
+        }
+        probCut.set(stage, depth, slope, offset, Math.sqrt(sse / (n - 2)));
+        return n;
+    }
+
+}
@@ -0,0 +1,689 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.util.Properties;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.heuristics.HeuristicWeights;
+import src.pas.othello.heuristics.PatternEvaluator;
+
+
+// Knobs for the search. The framework builds agents by reflection with only
+// (PlayerType, long), so the defaults come from -D system properties, e.g.
+//     java -Dothello.tt.mb=128 ...
+// Tools and benchmarks can also build one by hand and pass it to OthelloAgent.
+public class SearchConfig
+    extends Object
+{
+
+    public static final String PREFIX = "othello.";
+
+    // size of the transposition table in megabytes
+    private int ttSizeMB;
+    // turning this off gives the plain alpha-beta search, handy as a reference
+    private boolean ttEnabled;
+    // for positions less than this many moves into the game the table is keyed by the
+    // symmetry-canonical orientation (0 = never)
+    private int ttSymmetryPlies;
+    // keep the table from one move to the next (false clears it before every move), and
+    // let entries from earlier moves give way to new ones (a new generation per move)
+    private boolean ttKeep;
+    private boolean ttAgeing;
+    // search the position we expect after the opponent's reply while the opponent
+    // thinks, on a background thread, and carry on with it if the guess was right
+    private boolean ponderEnabled;
+    // search exactly this deep instead of using the clock (0 = use the clock)
+    private int fixedDepth;
+    // part of the per-move budget kept back for the framework and our own bookkeeping
+    private long moveOverheadMS;
+    // plan each move's time over the game (TimeManager): forced moves instantly, more
+    // time for unstable searches, less for settled ones, savings to the endgame solver.
+    // An ordinary move plans timeTarget of the per-move budget.
+    private boolean timeManaged;
+    private double timeTarget;
+    // print one line per move with the depth reached
+    private boolean logEnabled;
+    // number of search threads (1 = deterministic single-threaded search)
+    private int numThreads;
+    // principal variation search (null-window scouts) instead of plain alpha-beta
+    private boolean pvsEnabled;
+    // aspiration window at the root: +- this much around the last iteration's score
+    // (0 = full window), multiplied by aspirationWiden after every miss
+    private double aspirationWindow;
+    private double aspirationWiden;
+    // Multi-ProbCut forward pruning with the fits in probCutFile, cutting when the
+    // shallow search clears the window by probCutSigmas standard errors. The fits belong
+    // to one evaluator: without a file set, it is the one that goes with the evaluator
+    // (ProbCut.defaultPath())
+    private boolean probCutEnabled;
+    private String probCutFile;
+    private double probCutSigmas;
+    // order moves by static evaluation at nodes with 2..orderEvalDepth plies left and
+    // no table move (0 = never, the table move and a per-square prior are used instead)
+    private int orderEvalDepth;
+    // killer moves (per ply) and the history table in move ordering
+    private boolean killersEnabled;
+    private boolean historyEnabled;
+    // between moves the history scores are shifted right by this much
+    // (0 keeps them as they are, 1 halves them, 31 or more wipes them)
+    private int historyAgeShift;
+    // solve exactly (to the end of the game) once this many empty squares are left
+    // (0 = never)
+    private int endgameEmpties;
+    // size of the endgame solver's own table in megabytes
+    private int endgameTTSizeMB;
+    // file of solved positions shared across games and processes (null or "" = none),
+    // its size cap in megabytes, and the fewest empties a position needs to go in
+    private String storeFile;
+    private int storeSizeMB;
+    private int storeEmpties;
+    // stability cutoffs: the endgame solver, and minimax with at most stabilityEmpties
+    // empty squares (0 = only the solver), return early once the discs that can never
+    // flip decide the result
+    private boolean stabilityEnabled;
+    private int stabilityEmpties;
+    // count the detailed search stats (table traffic, branching factor, max ply, ...)
+    // and print them with every move when the log is on
+    private boolean statsEnabled;
+    // append one JSON line of stats per move to this file (null = don't); turns the
+    // detailed stats on as well
+    private String statsFile;
+    // append every position the agent plays, with its score and the game's result, to
+    // this position corpus (null or "" = don't)
+    private String corpusFile;
+    // opening book built by BookBuilder (null or "" = no book; a missing file is
+    // skipped quietly, so agents started from another directory still play)
+    private String bookFile;
+    // static evaluation: "pattern" (PatternEvaluator with the trained weights in
+    // evalWeightsFile) or "heuristic" (hand-weighted Heuristics). The ProbCut fits
+    // follow it, unless probCutFile is set
+    private String evaluator;
+    private String evalWeightsFile;
+    // weights of the hand-weighted heuristic, written by HeuristicTuner (a missing file
+    // leaves the hand-picked defaults)
+    private String heuristicWeightsFile;
+    // keep the evaluator's features up to date move by move along the search path
+    // (evaluators that support it), and, to debug that, check them against a full
+    // recomputation at every node
+    private boolean evalIncremental;
+    private boolean evalCheck;
+    // weight of the stable-disc term in the hand-weighted heuristic (0 = left out; the
+    // pattern evaluator has its edge and corner patterns instead)
+    private double evalStabilityWeight;
+
+    public SearchConfig()
+    {
+        this.ttSizeMB = 32;
+        this.ttEnabled = true;
+        this.ttSymmetryPlies = 0;
+        this.ttKeep = true;
+        this.ttAgeing = true;
+        this.ponderEnabled = false;
+        this.fixedDepth = 0;
+        this.moveOverheadMS = 150;
+        this.timeManaged = true;
+        this.timeTarget = 0.8;
+        this.logEnabled = true;
+        this.numThreads = 1;
+        this.pvsEnabled = true;
+        this.aspirationWindow = 0.0;
+        this.aspirationWiden = 4.0;
+        this.probCutEnabled = true;
+        this.probCutFile = null;
+        this.probCutSigmas = 2.0;
+        this.orderEvalDepth = 0;
+        this.killersEnabled = true;
+        this.historyEnabled = true;
+        this.historyAgeShift = 1;
+        this.endgameEmpties = 16;
+        this.endgameTTSizeMB = 8;
+        this.storeFile = null;
+        this.storeSizeMB = 64;
+        this.storeEmpties = 12;
+        this.stabilityEnabled = true;
+        this.stabilityEmpties = 0;
+        this.statsEnabled = false;
+        this.statsFile = null;
+        this.corpusFile = null;
+        this.bookFile = "data/opening.book";
+        this.evaluator = "pattern";
+        this.evalWeightsFile = PatternEvaluator.DEFAULT_PATH;
+        this.heuristicWeightsFile = HeuristicWeights.DEFAULT_PATH;
+        this.evalIncremental = true;
+        this.evalCheck = false;
+        this.evalStabilityWeight = 0.0;
+    }
+
+    public static SearchConfig fromSystemProperties()
+    {
+        return fromProperties(System.getProperties());
+    }
+
+    // The same from any set of "othello.*" properties, e.g. a tool's per-agent settings
+    // laid over the system properties.
+    public static SearchConfig fromProperties(Properties properties)
+    {
+        SearchConfig config = new SearchConfig();
+        config.setTTSizeMB(getInt(properties, PREFIX + "tt.mb", config.getTTSizeMB()));
+        config.setTTEnabled(getBoolean(properties, PREFIX + "tt.enabled", config.isTTEnabled()));
+        config.setTTSymmetryPlies(getInt(properties, PREFIX + "tt.symmetry.plies", config.getTTSymmetryPlies()));
+        config.setTTKeep(getBoolean(properties, PREFIX + "tt.keep", config.isTTKeep()));
+        config.setTTAgeing(getBoolean(properties, PREFIX + "tt.ageing", config.isTTAgeing()));
+        config.setPonderEnabled(getBoolean(properties, PREFIX + "ponder", config.isPonderEnabled()));
+        config.setFixedDepth(getInt(properties, PREFIX + "depth", config.getFixedDepth()));
+        config.setMoveOverheadMS(getLong(properties, PREFIX + "time.overhead.ms", config.getMoveOverheadMS()));
+        config.setTimeManaged(getBoolean(properties, PREFIX + "time.manage", config.isTimeManaged()));
+        config.setTimeTarget(getDouble(properties, PREFIX + "time.target", config.getTimeTarget()));
+        config.setLogEnabled(getBoolean(properties, PREFIX + "log", config.isLogEnabled()));
+        config.setNumThreads(getInt(properties, PREFIX + "threads", config.getNumThreads()));
+        config.setPvsEnabled(getBoolean(properties, PREFIX + "search.pvs", config.isPvsEnabled()));
+        config.setAspirationWindow(getDouble(properties, PREFIX + "search.aspiration", config.getAspirationWindow()));
+        config.setAspirationWiden(getDouble(properties, PREFIX + "search.aspiration.widen", config.getAspirationWiden()));
+        config.setProbCutEnabled(getBoolean(properties, PREFIX + "probcut", config.isProbCutEnabled()));
+        config.setProbCutFile(properties.getProperty(PREFIX + "probcut.file", config.probCutFile));
+        config.setProbCutSigmas(getDouble(properties, PREFIX + "probcut.sigmas", config.getProbCutSigmas()));
+        config.setOrderEvalDepth(getInt(properties, PREFIX + "order.eval.depth", config.getOrderEvalDepth()));
+        config.setKillersEnabled(getBoolean(properties, PREFIX + "order.killers", config.isKillersEnabled()));
+        config.setHistoryEnabled(getBoolean(properties, PREFIX + "order.history", config.isHistoryEnabled()));
+        config.setHistoryAgeShift(getInt(properties, PREFIX + "order.history.age", config.getHistoryAgeShift()));
+        config.setEndgameEmpties(getInt(properties, PREFIX + "endgame.empties", config.getEndgameEmpties()));
+        config.setEndgameTTSizeMB(getInt(properties, PREFIX + "endgame.tt.mb", config.getEndgameTTSizeMB()));
+        config.setStoreFile(properties.getProperty(PREFIX + "store", config.getStoreFile()));
+        config.setStoreSizeMB(getInt(properties, PREFIX + "store.mb", config.getStoreSizeMB()));
+        config.setStoreEmpties(getInt(properties, PREFIX + "store.empties", config.getStoreEmpties()));
+        config.setStabilityEnabled(getBoolean(properties, PREFIX + "stability", config.isStabilityEnabled()));
+        config.setStabilityEmpties(getInt(properties, PREFIX + "stability.empties", config.getStabilityEmpties()));
+        config.setStatsEnabled(getBoolean(properties, PREFIX + "stats", config.isStatsEnabled()));
+        config.setStatsFile(properties.getProperty(PREFIX + "stats.file", config.getStatsFile()));
+        config.setCorpusFile(properties.getProperty(PREFIX + "corpus", config.getCorpusFile()));
+        config.setBookFile(properties.getProperty(PREFIX + "book", config.getBookFile()));
+        config.setEvaluator(properties.getProperty(PREFIX + "eval", config.getEvaluator()));
+        config.setEvalWeightsFile(properties.getProperty(PREFIX + "eval.weights", config.getEvalWeightsFile()));
+        config.setHeuristicWeightsFile(properties.getProperty(PREFIX + "eval.heuristic.weights",
+                config.getHeuristicWeightsFile()));
+        config.setEvalIncremental(getBoolean(properties, PREFIX + "eval.incremental", config.isEvalIncremental()));
+        config.setEvalCheck(getBoolean(properties, PREFIX + "eval.check", config.isEvalCheck()));
+        config.setEvalStabilityWeight(getDouble(properties, PREFIX + "eval.stability", config.getEvalStabilityWeight()));
+        return config;
+    }
+
+    // Integer.getInteger() and friends only read the system properties, so roll our own
+    // (same rules: decoded like Integer.decode(), the default if it isn't a number)
+    private static int getInt(Properties properties, String name, int defaultValue)
+    {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.decode(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long getLong(Properties properties, String name, long defaultValue)
+    {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.decode(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static boolean getBoolean(Properties properties, String name, boolean defaultValue)
+    {
+        String value = properties.getProperty(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static double getDouble(Properties properties, String name, double defaultValue)
+    {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public int getTTSizeMB()
+    {
+        return this.ttSizeMB;
+    }
+
+    public SearchConfig setTTSizeMB(int ttSizeMB)
+    {
+        this.ttSizeMB = ttSizeMB;
+        return this;
+    }
+
+    public boolean isTTEnabled()
+    {
+        return this.ttEnabled;
+    }
+
+    public SearchConfig setTTEnabled(boolean ttEnabled)
+    {
+        this.ttEnabled = ttEnabled;
+        return this;
+    }
+
+    public int getTTSymmetryPlies()
+    {
+        return this.ttSymmetryPlies;
+    }
+
+    public SearchConfig setTTSymmetryPlies(int ttSymmetryPlies)
+    {
+        this.ttSymmetryPlies = ttSymmetryPlies;
+        return this;
+    }
+
+    public boolean isTTKeep()
+    {
+        return this.ttKeep;
+    }
+
+    public SearchConfig setTTKeep(boolean ttKeep)
+    {
+        this.ttKeep = ttKeep;
+        return this;
+    }
+
+    public boolean isTTAgeing()
+    {
+        return this.ttAgeing;
+    }
+
+    public SearchConfig setTTAgeing(boolean ttAgeing)
+    {
+        this.ttAgeing = ttAgeing;
+        return this;
+    }
+
+    public boolean isPonderEnabled()
+    {
+        return this.ponderEnabled;
+    }
+
+    public SearchConfig setPonderEnabled(boolean ponderEnabled)
+    {
+        this.ponderEnabled = ponderEnabled;
+        return this;
+    }
+
+    public int getFixedDepth()
+    {
+        return this.fixedDepth;
+    }
+
+    public SearchConfig setFixedDepth(int fixedDepth)
+    {
+        this.fixedDepth = fixedDepth;
+        return this;
+    }
+
+    public long getMoveOverheadMS()
+    {
+        return this.moveOverheadMS;
+    }
+
+    public SearchConfig setMoveOverheadMS(long moveOverheadMS)
+    {
+        this.moveOverheadMS = moveOverheadMS;
+        return this;
+    }
+
+    public boolean isTimeManaged()
+    {
+        return this.timeManaged;
+    }
+
+    public SearchConfig setTimeManaged(boolean timeManaged)
+    {
+        this.timeManaged = timeManaged;
+        return this;
+    }
+
+    public double getTimeTarget()
+    {
+        return this.timeTarget;
+    }
+
+    public SearchConfig setTimeTarget(double timeTarget)
+    {
+        this.timeTarget = timeTarget;
+        return this;
+    }
+
+    public boolean isLogEnabled()
+    {
+        return this.logEnabled;
+    }
+
+    public SearchConfig setLogEnabled(boolean logEnabled)
+    {
+        this.logEnabled = logEnabled;
+        return this;
+    }
+
+    public int getNumThreads()
+    {
+        return this.numThreads;
+    }
+
+    public SearchConfig setNumThreads(int numThreads)
+    {
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public boolean isPvsEnabled()
+    {
+        return this.pvsEnabled;
+    }
+
+    public SearchConfig setPvsEnabled(boolean pvsEnabled)
+    {
+        this.pvsEnabled = pvsEnabled;
+        return this;
+    }
+
+    public double getAspirationWindow()
+    {
+        return this.aspirationWindow;
+    }
+
+    public SearchConfig setAspirationWindow(double aspirationWindow)
+    {
+        this.aspirationWindow = aspirationWindow;
+        return this;
+    }
+
+    public double getAspirationWiden()
+    {
+        return this.aspirationWiden;
+    }
+
+    public SearchConfig setAspirationWiden(double aspirationWiden)
+    {
+        this.aspirationWiden = aspirationWiden;
+        return this;
+    }
+
+    public boolean isProbCutEnabled()
+    {
+        return this.probCutEnabled;
+    }
+
+    public SearchConfig setProbCutEnabled(boolean probCutEnabled)
+    {
+        this.probCutEnabled = probCutEnabled;
+        return this;
+    }
+
+    // the file set, or else the one for the evaluator
+    public String getProbCutFile()
+    {
+        return this.probCutFile != null ? this.probCutFile : ProbCut.defaultPath(this.evaluator);
+    }
+
+    public SearchConfig setProbCutFile(String probCutFile)
+    {
+        this.probCutFile = probCutFile;
+        return this;
+    }
+
+    public double getProbCutSigmas()
+    {
+        return this.probCutSigmas;
+    }
+
+    public SearchConfig setProbCutSigmas(double probCutSigmas)
+    {
+        this.probCutSigmas = probCutSigmas;
+        return this;
+    }
+
+    public int getOrderEvalDepth()
+    {
+        return this.orderEvalDepth;
+    }
+
+    public SearchConfig setOrderEvalDepth(int orderEvalDepth)
+    {
+        this.orderEvalDepth = orderEvalDepth;
+        return this;
+    }
+
+    public boolean isKillersEnabled()
+    {
+        return this.killersEnabled;
+    }
+
+    public SearchConfig setKillersEnabled(boolean killersEnabled)
+    {
+        this.killersEnabled = killersEnabled;
+        return this;
+    }
+
+    public boolean isHistoryEnabled()
+    {
+        return this.historyEnabled;
+    }
+
+    public SearchConfig setHistoryEnabled(boolean historyEnabled)
+    {
+        this.historyEnabled = historyEnabled;
+        return this;
+    }
+
+    public int getHistoryAgeShift()
+    {
+        return this.historyAgeShift;
+    }
+
+    public SearchConfig setHistoryAgeShift(int historyAgeShift)
+    {
+        this.historyAgeShift = historyAgeShift;
+        return this;
+    }
+
+    public int getEndgameEmpties()
+    {
+        return this.endgameEmpties;
+    }
+
+    public SearchConfig setEndgameEmpties(int endgameEmpties)
+    {
+        this.endgameEmpties = endgameEmpties;
+        return this;
+    }
+
+    public int getEndgameTTSizeMB()
+    {
+        return this.endgameTTSizeMB;
+    }
+
+    public SearchConfig setEndgameTTSizeMB(int endgameTTSizeMB)
+    {
+        this.endgameTTSizeMB = endgameTTSizeMB;
+        return this;
+    }
+
+    public String getStoreFile()
+    {
+        return this.storeFile;
+    }
+
+    public SearchConfig setStoreFile(String storeFile)
+    {
+        this.storeFile = storeFile;
+        return this;
+    }
+
+    public int getStoreSizeMB()
+    {
+        return this.storeSizeMB;
+    }
+
+    public SearchConfig setStoreSizeMB(int storeSizeMB)
+    {
+        this.storeSizeMB = storeSizeMB;
+        return this;
+    }
+
+    public int getStoreEmpties()
+    {
+        return this.storeEmpties;
+    }
+
+    public SearchConfig setStoreEmpties(int storeEmpties)
+    {
+        this.storeEmpties = storeEmpties;
+        return this;
+    }
+
+    public boolean isStabilityEnabled()
+    {
+        return this.stabilityEnabled;
+    }
+
+    public SearchConfig setStabilityEnabled(boolean stabilityEnabled)
+    {
+        this.stabilityEnabled = stabilityEnabled;
+        return this;
+    }
+
+    public int getStabilityEmpties()
+    {
+        return this.stabilityEmpties;
+    }
+
+    public SearchConfig setStabilityEmpties(int stabilityEmpties)
+    {
+        this.stabilityEmpties = stabilityEmpties;
+        return this;
+    }
+
+    public boolean isStatsEnabled()
+    {
+        return this.statsEnabled || this.statsFile != null;
+    }
+
+    public SearchConfig setStatsEnabled(boolean statsEnabled)
+    {
+        this.statsEnabled = statsEnabled;
+        return this;
+    }
+
+    public String getStatsFile()
+    {
+        return this.statsFile;
+    }
+
+    public SearchConfig setStatsFile(String statsFile)
+    {
+        this.statsFile = statsFile;
+        return this;
+    }
+
+    public String getCorpusFile()
+    {
+        return this.corpusFile;
+    }
+
+    public SearchConfig setCorpusFile(String corpusFile)
+    {
+        this.corpusFile = corpusFile;
+        return this;
+    }
+
+    public String getBookFile()
+    {
+        return this.bookFile;
+    }
+
+    public SearchConfig setBookFile(String bookFile)
+    {
+        this.bookFile = bookFile;
+        return this;
+    }
+
+    public String getEvaluator()
+    {
+        return this.evaluator;
+    }
+
+    public SearchConfig setEvaluator(String evaluator)
+    {
+        this.evaluator = evaluator;
+        return this;
+    }
+
+    public String getEvalWeightsFile()
+    {
+        return this.evalWeightsFile;
+    }
+
+    public SearchConfig setEvalWeightsFile(String evalWeightsFile)
+    {
+        this.evalWeightsFile = evalWeightsFile;
+        return this;
+    }
+
+    public String getHeuristicWeightsFile()
+    {
+        return this.heuristicWeightsFile;
+    }
+
+    public SearchConfig setHeuristicWeightsFile(String heuristicWeightsFile)
+    {
+        this.heuristicWeightsFile = heuristicWeightsFile;
+        return this;
+    }
+
+    public boolean isEvalIncremental()
+    {
+        return this.evalIncremental;
+    }
+
+    public SearchConfig setEvalIncremental(boolean evalIncremental)
+    {
+        this.evalIncremental = evalIncremental;
+        return this;
+    }
+
+    public boolean isEvalCheck()
+    {
+        return this.evalCheck;
+    }
+
+    public SearchConfig setEvalCheck(boolean evalCheck)
+    {
+        this.evalCheck = evalCheck;
+        return this;
+    }
+
+    public double getEvalStabilityWeight()
+    {
+        return this.evalStabilityWeight;
+    }
+
+    public SearchConfig setEvalStabilityWeight(double evalStabilityWeight)
+    {
+        this.evalStabilityWeight = evalStabilityWeight;
+        return this;
+    }
+
+}
@@ -0,0 +1,379 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+import java.util.Locale;
+
+
+// JAVA PROJECT IMPORTS
+
+
+// Counters for one search. Every Searcher owns one and is the only thread writing to
+// it, so counting is just a field increment (no atomics, no sharing). The agent merges
+// them once the move is decided, see OthelloAgent.getLastSearchStats().
+//
+// Nodes, evaluations, cutoffs and iteration times are always counted (the search
+// needs some of them anyway). The rest is only counted when the detailed stats are
+// switched on (-Dothello.stats=true), otherwise it stays 0.
+public class SearchStats
+    extends Object
+{
+
+    // always counted
+    long nodes;
+    long heuristicCalls;
+    long cutoffs;
+    // cutoffsByIndex[i] = cutoffs caused by the i-th move tried (0 = the first one)
+    final long[] cutoffsByIndex = new long[Searcher.MAX_MOVES];
+    // iterations started (finished or not), i.e. how often a root was searched
+    long iterations;
+    // null-window scouts that had to be searched again with the full window, and root
+    // searches repeated because the score fell outside the aspiration window
+    long pvsResearches;
+    long aspirationResearches;
+    // nodes cut by ProbCut instead of being searched
+    long probCuts;
+    // nodes whose result the stable discs already decided
+    long stabilityCuts;
+    int completedDepth;
+    // per finished iteration (index = depth): time taken and nodes visited
+    final long[] iterationNanos = new long[Searcher.MAX_PLY];
+    final long[] iterationNodes = new long[Searcher.MAX_PLY];
+
+    // only with detailed stats
+    long leafEvals;
+    long interiorNodes;
+    long ttProbes;
+    long ttHits;
+    long ttStores;
+    long ttCollisions;
+    int maxPly;
+
+    // filled in by the agent
+    private boolean solved;
+    // the search started on the opponent's time (a ponder hit), so the counters include
+    // the part searched before the move came in
+    private boolean pondered;
+    private long timeNanos;
+    // what the time manager planned for the move (0 without one)
+    private long plannedNanos;
+
+    public void reset()
+    {
+        this.nodes = 0L;
+        this.heuristicCalls = 0L;
+        this.cutoffs = 0L;
+        this.iterations = 0L;
+        this.pvsResearches = 0L;
+        this.aspirationResearches = 0L;
+        this.probCuts = 0L;
+        this.stabilityCuts = 0L;
+        this.completedDepth = 0;
+        Arrays.fill(this.iterationNanos, 0L);
+        Arrays.fill(this.iterationNodes, 0L);
+        this.leafEvals = 0L;
+        this.interiorNodes = 0L;
+        this.ttProbes = 0L;
+        this.ttHits = 0L;
+        this.ttStores = 0L;
+        this.ttCollisions = 0L;
+        this.maxPly = 0;
+        Arrays.fill(this.cutoffsByIndex, 0L);
+        this.solved = false;
+        this.pondered = false;
+        this.timeNanos = 0L;
+        this.plannedNanos = 0L;
+    }
+
+    // Fold another thread's counters into these. The per-iteration times and the completed
+    // depth stay the ones of this (the main) searcher, since the helpers search other depths.
+    public void add(SearchStats other)
+    {
+        this.nodes += other.nodes;
+        this.heuristicCalls += other.heuristicCalls;
+        this.cutoffs += other.cutoffs;
+        this.iterations += other.iterations;
+        this.pvsResearches += other.pvsResearches;
+        this.aspirationResearches += other.aspirationResearches;
+        this.probCuts += other.probCuts;
+        this.stabilityCuts += other.stabilityCuts;
+        this.leafEvals += other.leafEvals;
+        this.interiorNodes += other.interiorNodes;
+        this.ttProbes += other.ttProbes;
+        this.ttHits += other.ttHits;
+        this.ttStores += other.ttStores;
+        this.ttCollisions += other.ttCollisions;
+        this.maxPly = Math.max(this.maxPly, other.maxPly);
+        for (int i = 0; i < this.cutoffsByIndex.length; i++) {
+            this.cutoffsByIndex[i] += other.cutoffsByIndex[i];
+        }
+    }
+
+    public void copyFrom(SearchStats other)
+    {
+        reset();
+        add(other);
+        this.completedDepth = other.completedDepth;
+        System.arraycopy(other.iterationNanos, 0, this.iterationNanos, 0, this.iterationNanos.length);
+        System.arraycopy(other.iterationNodes, 0, this.iterationNodes, 0, this.iterationNodes.length);
+        this.solved = other.solved;
+        this.pondered = other.pondered;
+        this.timeNanos = other.timeNanos;
+        this.plannedNanos = other.plannedNanos;
+    }
+
+    public long getNodes()
+    {
+        return this.nodes;
+    }
+
+    // Heuristics calls, at the leaves and for move ordering
+    public long getHeuristicCalls()
+    {
+        return this.heuristicCalls;
+    }
+
+    public long getLeafEvals()
+    {
+        return this.leafEvals;
+    }
+
+    public long getCutoffs()
+    {
+        return this.cutoffs;
+    }
+
+    public long getCutoffsAtIndex(int moveIndex)
+    {
+        return this.cutoffsByIndex[moveIndex];
+    }
+
+    // share of the cutoffs that came from the first move tried
+    public double getFirstMoveCutoffRate()
+    {
+        return this.cutoffs == 0L ? 0.0 : (double) this.cutoffsByIndex[0] / this.cutoffs;
+    }
+
+    public long getPvsResearches()
+    {
+        return this.pvsResearches;
+    }
+
+    public long getAspirationResearches()
+    {
+        return this.aspirationResearches;
+    }
+
+    public long getProbCuts()
+    {
+        return this.probCuts;
+    }
+
+    public long getStabilityCuts()
+    {
+        return this.stabilityCuts;
+    }
+
+    public long getTTProbes()
+    {
+        return this.ttProbes;
+    }
+
+    public long getTTHits()
+    {
+        return this.ttHits;
+    }
+
+    public double getTTHitRate()
+    {
+        return this.ttProbes == 0L ? 0.0 : (double) this.ttHits / this.ttProbes;
+    }
+
+    public long getTTStores()
+    {
+        return this.ttStores;
+    }
+
+    // stores that threw out an entry for a different position
+    public long getTTCollisions()
+    {
+        return this.ttCollisions;
+    }
+
+    // nodes whose moves were searched (not leaves, not answered by the table)
+    public long getInteriorNodes()
+    {
+        return this.interiorNodes;
+    }
+
+    // average number of children searched per interior node. Every node but the root
+    // of an iteration is somebody's child, so that is (nodes - iterations) / interior.
+    public double getBranchingFactor()
+    {
+        return this.interiorNodes == 0L ? 0.0 : (double) (this.nodes - this.iterations) / this.interiorNodes;
+    }
+
+    // deepest ply reached (passes count as a ply)
+    public int getMaxPly()
+    {
+        return this.maxPly;
+    }
+
+    public int getCompletedDepth()
+    {
+        return this.completedDepth;
+    }
+
+    public long getIterationNanos(int depth)
+    {
+        return this.iterationNanos[depth];
+    }
+
+    public long getIterationNodes(int depth)
+    {
+        return this.iterationNodes[depth];
+    }
+
+    // the move came from the endgame solver rather than the search
+    public boolean isSolved()
+    {
+        return this.solved;
+    }
+
+    public boolean isPondered()
+    {
+        return this.pondered;
+    }
+
+    public void setPondered(boolean pondered)
+    {
+        this.pondered = pondered;
+    }
+
+    // the move was solved, so the only counter there is is the solver's node count
+    public void recordSolve(long solverNodes)
+    {
+        reset();
+        this.solved = true;
+        this.nodes = solverNodes;
+    }
+
+    // wall time of the whole move
+    public long getTimeNanos()
+    {
+        return this.timeNanos;
+    }
+
+    public void setTimeNanos(long timeNanos)
+    {
+        this.timeNanos = timeNanos;
+    }
+
+    public long getPlannedNanos()
+    {
+        return this.plannedNanos;
+    }
+
+    public void setPlannedNanos(long plannedNanos)
+    {
+        this.plannedNanos = plannedNanos;
+    }
+
+    // one line for the console, the detailed part only when there is something in it
+    public String toLogString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("nodes=").append(this.nodes)
+                .append(" evals=").append(this.heuristicCalls)
+                .append(" cutoffs=").append(this.cutoffs)
+                .append(" firstMoveCutoffs=").append(percent(getFirstMoveCutoffRate()))
+                .append(" pvsResearches=").append(this.pvsResearches)
+                .append(" aspirationResearches=").append(this.aspirationResearches)
+                .append(" probCuts=").append(this.probCuts)
+                .append(" stabilityCuts=").append(this.stabilityCuts);
+        if (this.pondered) {
+            sb.append(" pondered");
+        }
+        if (this.interiorNodes > 0L) {
+            sb.append(" leafEvals=").append(this.leafEvals)
+                    .append(" ttProbes=").append(this.ttProbes)
+                    .append(" ttHits=").append(percent(getTTHitRate()))
+                    .append(" ttStores=").append(this.ttStores)
+                    .append(" ttCollisions=").append(this.ttCollisions)
+                    .append(" branching=").append(String.format(Locale.ROOT, "%.2f", getBranchingFactor()))
+                    .append(" maxPly=").append(this.maxPly);
+        }
+        sb.append(" iterationsMS=");
+        boolean first = true;
+        for (int depth = 1; depth <= this.completedDepth; depth++) {
+            if (this.iterationNodes[depth] == 0L) {
+                continue;
+            }
+            sb.append(first ? "" : ",").append(depth).append(':')
+                    .append(String.format(Locale.ROOT, "%.1f", this.iterationNanos[depth] / 1e6));
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    // The counters as one JSON object (no trailing newline). The agent adds the
+    // position and move fields in front.
+    public String toJson()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\"solved\":").append(this.solved)
+                .append(",\"pondered\":").append(this.pondered)
+                .append(",\"timeUs\":").append(this.timeNanos / 1000L)
+                .append(",\"planUs\":").append(this.plannedNanos / 1000L)
+                .append(",\"depth\":").append(this.completedDepth)
+                .append(",\"nodes\":").append(this.nodes)
+                .append(",\"evals\":").append(this.heuristicCalls)
+                .append(",\"leafEvals\":").append(this.leafEvals)
+                .append(",\"interiorNodes\":").append(this.interiorNodes)
+                .append(",\"branching\":").append(String.format(Locale.ROOT, "%.4f", getBranchingFactor()))
+                .append(",\"maxPly\":").append(this.maxPly)
+                .append(",\"ttProbes\":").append(this.ttProbes)
+                .append(",\"ttHits\":").append(this.ttHits)
+                .append(",\"ttStores\":").append(this.ttStores)
+                .append(",\"ttCollisions\":").append(this.ttCollisions)
+                .append(",\"cutoffs\":").append(this.cutoffs)
+                .append(",\"pvsResearches\":").append(this.pvsResearches)
+                .append(",\"aspirationResearches\":").append(this.aspirationResearches)
+                .append(",\"probCuts\":").append(this.probCuts)
+                .append(",\"stabilityCuts\":").append(this.stabilityCuts);
+
+        // cut the histogram after the last non-zero bucket
+        int last = this.cutoffsByIndex.length - 1;
+        while (last >= 0 && this.cutoffsByIndex[last] == 0L) {
+            last--;
+        }
+        sb.append(",\"cutoffsByIndex\":[");
+        for (int i = 0; i <= last; i++) {
+            sb.append(i == 0 ? "" : ",").append(this.cutoffsByIndex[i]);
+        }
+        sb.append(']');
+
+        sb.append(",\"iterations\":[");
+        boolean first = true;
+        for (int depth = 1; depth <= this.completedDepth; depth++) {
+            if (this.iterationNodes[depth] == 0L) {
+                continue;
+            }
+            sb.append(first ? "" : ",")
+                    .append("{\"depth\":").append(depth)
+                    .append(",\"nodes\":").append(this.iterationNodes[depth])
+                    .append(",\"timeUs\":").append(this.iterationNanos[depth] / 1000L)
+                    .append('}');
+            first = false;
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private static String percent(double rate)
+    {
+        return String.format(Locale.ROOT, "%.1f%%", 100.0 * rate);
+    }
+
+}
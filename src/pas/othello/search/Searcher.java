@@ -0,0 +1,885 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.agents.OthelloAgent.OthelloNode;
+import src.pas.othello.board.BitBoard;
+import src.pas.othello.board.Stability;
+import src.pas.othello.board.Symmetry;
+import src.pas.othello.board.Zobrist;
+import src.pas.othello.heuristics.Evaluator;
+import src.pas.othello.heuristics.HeuristicEvaluator;
+import src.pas.othello.heuristics.IncrementalEvaluator;
+import src.pas.othello.ordering.MoveOrderer;
+
+
+// One search thread: iterative deepening + alpha-beta minimax on bitboards,
+// optionally as principal variation search with aspiration windows at the root.
+// Everything a search mutates (move buffers, PV table, counters) lives in here, so
+// several Searchers can run at once and only share the transposition table
+// (Lazy SMP). With a single Searcher the search is fully deterministic.
+public class Searcher
+    extends Object
+{
+
+    // Deepest ply the search can reach (passes count as a ply too)
+    public static final int MAX_PLY = 128;
+    // Upper bound on legal moves in one position
+    public static final int MAX_MOVES = 64;
+
+    // Look at the clock once every this many nodes (must be 2^k - 1)
+    private static final long TIME_CHECK_MASK = 2047L;
+
+    // once any history score gets this big the whole table is halved, so it can't overflow
+    private static final int HISTORY_MAX = 1 << 24;
+
+    // after this many aspiration re-searches the side that keeps failing goes to infinity
+    private static final int MAX_ASPIRATION_TRIES = 4;
+
+    // Thrown to unwind the search when the deadline passes. Nothing is stored on the
+    // way out, so the table only ever sees results of finished subtrees.
+    private static final class SearchTimeout
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        private static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        private SearchTimeout()
+        {
+            super(null, null, false, false);
+        }
+    }
+
+    private final TranspositionTable transpositionTable;
+    // false runs the plain alpha-beta reference search without any table
+    private final boolean useTT;
+    private final TranspositionTable.Entry ttEntry = new TranspositionTable.Entry();
+    // MAX (the agent) plays black
+    private final boolean maxIsBlack;
+    // 0 is the main thread, the others are helpers
+    private final int id;
+    // order children by static evaluation only this close to the leaves
+    private final int orderEvalDepth;
+    private final boolean useKillers;
+    private final boolean useHistory;
+    private final int historyAgeShift;
+    // count the detailed stats too (table traffic, interior nodes, max ply, leaf evals)
+    private final boolean detailedStats;
+    // positions with fewer discs than this go in the table under their canonical
+    // orientation, so all 8 symmetric images share one entry
+    private final boolean useSymmetry;
+    private final int symmetryDiscs;
+    // principal variation search: full window for the first move, null-window scouts
+    // (re-searched if they beat the bound) for the rest
+    private final boolean usePvs;
+    // root window of +-aspirationWindow around the last iteration's score (0 = off),
+    // multiplied by aspirationWiden every time the score falls outside
+    private final double aspirationWindow;
+    private final double aspirationWiden;
+    // stability cutoffs at nodes with at most this many empty squares (-1 = off)
+    private final int stabilityEmpties;
+    // Multi-ProbCut fits (null = off), and how many sigmas of error a cut must allow for
+    private final ProbCut probCut;
+    private final double probCutSigmas;
+    // static evaluation at the leaves (and for ordering by evaluation)
+    private final Evaluator evaluator;
+    // the same evaluator if it is kept up to date move by move (else null), its state
+    // for the position at each ply, and whether to check that state at every node
+    private final IncrementalEvaluator incremental;
+    private final int[][] evalState;
+    private final boolean checkEval;
+    private final int[] checkState;
+
+    // Scratch buffers for move generation, one row per ply so the search doesn't allocate
+    private final int[][] moveBuffer = new int[MAX_PLY][MAX_MOVES];
+    private final double[][] keyBuffer = new double[MAX_PLY][MAX_MOVES];
+    // root moves, kept in order across iterations (best one first)
+    private final int[] rootMoves = new int[MAX_MOVES];
+
+    // Killer moves: the last two moves that caused a cutoff at each ply. A move that
+    // refuted one position often refutes its siblings too, so they go right after the
+    // table move.
+    private final int[][] killers = new int[MAX_PLY][2];
+    // History table: cutoff credit per square, one row per side to move (0 = black).
+    // Kept across moves and aged in between, see ageHistory().
+    private final int[][] history = new int[2][BitBoard.NUM_SQUARES];
+
+    // Triangular principal variation table: pv[ply][ply..pvLength[ply]) is the best
+    // line found from that ply. A pass shows up as NO_MOVE.
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // principal variation of the last finished iteration, and whether the node
+    // being entered is still on it
+    private final int[] prevPv = new int[MAX_PLY + 1];
+    private int prevPvLength;
+    private boolean followPv;
+
+    // when the current search has to stop, and whether it is allowed to stop early
+    private volatile long deadlineNanos;
+    private boolean canAbort;
+    // start and budget of the current search's clock
+    private volatile long clockStartNanos;
+    private volatile long clockBudgetNanos;
+    // set while the search runs on the opponent's time: there is no clock until
+    // ponderHit() starts one, see ponder()
+    private volatile boolean pondering;
+    // set from another thread to stop a helper
+    private volatile boolean stopRequested;
+    // decides when to stop iterating (main searcher only, null = at half the budget)
+    private TimeManager timeManager;
+
+    // counters of the last search (only this thread writes them)
+    private final SearchStats stats = new SearchStats();
+    private double bestScore;
+    // root score of every finished iteration of the current search (index = depth)
+    private final double[] iterationScores = new double[MAX_PLY + 1];
+
+    public Searcher(TranspositionTable transpositionTable, SearchConfig config, boolean maxIsBlack, int id)
+    {
+        this(transpositionTable, config, maxIsBlack, id, null, HeuristicEvaluator.INSTANCE);
+    }
+
+    public Searcher(TranspositionTable transpositionTable, SearchConfig config, boolean maxIsBlack, int id,
+                    ProbCut probCut, Evaluator evaluator)
+    {
+        this.transpositionTable = transpositionTable;
+        this.useTT = config.isTTEnabled();
+        this.maxIsBlack = maxIsBlack;
+        this.id = id;
+        this.orderEvalDepth = config.getOrderEvalDepth();
+        this.useKillers = config.isKillersEnabled();
+        this.useHistory = config.isHistoryEnabled();
+        this.historyAgeShift = config.getHistoryAgeShift();
+        this.detailedStats = config.isStatsEnabled();
+        this.useSymmetry = config.getTTSymmetryPlies() > 0;
+        this.symmetryDiscs = 4 + config.getTTSymmetryPlies();
+        this.usePvs = config.isPvsEnabled();
+        this.aspirationWindow = config.getAspirationWindow();
+        this.aspirationWiden = config.getAspirationWiden();
+        this.stabilityEmpties = config.isStabilityEnabled() && config.getStabilityEmpties() > 0
+                ? config.getStabilityEmpties() : -1;
+        this.probCut = probCut;
+        this.probCutSigmas = config.getProbCutSigmas();
+        this.evaluator = evaluator;
+        this.incremental = config.isEvalIncremental() && evaluator instanceof IncrementalEvaluator
+                ? (IncrementalEvaluator) evaluator : null;
+        int stateSize = this.incremental != null ? this.incremental.stateSize() : 0;
+        this.evalState = new int[MAX_PLY + 1][stateSize];
+        this.checkEval = config.isEvalCheck() && this.incremental != null;
+        this.checkState = new int[stateSize];
+    }
+
+    // the counters of the last search; read them only once it has returned
+    public SearchStats getStats()
+    {
+        return this.stats;
+    }
+
+    public long getNodesSearched()
+    {
+        return this.stats.nodes;
+    }
+
+    public long getHeuristicCalls()
+    {
+        return this.stats.heuristicCalls;
+    }
+
+    public long getCutoffs()
+    {
+        return this.stats.cutoffs;
+    }
+
+    public long getFirstMoveCutoffs()
+    {
+        return this.stats.cutoffsByIndex[0];
+    }
+
+    // deepest iteration the last search finished
+    public int getCompletedDepth()
+    {
+        return this.stats.completedDepth;
+    }
+
+    // root score of the last finished iteration, from MAX's point of view
+    public double getBestScore()
+    {
+        return this.bestScore;
+    }
+
+    // root score of one finished iteration (1..getCompletedDepth()) of the last search
+    public double getIterationScore(int depth)
+    {
+        return this.iterationScores[depth];
+    }
+
+    // move at the given ply of the last finished iteration's principal variation (0 is
+    // the move played, 1 the reply we expect), NO_MOVE past its end or for a pass
+    public int getPvMove(int ply)
+    {
+        return ply < this.prevPvLength ? this.prevPv[ply] : TranspositionTable.NO_MOVE;
+    }
+
+    public void setTimeManager(TimeManager timeManager)
+    {
+        this.timeManager = timeManager;
+    }
+
+    public void requestStop()
+    {
+        this.stopRequested = true;
+    }
+
+    // has to happen before the helper is started, otherwise a stop that comes in
+    // before the helper gets going would be lost
+    public void clearStopRequest()
+    {
+        this.stopRequested = false;
+    }
+
+    // Pondering, in two steps. preparePonder() runs on the agent's thread before the
+    // search is handed to another one, then ponder() searches like search() but with no
+    // clock. When the opponent's move comes in, either it leads to this position and
+    // ponderHit() starts the clock of our move (the search carries on and its result is
+    // played), or it doesn't and requestStop() ends the search.
+    // Preparing up front means a hit that arrives before the ponder thread even got
+    // going still counts.
+    public void preparePonder()
+    {
+        this.stopRequested = false;
+        this.clockStartNanos = System.nanoTime();
+        this.clockBudgetNanos = Long.MAX_VALUE / 4;
+        this.deadlineNanos = Long.MAX_VALUE;
+        this.pondering = true;
+    }
+
+    public int ponder(long own, long opp, long key, int maxDepth, boolean timed)
+    {
+        return search(own, opp, key, maxDepth, timed, true);
+    }
+
+    // called from another thread, see preparePonder()
+    public void ponderHit(long startNanos, long budgetNanos)
+    {
+        this.clockStartNanos = startNanos;
+        this.clockBudgetNanos = budgetNanos;
+        this.deadlineNanos = startNanos + budgetNanos;
+        this.pondering = false;
+    }
+
+    // Iterative deepening: search depth 1, 2, 3, ... until maxDepth or the deadline.
+    // Each iteration starts from the previous one's best move and principal variation,
+    // and the transposition table hands over best moves for everything else.
+    // own is the side to move at the root, which is always MAX.
+    // Returns the best move of the last iteration that finished, or -1 to pass.
+    public int search(long own, long opp, long key, int maxDepth, long startNanos, long budgetNanos, boolean timed)
+    {
+        this.clockStartNanos = startNanos;
+        this.clockBudgetNanos = budgetNanos;
+        this.deadlineNanos = startNanos + budgetNanos;
+        this.pondering = false;
+        return search(own, opp, key, maxDepth, timed, false);
+    }
+
+    // the clock fields are already set
+    private int search(long own, long opp, long key, int maxDepth, boolean timed, boolean ponder)
+    {
+        SearchStats stats = this.stats;
+        stats.reset();
+        this.bestScore = 0.0;
+        this.prevPvLength = 0;
+        // killers are about positions at a given ply, which mean nothing after a move
+        // has been played; the history is about squares and just fades
+        for (int[] killer : this.killers) {
+            Arrays.fill(killer, TranspositionTable.NO_MOVE);
+        }
+        ageHistory();
+
+        long moves = BitBoard.legalMoves(own, opp);
+        if (moves == 0L) {
+            return -1;
+        }
+        int[] rootMoves = this.rootMoves;
+        int n = collectMoves(moves, rootMoves);
+        stats.heuristicCalls += MoveOrderer.orderMoves(this.evaluator, own, opp, true, rootMoves, this.keyBuffer[0], n);
+        if (this.incremental != null) {
+            this.incremental.initState(this.maxIsBlack ? own : opp, this.maxIsBlack ? opp : own, this.evalState[0]);
+        }
+
+        // Helpers search every other iteration one ply deeper than the main thread so
+        // the threads don't all walk the same tree in lock step.
+        int firstDepth = 1 + (this.id & 1);
+        int bestMove = rootMoves[0];
+        if (this.timeManager != null) {
+            this.timeManager.startSearch();
+        }
+        for (int depth = firstDepth; depth <= maxDepth; depth++) {
+            // the first iteration always runs to completion so we have something to play,
+            // except when pondering, where the guess may turn out wrong at any moment
+            this.canAbort = (timed && depth > firstDepth) || this.id > 0 || ponder;
+            long iterationStart = System.nanoTime();
+            long nodesBefore = stats.nodes;
+            try {
+                if (this.aspirationWindow > 0.0 && depth > firstDepth + 1) {
+                    this.bestScore = searchAspiration(own, opp, key, depth, rootMoves, n);
+                } else {
+                    this.bestScore = searchRoot(own, opp, key, depth, rootMoves, n,
+                            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+                }
+            } catch (SearchTimeout e) {
+                break;
+            }
+            bestMove = rootMoves[0];
+            this.iterationScores[depth] = this.bestScore;
+            stats.completedDepth = depth;
+            stats.iterationNanos[depth] = System.nanoTime() - iterationStart;
+            stats.iterationNodes[depth] = stats.nodes - nodesBefore;
+
+            // the next iteration follows this one's principal variation
+            this.prevPvLength = this.pvLength[0];
+            System.arraycopy(this.pv[0], 0, this.prevPv, 0, this.prevPvLength);
+
+            // the next iteration takes several times longer than this one, so don't start
+            // it if we already used half the budget (or what the time manager allows;
+            // it sees every iteration, also those searched while pondering)
+            if (timed && !keepIterating(depth, bestMove) && !this.pondering) {
+                break;
+            }
+            // nothing left to discover once every line reaches the end of the game
+            if (depth > BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp) + 2) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    private boolean keepIterating(int depth, int bestMove)
+    {
+        long elapsed = System.nanoTime() - this.clockStartNanos;
+        if (this.timeManager != null) {
+            return this.timeManager.keepIterating(depth, bestMove, this.bestScore, elapsed, this.clockBudgetNanos);
+        }
+        return elapsed <= this.clockBudgetNanos / 2;
+    }
+
+    // Aspiration windows: the score rarely moves much from one iteration to the next,
+    // so search a narrow window around the expected one first. A narrow window cuts
+    // more, and if the score lands outside it, widen that side and search again.
+    // The expected score is the one from two iterations back: the evaluation swings
+    // with who moved last, so odd and even depths each track their own value.
+    private double searchAspiration(long own, long opp, long key, int depth, int[] rootMoves, int n)
+    {
+        double delta = this.aspirationWindow;
+        double guess = this.iterationScores[depth - 2];
+        double alpha = guess - delta;
+        double beta = guess + delta;
+        for (int tries = 1; ; tries++) {
+            double score = searchRoot(own, opp, key, depth, rootMoves, n, alpha, beta);
+            if (score > alpha && score < beta) {
+                return score;
+            }
+            this.stats.aspirationResearches++;
+            delta *= this.aspirationWiden;
+            boolean giveUp = tries >= MAX_ASPIRATION_TRIES || this.aspirationWiden <= 1.0;
+            if (score <= alpha) {
+                alpha = giveUp ? Double.NEGATIVE_INFINITY : score - delta;
+            } else {
+                beta = giveUp ? Double.POSITIVE_INFINITY : score + delta;
+            }
+            // both sides open: this one is exact whatever comes back
+            if (alpha == Double.NEGATIVE_INFINITY && beta == Double.POSITIVE_INFINITY) {
+                return searchRoot(own, opp, key, depth, rootMoves, n, alpha, beta);
+            }
+        }
+    }
+
+    // Root of the search: same as the MAX branch of minimax, but works on the root move
+    // list that persists between iterations. When it returns, rootMoves[0] is the best
+    // move (so the next iteration tries it first) and the root score is returned.
+    // Outside (alpha, beta) the score is only a bound, see searchAspiration().
+    private double searchRoot(long own, long opp, long key, int depth, int[] rootMoves, int n,
+                              double alpha, double beta)
+    {
+        this.stats.nodes++;
+        this.stats.iterations++;
+        if (this.detailedStats) {
+            this.stats.interiorNodes++;
+        }
+        this.pvLength[0] = 0;
+
+        int pvMove = this.prevPvLength > 0 ? this.prevPv[0] : TranspositionTable.NO_MOVE;
+        double maxEval = Double.NEGATIVE_INFINITY;
+        int bestMove = rootMoves[0];
+        for (int i = 0; i < n; i++) {
+            int sq = rootMoves[i];
+            long flipped = BitBoard.flips(own, opp, sq);
+            long childOwn = opp & ~flipped;
+            long childOpp = own | flipped | (1L << sq);
+            long childKey = Zobrist.move(key, sq, flipped, this.maxIsBlack);
+            makeEval(0, sq, flipped, this.maxIsBlack);
+            this.followPv = sq == pvMove;
+            double eval;
+            if (this.usePvs && i > 0) {
+                eval = minimax(childOwn, childOpp, childKey, depth - 1, 1, alpha, Math.nextUp(alpha), false);
+                if (eval > alpha && eval < beta) {
+                    this.stats.pvsResearches++;
+                    eval = minimax(childOwn, childOpp, childKey, depth - 1, 1, alpha, beta, false);
+                }
+            } else {
+                eval = minimax(childOwn, childOpp, childKey, depth - 1, 1, alpha, beta, false);
+            }
+            if (eval > maxEval) {
+                maxEval = eval;
+                bestMove = sq;
+                updatePv(0, sq);
+            }
+            alpha = Math.max(alpha, eval);
+            if (beta <= alpha) {
+                break; // above the aspiration window
+            }
+        }
+        MoveOrderer.moveToFront(rootMoves, this.keyBuffer[0], n, bestMove);
+        return maxEval;
+    }
+
+    // write the squares of a move mask into moveList and return how many there are
+    private static int collectMoves(long moves, int[] moveList)
+    {
+        int n = 0;
+        for (long m = moves; m != 0L; m &= m - 1) {
+            moveList[n++] = Long.numberOfTrailingZeros(m);
+        }
+        return n;
+    }
+
+    // The evaluator state of the child at ply + 1, from this ply's and the move.
+    private void makeEval(int ply, int move, long flipped, boolean blackMoved)
+    {
+        if (this.incremental != null) {
+            this.incremental.update(this.evalState[ply], this.evalState[ply + 1], move, flipped, blackMoved);
+        }
+    }
+
+    // Debug mode: the state kept along the path must equal the one computed from scratch.
+    private void checkEvalState(long black, long white, int ply)
+    {
+        this.incremental.initState(black, white, this.checkState);
+        if (!Arrays.equals(this.checkState, this.evalState[ply])) {
+            throw new IllegalStateException("incremental evaluator state out of step at ply " + ply);
+        }
+    }
+
+    // New best move at this ply: the principal variation is that move followed by the
+    // child's principal variation (triangular PV table).
+    private void updatePv(int ply, int move)
+    {
+        int[] line = this.pv[ply];
+        int[] childLine = this.pv[ply + 1];
+        int childLength = this.pvLength[ply + 1];
+        line[ply] = move;
+        System.arraycopy(childLine, ply + 1, line, ply + 1, childLength - (ply + 1));
+        this.pvLength[ply] = Math.max(ply + 1, childLength);
+    }
+
+    // Minimax with alpha-beta pruning and memoization.
+    // own = discs of the player to move, opp = the other player's discs,
+    // key = Zobrist key of (own, opp, side to move), kept up to date incrementally.
+    // ply is the distance from the root and picks which scratch move buffer to use.
+    private double minimax(long own, long opp, long key, int depth, int ply, double alpha, double beta, boolean maximizingPlayer)
+    {
+        // every so often look at the clock, and bail out of the whole iteration if we are late
+        SearchStats stats = this.stats;
+        if ((++stats.nodes & TIME_CHECK_MASK) == 0L && this.canAbort
+                && (this.stopRequested || System.nanoTime() > this.deadlineNanos)) {
+            throw SearchTimeout.INSTANCE;
+        }
+        this.pvLength[ply] = ply;
+        // are we still on the previous iteration's principal variation?
+        boolean onPv = this.followPv;
+        this.followPv = false;
+        if (this.detailedStats && ply > stats.maxPly) {
+            stats.maxPly = ply;
+        }
+
+        long maxDiscs = maximizingPlayer ? own : opp;
+        long minDiscs = maximizingPlayer ? opp : own;
+        // the color of "own": MAX is always the agent
+        boolean ownIsBlack = maximizingPlayer == this.maxIsBlack;
+        if (this.checkEval) {
+            checkEvalState(ownIsBlack ? own : opp, ownIsBlack ? opp : own, ply);
+        }
+
+        // Early in the game the same position shows up in several orientations, so there
+        // the table is keyed by the canonical one (and stores moves in that orientation).
+        // The key passed down to the children stays the plain incremental one.
+        long ttKey = key;
+        int sym = Symmetry.IDENTITY;
+        if (this.useSymmetry && BitBoard.popCount(own | opp) < this.symmetryDiscs) {
+            sym = Symmetry.canonicalSymmetry(ownIsBlack ? own : opp, ownIsBlack ? opp : own);
+            ttKey = canonicalKey(own, opp, ownIsBlack, sym);
+        }
+
+        // Check transposition table first if it contains the value or not.
+        // Anything searched at least as deep as we need can be used: an exact score
+        // answers the node outright, a bound narrows the window (and may close it).
+        int ttMove = TranspositionTable.NO_MOVE;
+        TranspositionTable.Entry entry = this.ttEntry;
+        if (this.useTT && this.detailedStats) {
+            stats.ttProbes++;
+        }
+        if (this.useTT && this.transpositionTable.probe(ttKey, entry)) {
+            if (this.detailedStats) {
+                stats.ttHits++;
+            }
+            ttMove = fromTable(entry.bestMove, sym);
+            if (entry.depth >= depth) {
+                double cachedValue = entry.score;
+                if (entry.bound == TranspositionTable.EXACT) {
+                    return cachedValue;
+                } else if (entry.bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, cachedValue);
+                } else {
+                    beta = Math.min(beta, cachedValue);
+                }
+                if (beta <= alpha) {
+                    return cachedValue;
+                }
+            }
+        }
+        // the window we actually search with, needed to tell exact scores from bounds
+        double windowAlpha = alpha;
+        double windowBeta = beta;
+
+        // Stability cutoff: a side that already has more than half the board in discs
+        // that can never flip has won, and with exactly half it can't lose.
+        if (depth > 0 && BitBoard.NUM_SQUARES - BitBoard.popCount(own | opp) <= this.stabilityEmpties) {
+            double bound = stabilityCut(maxDiscs, minDiscs, alpha, beta);
+            if (!Double.isNaN(bound)) {
+                stats.stabilityCuts++;
+                return bound;
+            }
+        }
+
+        long moves = BitBoard.legalMoves(own, opp);
+        boolean terminal = moves == 0L && BitBoard.legalMoves(opp, own) == 0L;
+
+        // Base case: terminal node or maximum depth reached
+        if (terminal || depth == 0) {
+            double utility;
+            int storedDepth;
+            if (terminal) {
+                utility = OthelloNode.getTerminalUtility(maxDiscs, minDiscs);
+                // a finished game is exact no matter how much depth was left
+                storedDepth = MAX_PLY;
+            } else {
+                // Use heuristic evaluation
+                if (this.incremental != null) {
+                    utility = this.incremental.evaluate(this.evalState[ply], maxDiscs, minDiscs, moves,
+                            maximizingPlayer, this.maxIsBlack);
+                    if (this.checkEval && utility != this.evaluator.evaluate(maxDiscs, minDiscs, maximizingPlayer)) {
+                        throw new IllegalStateException("incremental evaluation differs at ply " + ply);
+                    }
+                } else {
+                    utility = this.evaluator.evaluate(maxDiscs, minDiscs, maximizingPlayer);
+                }
+                stats.heuristicCalls++;
+                if (this.detailedStats) {
+                    stats.leafEvals++;
+                }
+                storedDepth = 0;
+            }
+            // Store the key value pair in transposition table
+            store(ttKey, storedDepth, TranspositionTable.EXACT, utility, TranspositionTable.NO_MOVE);
+            return utility;
+        }
+
+        if (this.detailedStats) {
+            stats.interiorNodes++;
+        }
+
+        // ProbCut: off the principal variation, let a shallow search guess whether this
+        // one would fail high or low, and trust it when the guess clears the window by
+        // a wide enough margin. Nothing goes into the table, it's only a guess.
+        if (this.probCut != null && depth >= ProbCut.MIN_DEPTH && !onPv && moves != 0L) {
+            int cut = probCut(own, opp, key, depth, ply, alpha, beta, maximizingPlayer);
+            if (cut != 0) {
+                stats.probCuts++;
+                return cut > 0 ? beta : alpha;
+            }
+        }
+
+        // Current player has no legal moves, so the only child is the pass
+        if (moves == 0L) {
+            this.followPv = onPv;
+            if (this.incremental != null) {
+                System.arraycopy(this.evalState[ply], 0, this.evalState[ply + 1], 0, this.evalState[ply].length);
+            }
+            double utility = minimax(opp, own, Zobrist.pass(key), depth - 1, ply + 1, alpha, beta, !maximizingPlayer);
+            updatePv(ply, TranspositionTable.NO_MOVE);
+            storeResult(ttKey, depth, utility, windowAlpha, windowBeta, TranspositionTable.NO_MOVE);
+            return utility;
+        }
+
+        // Recursive case: explore children
+        int[] moveList = this.moveBuffer[ply];
+        int n = collectMoves(moves, moveList);
+        // Order children for better alpha-beta pruning.
+        // Only cheap signals, best first: the previous iteration's principal variation,
+        // the best move the table remembers, the killer moves of this ply, and then the
+        // history scores (a fixed per-square prior breaks ties). Evaluating every child
+        // costs more than the extra cutoffs save (and at depth 1 it would evaluate every
+        // leaf twice), so that is only a fallback for nodes just above the leaves that
+        // have no table move, and off by default.
+        // Only the keys are set here. The loops below pick each next move when they get
+        // to it, so most nodes, which cut off on the first move, never sort the rest.
+        double[] keys = this.keyBuffer[ply];
+        if (depth >= 2 && depth <= this.orderEvalDepth && ttMove == TranspositionTable.NO_MOVE) {
+            stats.heuristicCalls += MoveOrderer.orderMoves(this.evaluator, own, opp, maximizingPlayer, moveList, keys, n);
+        } else if (this.useHistory) {
+            MoveOrderer.scoreMovesByHistory(moveList, keys, n, this.history[ownIsBlack ? 0 : 1]);
+        } else {
+            MoveOrderer.scoreMovesBySquare(moveList, keys, n);
+        }
+        if (this.useKillers) {
+            MoveOrderer.promote(moveList, keys, n, this.killers[ply][1], 1);
+            MoveOrderer.promote(moveList, keys, n, this.killers[ply][0], 2);
+        }
+        MoveOrderer.promote(moveList, keys, n, ttMove, 3);
+        int pvMove = onPv && ply < this.prevPvLength ? this.prevPv[ply] : TranspositionTable.NO_MOVE;
+        MoveOrderer.promote(moveList, keys, n, pvMove, 4);
+
+        // if we are maximizing the player,
+        if (maximizingPlayer) {
+            double maxEval = Double.NEGATIVE_INFINITY;
+            int bestMove = MoveOrderer.pickMove(moveList, keys, 0, n);
+            // for the every child move ...
+            for (int i = 0; i < n; i++) {
+                int sq = i == 0 ? bestMove : MoveOrderer.pickMove(moveList, keys, i, n);
+                long flipped = BitBoard.flips(own, opp, sq);
+                long childOwn = opp & ~flipped;
+                long childOpp = own | flipped | (1L << sq);
+                long childKey = Zobrist.move(key, sq, flipped, ownIsBlack);
+                makeEval(ply, sq, flipped, ownIsBlack);
+                this.followPv = sq == pvMove;
+                double eval;
+                if (this.usePvs && i > 0) {
+                    // PVS: only prove this move is no better than alpha, and search it
+                    // properly if it turns out to be
+                    eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, alpha, Math.nextUp(alpha), false);
+                    if (eval > alpha && eval < beta) {
+                        stats.pvsResearches++;
+                        eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, alpha, beta, false);
+                    }
+                } else {
+                    eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, alpha, beta, false);
+                }
+                // evaluate the utility and choose the best one.
+                if (eval > maxEval) {
+                    maxEval = eval;
+                    bestMove = sq;
+                    updatePv(ply, sq);
+                }
+                // alpha is the best value
+                alpha = Math.max(alpha, eval);
+                if (beta <= alpha) {
+                    recordCutoff(ply, depth, sq, ownIsBlack, i);
+                    break; // Beta is getting pruned
+                }
+            }
+            // Caching result in transposition table
+            storeResult(ttKey, depth, maxEval, windowAlpha, windowBeta, toTable(bestMove, sym));
+            return maxEval;
+        } else {
+            // minimizing the player to be in the POSITIVE_INFINITY
+            double minEval = Double.POSITIVE_INFINITY;
+            int bestMove = MoveOrderer.pickMove(moveList, keys, 0, n);
+            // Look out for the every child.
+            for (int i = 0; i < n; i++) {
+                int sq = i == 0 ? bestMove : MoveOrderer.pickMove(moveList, keys, i, n);
+                long flipped = BitBoard.flips(own, opp, sq);
+                long childOwn = opp & ~flipped;
+                long childOpp = own | flipped | (1L << sq);
+                long childKey = Zobrist.move(key, sq, flipped, ownIsBlack);
+                makeEval(ply, sq, flipped, ownIsBlack);
+                this.followPv = sq == pvMove;
+                double eval;
+                if (this.usePvs && i > 0) {
+                    // same scout from MIN's side: prove the move is no lower than beta
+                    eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, Math.nextDown(beta), beta, true);
+                    if (eval < beta && eval > alpha) {
+                        stats.pvsResearches++;
+                        eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, alpha, beta, true);
+                    }
+                } else {
+                    eval = minimax(childOwn, childOpp, childKey, depth - 1, ply + 1, alpha, beta, true);
+                }
+                if (eval < minEval) {
+                    minEval = eval;
+                    bestMove = sq;
+                    updatePv(ply, sq);
+                }
+
+                beta = Math.min(beta, eval);
+                if (beta <= alpha) {
+                    recordCutoff(ply, depth, sq, ownIsBlack, i);
+                    break; // Alpha cutoff
+                }
+            }
+
+            // Store result in transposition table
+            storeResult(ttKey, depth, minEval, windowAlpha, windowBeta, toTable(bestMove, sym));
+            return minEval;
+        }
+    }
+
+    // Would a full search of this node fail high (returns 1) or low (-1) with high
+    // probability? 0 if it can't tell. The fits are from the side to move's point of
+    // view: deep = slope * shallow + offset, so for MIN the offset changes sign. A fail
+    // high needs deep - sigmas * sigma >= beta, i.e. shallow >= the bound computed below,
+    // which a null-window search at the shallow depth checks.
+    private int probCut(long own, long opp, long key, int depth, int ply, double alpha, double beta,
+                        boolean maximizingPlayer)
+    {
+        int stage = ProbCut.stage(BitBoard.popCount(own | opp));
+        if (!this.probCut.hasFit(stage, depth)) {
+            return 0;
+        }
+        double slope = this.probCut.getSlope(stage, depth);
+        double offset = maximizingPlayer ? this.probCut.getOffset(stage, depth) : -this.probCut.getOffset(stage, depth);
+        double margin = this.probCutSigmas * this.probCut.getSigma(stage, depth);
+        int shallow = ProbCut.shallowDepth(depth);
+
+        // scores never leave [-1, 1], so a bound outside can't be reached anyway
+        double high = (beta + margin - offset) / slope;
+        if (high <= 1.0 && minimax(own, opp, key, shallow, ply, Math.nextDown(high), high, maximizingPlayer) >= high) {
+            return 1;
+        }
+        double low = (alpha - margin - offset) / slope;
+        if (low >= -1.0 && minimax(own, opp, key, shallow, ply, low, Math.nextUp(low), maximizingPlayer) <= low) {
+            return -1;
+        }
+        return 0;
+    }
+
+    // The win/loss/tie utility the stable discs guarantee, if it is outside (alpha, beta)
+    // or already exact; NaN if they don't decide anything. Only a side with at least
+    // half the discs on the board can have half of it stable, so most nodes stop at
+    // the popcounts. Nothing goes into the table: it is a bound, and cheap to find again.
+    private static double stabilityCut(long maxDiscs, long minDiscs, double alpha, double beta)
+    {
+        int half = BitBoard.NUM_SQUARES / 2;
+        double upper = 1.0;
+        if (BitBoard.popCount(minDiscs) >= half) {
+            int stable = Stability.countStable(minDiscs, maxDiscs);
+            upper = stable > half ? -1.0 : stable == half ? 0.0 : 1.0;
+        }
+        double lower = -1.0;
+        if (BitBoard.popCount(maxDiscs) >= half) {
+            int stable = Stability.countStable(maxDiscs, minDiscs);
+            lower = stable > half ? 1.0 : stable == half ? 0.0 : -1.0;
+        }
+        if (upper <= alpha || upper == lower) {
+            return upper;
+        } else if (lower >= beta) {
+            return lower;
+        }
+        return Double.NaN;
+    }
+
+    // kept out of minimax so the full hash doesn't get inlined into every node
+    private static long canonicalKey(long own, long opp, boolean ownIsBlack, int sym)
+    {
+        return Zobrist.hash(Symmetry.transform(own, sym), Symmetry.transform(opp, sym), ownIsBlack);
+    }
+
+    // moves go into the table in the orientation of its key, and come back out through
+    // the inverse symmetry
+    private static int toTable(int move, int sym)
+    {
+        return sym == Symmetry.IDENTITY || move == TranspositionTable.NO_MOVE
+                ? move
+                : Symmetry.transformSquare(move, sym);
+    }
+
+    private static int fromTable(int move, int sym)
+    {
+        return sym == Symmetry.IDENTITY || move == TranspositionTable.NO_MOVE
+                ? move
+                : Symmetry.transformSquare(move, Symmetry.inverse(sym));
+    }
+
+    // A move just refuted the position at this ply: remember it as a killer and give
+    // its square history credit. Deeper cutoffs saved more work, so they count more.
+    private void recordCutoff(int ply, int depth, int move, boolean ownIsBlack, int moveIndex)
+    {
+        this.stats.cutoffs++;
+        this.stats.cutoffsByIndex[moveIndex]++;
+
+        int[] killer = this.killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+
+        int[] row = this.history[ownIsBlack ? 0 : 1];
+        row[move] += depth * depth;
+        if (row[move] > HISTORY_MAX) {
+            for (int[] side : this.history) {
+                for (int sq = 0; sq < side.length; sq++) {
+                    side[sq] >>= 1;
+                }
+            }
+        }
+    }
+
+    // Called once per move: scale the history down so what was learned on earlier moves
+    // still helps but doesn't drown out what this search finds.
+    private void ageHistory()
+    {
+        int shift = Math.min(31, Math.max(0, this.historyAgeShift));
+        for (int[] side : this.history) {
+            for (int sq = 0; sq < side.length; sq++) {
+                side[sq] >>= shift;
+            }
+        }
+    }
+
+    // Store a search result with the right bound type. Scores are from MAX's point
+    // of view at every level, so the same test works for MAX and MIN nodes:
+    // at or below alpha we only know an upper bound (fail-low), at or above beta
+    // only a lower bound (fail-high), anything in between is exact.
+    private void storeResult(long key, int depth, double value, double alpha, double beta, int bestMove)
+    {
+        if (!this.useTT) {
+            return;
+        }
+        int bound;
+        if (value <= alpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (value >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        store(key, depth, bound, value, bestMove);
+    }
+
+    private void store(long key, int depth, int bound, double value, int bestMove)
+    {
+        if (!this.useTT) {
+            return;
+        }
+        boolean collision = this.transpositionTable.store(key, depth, bound, value, bestMove);
+        if (this.detailedStats) {
+            this.stats.ttStores++;
+            if (collision) {
+                this.stats.ttCollisions++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+
+
+// JAVA PROJECT IMPORTS
+
+
+// How much of the per-move limit each move gets, over a whole game.
+// The framework gives every move the same hard limit, and no move may go over it. So
+// instead of always searching until about half of it is gone, every move plans a part
+// of it and adjusts while it searches:
+//   - an ordinary move plans targetFraction of the limit,
+//   - a move whose best move changes between iterations, or whose score drops, gets
+//     more (up to the limit), and a move that stays put for a while gets less,
+//   - whatever a move leaves of its plan goes into a bank, and the endgame solver,
+//     which gains the most from extra time (a solved position is a won or saved game),
+//     draws on it for up to SOLVER_MAX_FRACTION of the limit.
+// Forced moves are played by the agent without asking, see OthelloAgent.treeSearch().
+// startMove()/endMove() run on the agent's thread between searches, startSearch() and
+// keepIterating() on the main searcher's thread (the ponder thread when pondering).
+public class TimeManager
+    extends Object
+{
+
+    // the solver may take this much of the limit, if the bank has it; the rest is
+    // left for the search in case the solve doesn't finish
+    private static final double SOLVER_MAX_FRACTION = 0.9;
+    // without the bank the solver gets this much, as it did before
+    private static final double SOLVER_BASE_FRACTION = 0.5;
+
+    // the plan is scaled by this when the best move changes or the score drops, and
+    // shrinks back by SETTLE for every iteration where neither happened, never below
+    // MIN_FACTOR
+    private static final double UNSTABLE = 1.5;
+    private static final double SETTLE = 0.9;
+    private static final double MIN_FACTOR = 0.7;
+    // a drop of more than this (in evaluation units, [-1, 1]) counts as a drop
+    private static final double SCORE_DROP = 0.03;
+
+    // the next iteration takes several times as long as the one before, so don't start
+    // one after this much of the current target is gone
+    private static final double NEXT_ITERATION_FRACTION = 0.5;
+
+    private final double targetFraction;
+    // most the bank can hold: what the solver moves can spend
+    private final int solverMoves;
+
+    private long bankNanos;
+
+    // the move being played; startMove() writes these on the agent's thread while a
+    // ponder search may be reading them in keepIterating(), so they are volatile
+    private volatile long limitNanos;
+    private volatile long plannedNanos;
+    private volatile boolean solverMove;
+
+    // written and read by the searcher thread only
+    private double factor;
+    private int lastBestMove;
+    private int firstDepth;
+    // root score per finished depth of this search
+    private final double[] scores = new double[Searcher.MAX_PLY + 1];
+
+    public TimeManager(double targetFraction, int endgameEmpties)
+    {
+        this.targetFraction = Math.max(0.05, Math.min(1.0, targetFraction));
+        // we make every other move of the solver phase
+        this.solverMoves = Math.max(1, endgameEmpties / 2);
+    }
+
+    // a new game: nothing banked
+    public void reset()
+    {
+        this.bankNanos = 0L;
+    }
+
+    // A move starts with limitNanos to spend at most. solverMove says whether the
+    // endgame solver will get the first try.
+    public void startMove(long limitNanos, boolean solverMove)
+    {
+        this.limitNanos = limitNanos;
+        this.solverMove = solverMove;
+        this.plannedNanos = solverMove
+                ? Math.min((long) (limitNanos * SOLVER_MAX_FRACTION),
+                        (long) (limitNanos * SOLVER_BASE_FRACTION) + this.bankNanos)
+                : (long) (limitNanos * this.targetFraction);
+    }
+
+    // what this move planned to spend (the solver's share on solver moves)
+    public long getPlannedNanos()
+    {
+        return this.plannedNanos;
+    }
+
+    // how long the solver may run on this move
+    public long getSolverNanos()
+    {
+        return this.plannedNanos;
+    }
+
+    public long getBankNanos()
+    {
+        return this.bankNanos;
+    }
+
+    // The move is over: what it didn't spend of its plan goes to the bank, and what it
+    // spent above its plan comes out of it.
+    public void endMove(long usedNanos)
+    {
+        long bank = this.bankNanos + this.plannedNanos - usedNanos;
+        long cap = this.solverMoves * (long) (this.limitNanos * (SOLVER_MAX_FRACTION - SOLVER_BASE_FRACTION));
+        this.bankNanos = Math.max(0L, Math.min(cap, bank));
+    }
+
+    // called by the searcher when it starts iterating
+    public void startSearch()
+    {
+        this.factor = 1.0;
+        this.lastBestMove = TranspositionTable.NO_MOVE;
+        this.firstDepth = -1;
+    }
+
+    // Called after every finished iteration: may the search start the next one?
+    // score is the root score of this depth, elapsedNanos and budgetNanos the
+    // searcher's clock (the budget is all it may use, on a solver move what the solver
+    // left). The evaluation swings between odd and even depths, so a drop is measured
+    // against the depth two before.
+    public boolean keepIterating(int depth, int bestMove, double score, long elapsedNanos, long budgetNanos)
+    {
+        if (this.firstDepth < 0) {
+            this.firstDepth = depth;
+        }
+        this.scores[depth] = score;
+        boolean changed = this.lastBestMove != TranspositionTable.NO_MOVE && bestMove != this.lastBestMove;
+        boolean dropped = depth - 2 >= this.firstDepth && score < this.scores[depth - 2] - SCORE_DROP;
+        if (changed || dropped) {
+            this.factor *= UNSTABLE;
+        } else if (this.lastBestMove != TranspositionTable.NO_MOVE) {
+            this.factor = Math.max(MIN_FACTOR, this.factor * SETTLE);
+        }
+        this.lastBestMove = bestMove;
+
+        long target = this.solverMove
+                ? budgetNanos
+                : Math.min(budgetNanos, (long) (this.limitNanos * this.targetFraction * this.factor));
+        return elapsedNanos <= target * NEXT_ITERATION_FRACTION;
+    }
+
+}
@@ -0,0 +1,167 @@
+package src.pas.othello.search;
+
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+
+// JAVA PROJECT IMPORTS
+
+
+// Fixed-size transposition table keyed by 64 bit Zobrist keys.
+// Everything lives in preallocated parallel primitive arrays, so storing and probing
+// never allocates and the table can be kept alive across moves.
+//
+// Entries come in buckets of two:
+//   slot 0 is depth-preferred (only replaced by a search that is at least as deep),
+//   slot 1 always takes whatever did not fit in slot 0.
+// That way deep results stick around without the table filling up with stale entries.
+// Every entry also records the generation (move) that stored it. The agent starts a new
+// generation for every move, and an entry left over from an earlier one gives up the
+// depth-preferred slot to anything, so deep results of old moves don't pin it forever.
+public class TranspositionTable
+    extends Object
+{
+
+    // bound types
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // fail-high, the real score is >= the stored one
+    public static final int UPPER = 2; // fail-low, the real score is <= the stored one
+
+    public static final int NO_MOVE = -1;
+
+    // bytes per entry: key (long) + score (long) + packed data (int)
+    private static final int ENTRY_BYTES = 8 + 8 + 4;
+
+    // layout of the packed data int
+    private static final int DEPTH_MASK = 0xff;        // bits 0-7
+    private static final int BOUND_SHIFT = 8;          // bits 8-9
+    private static final int BOUND_MASK = 0x3;
+    private static final int MOVE_SHIFT = 10;          // bits 10-16, stored as move + 1
+    private static final int MOVE_MASK = 0x7f;
+    private static final int USED = 1 << 17;           // slot holds something
+    private static final int GENERATION_SHIFT = 18;    // bits 18-23
+    private static final int GENERATION_MASK = 0x3f;
+
+    private final long[] keys;
+    private final long[] scores;  // raw bits of the double score
+    private final int[] data;
+    private final int mask;
+    // stamped on every store, see newGeneration()
+    private int generation;
+
+    public TranspositionTable(int sizeInMB)
+    {
+        long bytes = Math.max(1L, (long) sizeInMB) * 1024L * 1024L;
+        long wanted = Math.min(bytes / ENTRY_BYTES, 1L << 30);
+        // power of two (and at least one full bucket) so the index is just a mask
+        int capacity = Math.max(2, Integer.highestOneBit((int) wanted));
+        this.keys = new long[capacity];
+        this.scores = new long[capacity];
+        this.data = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int getCapacity()
+    {
+        return this.keys.length;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.scores, 0L);
+        Arrays.fill(this.data, 0);
+        this.generation = 0;
+    }
+
+    // Called between moves (not while a search runs): from now on the entries already
+    // in the table count as old. Wraps after 64 moves, more than a game has.
+    public void newGeneration()
+    {
+        this.generation = (this.generation + 1) & GENERATION_MASK;
+    }
+
+    public int getGeneration()
+    {
+        return this.generation;
+    }
+
+    // first slot of the bucket this key maps to
+    private int bucket(long key)
+    {
+        return (int) key & this.mask & ~1;
+    }
+
+    // The key array holds key ^ score ^ data rather than the plain key. Several search
+    // threads write into the table without locks, so a slot can be half overwritten
+    // while someone reads it; a torn slot simply fails this check and reads as a miss.
+    private long storedKey(int slot)
+    {
+        return this.keys[slot] ^ this.scores[slot] ^ this.data[slot];
+    }
+
+    // Look the key up and copy the entry into "entry" (one per thread, reused).
+    // Returns false when the key is not in the table.
+    public boolean probe(long key, Entry entry)
+    {
+        int i = bucket(key);
+        return read(i, key, entry) || read(i + 1, key, entry);
+    }
+
+    private boolean read(int slot, long key, Entry entry)
+    {
+        // read each array exactly once so the check and the values agree
+        long k = this.keys[slot];
+        long s = this.scores[slot];
+        int d = this.data[slot];
+        if ((d & USED) == 0 || (k ^ s ^ d) != key) {
+            return false;
+        }
+        entry.depth = d & DEPTH_MASK;
+        entry.bound = (d >>> BOUND_SHIFT) & BOUND_MASK;
+        entry.score = Double.longBitsToDouble(s);
+        entry.bestMove = ((d >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+        return true;
+    }
+
+    // Returns true when this threw out an entry for a different position (a collision,
+    // only counted for the search stats).
+    public boolean store(long key, int depth, int bound, double score, int bestMove)
+    {
+        int packed = USED
+                | Math.min(depth, DEPTH_MASK)
+                | (bound << BOUND_SHIFT)
+                | ((bestMove + 1) << MOVE_SHIFT)
+                | (this.generation << GENERATION_SHIFT);
+        long scoreBits = Double.doubleToRawLongBits(score);
+
+        int i = bucket(key);
+        int d = this.data[i];
+        int slot;
+        if ((d & USED) == 0 || storedKey(i) == key || depth >= (d & DEPTH_MASK)
+                || ((d >>> GENERATION_SHIFT) & GENERATION_MASK) != this.generation) {
+            // empty, same position, at least as deep, or left over from an earlier
+            // move: take the depth-preferred slot
+            slot = i;
+        } else {
+            slot = i + 1;
+        }
+        boolean collision = (this.data[slot] & USED) != 0 && storedKey(slot) != key;
+        this.keys[slot] = key ^ scoreBits ^ packed;
+        this.scores[slot] = scoreBits;
+        this.data[slot] = packed;
+        return collision;
+    }
+
+    // A copy of one table entry. Each search thread keeps its own and reuses it.
+    public static class Entry
+        extends Object
+    {
+        public int depth;
+        public int bound;
+        public double score;
+        public int bestMove;
+    }
+
+}